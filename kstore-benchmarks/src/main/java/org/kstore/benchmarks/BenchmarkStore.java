@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.kstore.Column;
+import org.kstore.ColumnType;
+import org.kstore.Device;
+import org.kstore.PageCodec;
+import org.kstore.impl.DefaultColumn;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.FileSystemDevice;
+
+/**
+ * Builds the stores used by the benchmarks, in temporary directories of the local file system.
+ * <p>
+ * The column types of a store are given by name: one of BIGINT, INT, DOUBLE, STRING to have only columns of this type,
+ * or MIXED to cycle through all of them.
+ */
+public class BenchmarkStore {
+
+	private static final ColumnType[] MIXED = {ColumnType.BIGINT, ColumnType.STRING, ColumnType.DOUBLE, ColumnType.INT};
+
+	public static Path createDirectory() throws IOException {
+		return Files.createTempDirectory("kstore-benchmark");
+	}
+
+	public static void deleteDirectory(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	public static ColumnType[] getTypes(String columnTypes, int nbColumns) {
+		ColumnType[] types = new ColumnType[nbColumns];
+		for (int n = 0; n < nbColumns; n++) {
+			types[n] = "MIXED".equals(columnTypes) ? MIXED[n % MIXED.length] : ColumnType.valueOf(columnTypes);
+		}
+		return types;
+	}
+
+	/**
+	 * Creates an empty store.
+	 *
+	 * @param directory
+	 * @param types
+	 * @param pageSize number of rows of a page
+	 * @param oneFilePerColumn storage layout
+	 * @return
+	 */
+	public static DefaultKStore create(Path directory, ColumnType[] types, int pageSize, boolean oneFilePerColumn) {
+		return create(directory, types, pageSize, oneFilePerColumn, new FileSystemDevice());
+	}
+
+	/**
+	 * Creates an empty store on the given device.
+	 *
+	 * @param directory
+	 * @param types
+	 * @param pageSize number of rows of a page
+	 * @param oneFilePerColumn storage layout
+	 * @param device
+	 * @return
+	 */
+	public static DefaultKStore create(Path directory, ColumnType[] types, int pageSize, boolean oneFilePerColumn,
+			Device device) {
+		List<Column> schema = new ArrayList<>();
+		for (ColumnType type : types) {
+			schema.add(new DefaultColumn(type));
+		}
+		return new DefaultKStore("Benchmark", schema, directory.toString(), device) {
+			@Override
+			public boolean useOneFilePerColumn() {
+				return oneFilePerColumn;
+			}
+
+			@Override
+			public int getPageSize() {
+				return pageSize;
+			}
+		};
+	}
+
+	/**
+	 * Sets the codec of the pages of all columns, before the buckets of the store are created.
+	 *
+	 * @param store
+	 * @param pageCodec a PageCodec name, DEFAULT to keep the default codec of each column format
+	 */
+	public static void setPageCodec(DefaultKStore store, String pageCodec) {
+		if (!"DEFAULT".equals(pageCodec)) {
+			for (Column column : store.getColumns()) {
+				((DefaultColumn) column).setPageCodec(PageCodec.valueOf(pageCodec));
+			}
+		}
+	}
+
+	/**
+	 * Generates a row. Values are drawn from small ranges, as in usual dimension and measure columns.
+	 *
+	 * @param types
+	 * @param random
+	 * @return
+	 */
+	public static Object[] row(ColumnType[] types, Random random) {
+		Object[] row = new Object[types.length];
+		for (int n = 0; n < types.length; n++) {
+			switch (types[n]) {
+				case INT:
+					row[n] = random.nextInt(100000);
+					break;
+				case BIGINT:
+					row[n] = (long) random.nextInt(1000000);
+					break;
+				case DOUBLE:
+					row[n] = random.nextInt(1000000) / 100.D;
+					break;
+				default:
+					row[n] = "Value" + random.nextInt(1000);
+					break;
+			}
+		}
+		return row;
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.kstore.Bucket;
+import org.kstore.ColumnType;
+import org.kstore.impl.DefaultKStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to commit deletions, kept in the deletion vectors of row files which are compacted in the
+ * background.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompactBenchmark {
+
+	@Param({"MIXED", "BIGINT", "STRING"})
+	private String columnTypes;
+
+	@Param({"8"})
+	private int nbColumns;
+
+	@Param({"1024", "8192"})
+	private int pageSize;
+
+	@Param({"100000"})
+	private int nbRows;
+
+	/** Part of the rows deleted before compaction. */
+	@Param({"0.01", "0.5"})
+	private double deleted;
+
+	@Param({"true", "false"})
+	private boolean oneFilePerColumn;
+
+	private Path directory;
+	private Bucket bucket;
+
+	@Setup(Level.Invocation)
+	public void createStore() throws IOException {
+		ColumnType[] types = BenchmarkStore.getTypes(columnTypes, nbColumns);
+		directory = BenchmarkStore.createDirectory();
+		DefaultKStore store = BenchmarkStore.create(directory, types, pageSize, oneFilePerColumn);
+		bucket = store.newBucket();
+		Random random = new Random(0);
+		for (int i = 0; i < nbRows; i++) {
+			bucket.add(i, BenchmarkStore.row(types, random));
+		}
+		bucket.commit();
+		for (int i = 0; i < nbRows; i++) {
+			if (random.nextDouble() < deleted) {
+				bucket.deleteRowId(i);
+			}
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void deleteStore() throws IOException {
+		BenchmarkStore.deleteDirectory(directory);
+	}
+
+	@Benchmark
+	public Bucket compact() throws IOException {
+		bucket.commit();
+		return bucket;
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.kstore.Bucket;
+import org.kstore.ColumnType;
+import org.kstore.Line;
+import org.kstore.PrimitiveLine;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.utils.PageBufferPool;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Measures scans depending on the bytes kept by the page buffer pool, 0 allocating the buffers of each scan as
+ * without pool. The arrays allocated by the pool are reported per scan in the poolAllocations counter. Run it with
+ * {@link #main(String[])}, or with {@code -prof gc}, to also report the bytes allocated per scan.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PageBufferPoolBenchmark {
+
+	@Param({"0", "268435456"})
+	private long poolBytes;
+
+	@Param({"MIXED"})
+	private String columnTypes;
+
+	@Param({"8"})
+	private int nbColumns;
+
+	@Param({"1024", "8192"})
+	private int pageSize;
+
+	@Param({"200000"})
+	private int nbRows;
+
+	@Param({"true", "false"})
+	private boolean oneFilePerColumn;
+
+	private Path directory;
+	private Bucket bucket;
+	private int[] columns;
+
+	/**
+	 * Counts the arrays allocated by the pool during the measured scans.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Allocations {
+
+		public long poolAllocations;
+	}
+
+	@Setup(Level.Trial)
+	public void createStore() throws IOException {
+		PageBufferPool.resetPageBufferPool(poolBytes);
+		ColumnType[] types = BenchmarkStore.getTypes(columnTypes, nbColumns);
+		directory = BenchmarkStore.createDirectory();
+		DefaultKStore store = BenchmarkStore.create(directory, types, pageSize, oneFilePerColumn);
+		bucket = store.newBucket();
+		Random random = new Random(0);
+		for (int i = 0; i < nbRows; i++) {
+			bucket.add(i, BenchmarkStore.row(types, random));
+		}
+		bucket.commit();
+		columns = IntStream.range(0, nbColumns).toArray();
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteStore() throws IOException {
+		BenchmarkStore.deleteDirectory(directory);
+	}
+
+	@Benchmark
+	public void scan(Allocations allocations, Blackhole blackhole) throws IOException {
+		long before = PageBufferPool.getAllocations();
+		bucket.readLines(new PrimitiveLine(columns), (RoaringBitmap) null, (int rowId, Line line) -> {
+			blackhole.consume(line);
+			return true;
+		});
+		allocations.poolAllocations += PageBufferPool.getAllocations() - before;
+	}
+
+	/**
+	 * Runs the benchmark with the gc profiler.
+	 *
+	 * @param args
+	 * @throws RunnerException
+	 */
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(PageBufferPoolBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+	}
+}
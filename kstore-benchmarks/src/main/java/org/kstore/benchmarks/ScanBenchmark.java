@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.kstore.Batch;
+import org.kstore.Bucket;
+import org.kstore.ColumnType;
+import org.kstore.Line;
+import org.kstore.PrimitiveLine;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.FileSystemDevice;
+import org.kstore.utils.Str;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Measures the time to read a bucket, row by row or by batches, for a projection and a selection of row ids.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScanBenchmark {
+
+	@Param({"MIXED", "BIGINT", "DOUBLE", "STRING"})
+	private String columnTypes;
+
+	@Param({"8"})
+	private int nbColumns;
+
+	@Param({"1024", "8192"})
+	private int pageSize;
+
+	@Param({"1000000"})
+	private int nbRows;
+
+	/** Number of read columns. */
+	@Param({"1", "4", "8"})
+	private int projection;
+
+	/** Part of the rows selected by the bitmap, 1 reading all rows without bitmap. */
+	@Param({"1", "0.1", "0.001"})
+	private double selectivity;
+
+	@Param({"true", "false"})
+	private boolean oneFilePerColumn;
+
+	/** Codec of the pages, DEFAULT for the default codec of each column format. */
+	@Param({"DEFAULT", "NONE", "SNAPPY", "LZ4", "ZSTD"})
+	private String pageCodec;
+
+	/** Are column files read from memory mappings. */
+	@Param({"false", "true"})
+	private boolean mmap;
+
+	private Path directory;
+	private Bucket bucket;
+	private int[] columns;
+	private RoaringBitmap bitRowIds;
+
+	@Setup(Level.Trial)
+	public void createStore() throws IOException {
+		ColumnType[] types = BenchmarkStore.getTypes(columnTypes, nbColumns);
+		directory = BenchmarkStore.createDirectory();
+		DefaultKStore store = BenchmarkStore.create(directory, types, pageSize, oneFilePerColumn, new FileSystemDevice(mmap));
+		BenchmarkStore.setPageCodec(store, pageCodec);
+		bucket = store.newBucket();
+		Random random = new Random(0);
+		for (int i = 0; i < nbRows; i++) {
+			bucket.add(i, BenchmarkStore.row(types, random));
+		}
+		bucket.commit();
+
+		columns = IntStream.range(0, Math.min(projection, nbColumns)).toArray();
+		if (selectivity < 1) {
+			bitRowIds = new RoaringBitmap();
+			for (int i = 0; i < nbRows; i++) {
+				if (random.nextDouble() < selectivity) {
+					bitRowIds.add(i);
+				}
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteStore() throws IOException {
+		BenchmarkStore.deleteDirectory(directory);
+	}
+
+	@Benchmark
+	public void readLines(Blackhole blackhole) throws IOException {
+		bucket.readLines(new BlackholeLine(columns, blackhole), bitRowIds, (int rowId, Line line) -> {
+			blackhole.consume(rowId);
+			return true;
+		});
+	}
+
+	@Benchmark
+	public void readPrimitiveLines(Blackhole blackhole) throws IOException {
+		bucket.readLines(new PrimitiveLine(columns), bitRowIds, (int rowId, Line line) -> {
+			blackhole.consume(line);
+			return true;
+		});
+	}
+
+	@Benchmark
+	public void readBatches(Blackhole blackhole) throws IOException {
+		bucket.readBatches(columns, bitRowIds, (Batch batch) -> {
+			blackhole.consume(batch.getSize());
+			return true;
+		});
+	}
+
+	/**
+	 * A line consuming values without converting them, so that only the bucket is measured.
+	 */
+	private static class BlackholeLine implements Line {
+
+		private final int[] columns;
+		private final Blackhole blackhole;
+
+		BlackholeLine(int[] columns, Blackhole blackhole) {
+			this.columns = columns;
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void addLong(int colId, long value) {
+			blackhole.consume(value);
+		}
+
+		@Override
+		public void addDouble(int colId, double value) {
+			blackhole.consume(value);
+		}
+
+		@Override
+		public void addString(int colId, Str value) {
+			blackhole.consume(value);
+		}
+
+		@Override
+		public boolean acceptsViews() {
+			return true;
+		}
+
+		@Override
+		public int[] getColumns() {
+			return columns;
+		}
+
+		@Override
+		public Object[] getValues() {
+			return null;
+		}
+
+		@Override
+		public int getSize() {
+			return columns.length;
+		}
+
+		@Override
+		public void reset() {
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.kstore.Bucket;
+import org.kstore.ColumnType;
+import org.kstore.ColumnVector;
+import org.kstore.impl.DefaultKStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to add rows to a new bucket and commit them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WriteBenchmark {
+
+	@Param({"MIXED", "BIGINT", "DOUBLE", "STRING"})
+	private String columnTypes;
+
+	@Param({"8"})
+	private int nbColumns;
+
+	@Param({"1024", "8192"})
+	private int pageSize;
+
+	@Param({"100000"})
+	private int nbRows;
+
+	@Param({"true", "false"})
+	private boolean oneFilePerColumn;
+
+	/** Codec of the pages, DEFAULT for the default codec of each column format. */
+	@Param({"DEFAULT", "NONE", "SNAPPY", "LZ4", "ZSTD"})
+	private String pageCodec;
+
+	private ColumnType[] types;
+	private Object[][] rows;
+	/** The same rows, as vectors. */
+	private int[] keyIds;
+	private ColumnVector[] vectors;
+	private Path directory;
+	private DefaultKStore store;
+
+	@Setup(Level.Trial)
+	public void createRows() {
+		types = BenchmarkStore.getTypes(columnTypes, nbColumns);
+		Random random = new Random(0);
+		rows = new Object[nbRows][];
+		for (int i = 0; i < nbRows; i++) {
+			rows[i] = BenchmarkStore.row(types, random);
+		}
+		keyIds = new int[nbRows];
+		vectors = new ColumnVector[types.length];
+		for (int n = 0; n < types.length; n++) {
+			vectors[n] = new ColumnVector(types[n], nbRows);
+			ByteArrayOutputStream strs = new ByteArrayOutputStream();
+			for (int i = 0; i < nbRows; i++) {
+				keyIds[i] = i;
+				if (ColumnVector.isLong(types[n])) {
+					vectors[n].getLongs()[i] = ((Number) rows[i][n]).longValue();
+				} else if (ColumnVector.isDouble(types[n])) {
+					vectors[n].getDoubles()[i] = ((Number) rows[i][n]).doubleValue();
+				} else {
+					byte[] str = rows[i][n].toString().getBytes(StandardCharsets.UTF_8);
+					vectors[n].getOffsets()[i] = strs.size();
+					vectors[n].getLengths()[i] = str.length;
+					strs.write(str, 0, str.length);
+				}
+			}
+			vectors[n].setBytes(strs.toByteArray());
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void createStore() throws IOException {
+		directory = BenchmarkStore.createDirectory();
+		store = BenchmarkStore.create(directory, types, pageSize, oneFilePerColumn);
+		BenchmarkStore.setPageCodec(store, pageCodec);
+	}
+
+	@TearDown(Level.Invocation)
+	public void deleteStore() throws IOException {
+		BenchmarkStore.deleteDirectory(directory);
+	}
+
+	@Benchmark
+	public Bucket add() throws IOException {
+		Bucket bucket = store.newBucket();
+		for (int i = 0; i < nbRows; i++) {
+			bucket.add(i, rows[i]);
+		}
+		bucket.commit();
+		return bucket;
+	}
+
+	@Benchmark
+	public Bucket addBatch() throws IOException {
+		Bucket bucket = store.newBucket();
+		bucket.addBatch(keyIds, vectors);
+		bucket.commit();
+		return bucket;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * A batch of rows read from a bucket page, one vector per projected column.
+ * <p>
+ * The batch and its vectors are reused from one page to the next: consumers must copy what they want to keep.
+ */
+public class Batch {
+
+	/** Columns that we want to read. */
+	private final int[] columns;
+	/** One vector per projected column. */
+	private final ColumnVector[] vectors;
+	/** Row ids of the batch. */
+	private int[] rowIds;
+	/** Number of rows in the batch. */
+	private int size;
+	/** Selected positions, used when filtering rows. */
+	private int[] selected;
+
+	public Batch(KStore store, int[] columns, int capacity) {
+		this.columns = columns;
+		this.vectors = new ColumnVector[columns.length];
+		for (int n = 0; n < columns.length; n++) {
+			vectors[n] = new ColumnVector(store.getColumn(columns[n]).getColumnType(), capacity);
+		}
+		this.rowIds = new int[capacity];
+		this.selected = new int[capacity];
+	}
+
+	public int[] getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Gets the vector of the given projection position.
+	 * @param i
+	 * @return
+	 */
+	public ColumnVector getVector(int i) {
+		return vectors[i];
+	}
+
+	public int[] getRowIds() {
+		return rowIds;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Prepares the batch to receive the given number of rows.
+	 * @param nb
+	 */
+	void reset(int nb) {
+		if (rowIds.length < nb) {
+			rowIds = new int[nb];
+			selected = new int[nb];
+		}
+		for (ColumnVector vector : vectors) {
+			vector.ensureCapacity(nb);
+			vector.setSize(nb);
+		}
+		size = nb;
+	}
+
+	/**
+	 * Removes the rows whose id is not in the given bitmap.
+	 * @param bitRowIds
+	 */
+	void retain(RoaringBitmap bitRowIds) {
+		int nb = 0;
+		for (int n = 0; n < size; n++) {
+			if (bitRowIds.contains(rowIds[n])) {
+				selected[nb++] = n;
+			}
+		}
+		select(nb);
+	}
+
+	/**
+	 * Removes deleted rows.
+	 * @param deleted the numbers of the deleted rows
+	 * @param firstRow the number of the first row of the batch
+	 */
+	void remove(RoaringBitmap deleted, int firstRow) {
+		int nb = 0;
+		for (int n = 0; n < size; n++) {
+			if (!deleted.contains(firstRow + n)) {
+				selected[nb++] = n;
+			}
+		}
+		select(nb);
+	}
+
+	/**
+	 * Keeps the rows of the first nb selected positions.
+	 * @param nb
+	 */
+	private void select(int nb) {
+		if (nb == size) {
+			return;
+		}
+		for (int n = 0; n < nb; n++) {
+			rowIds[n] = rowIds[selected[n]];
+		}
+		for (ColumnVector vector : vectors) {
+			vector.retain(selected, nb);
+		}
+		size = nb;
+	}
+}
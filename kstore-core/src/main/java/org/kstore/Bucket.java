@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -28,6 +29,7 @@ import org.kstore.utils.BitmapLong;
 import org.kstore.utils.ByteKey;
 import org.kstore.utils.Convert;
 import org.kstore.utils.IO;
+import org.kstore.utils.PageCache;
 import org.roaringbitmap.RoaringBitmap;
 
 public abstract class Bucket implements Comparable<ByteKey> {
@@ -71,6 +73,11 @@ public abstract class Bucket implements Comparable<ByteKey> {
 		boolean readNext(int rowId, Line line) throws IOException;
 	}
 
+	public static interface BatchConsumer {
+
+		boolean readBatch(Batch batch) throws IOException;
+	}
+
 	public Bucket(KStore store) {
 		this.store = store;
 		minRow = new ByteKey("".getBytes());
@@ -218,6 +225,69 @@ public abstract class Bucket implements Comparable<ByteKey> {
 		return this;
 	}
 
+	/**
+	 * Adds rows given as one vector per column of the store, holding at least keyIds.length values. Integer vectors
+	 * hold Long.MIN_VALUE for nulls, as read by {@link #readBatches(int[], RoaringBitmap, BatchConsumer)}, and
+	 * strings are read from the offsets and lengths of their vector.
+	 *
+	 * @param keyIds the id of each row
+	 * @param columns
+	 * @return
+	 * @throws IOException
+	 */
+	public Bucket addBatch(int[] keyIds, ColumnVector... columns) throws IOException {
+		checkBatch(columns);
+		// Rows are boxed for buckets without a columnar write path
+		Object[] values = new Object[columns.length];
+		for (int i = 0; i < keyIds.length; i++) {
+			for (int n = 0; n < columns.length; n++) {
+				ColumnVector vector = columns[n];
+				switch (vector.getColumnType()) {
+					case TINYINT:
+						values[n] = Convert.longToByte(vector.getLong(i));
+						break;
+					case SMALLINT:
+						values[n] = Convert.longToShort(vector.getLong(i));
+						break;
+					case INT:
+						values[n] = Convert.longToInt(vector.getLong(i));
+						break;
+					case BIGINT:
+						values[n] = vector.getLong(i);
+						break;
+					case FLOAT:
+						values[n] = (float) vector.getDouble(i);
+						break;
+					case DOUBLE:
+						values[n] = vector.getDouble(i);
+						break;
+					default:
+						values[n] = vector.getStr(i).toString();
+						break;
+				}
+			}
+			add(keyIds[i], values);
+		}
+		return this;
+	}
+
+	/**
+	 * Checks the vectors given to {@link #addBatch(int[], ColumnVector...)} match the columns of the store.
+	 *
+	 * @param columns
+	 */
+	protected void checkBatch(ColumnVector[] columns) {
+		if (columns.length != store.getNumberOfColumns()) {
+			throw new IllegalArgumentException("Expected " + store.getNumberOfColumns() + " columns, got " + columns.length);
+		}
+		for (int n = 0; n < columns.length; n++) {
+			if (columns[n].getColumnType() != store.getColumn(n).getColumnType()) {
+				throw new IllegalArgumentException("Vector of type " + columns[n].getColumnType() + " given for column " + n
+						+ " of type " + store.getColumn(n).getColumnType());
+			}
+		}
+	}
+
 	public void deleteRowNum(long numLine) {
 		if (deleteRowNums == null) {
 			deleteRowNums = new BitmapLong();
@@ -262,6 +332,8 @@ public abstract class Bucket implements Comparable<ByteKey> {
 		}
 		needMerge = false;
 		compact();
+		// Row files may have been rewritten
+		PageCache.invalidate(getAbsolutePath() + "/");
 	}
 
 	public void rollback() throws IOException {
@@ -344,7 +416,55 @@ public abstract class Bucket implements Comparable<ByteKey> {
 		readLines(line, range.getBitmap(), liner);
 	}
 
-	abstract public void readLines(Line line, RoaringBitmap bitRowIds, LineReader liner) throws IOException;
+	public void readLines(Line line, RoaringBitmap bitRowIds, LineReader liner) throws IOException {
+		readLines(line, bitRowIds, null, liner);
+	}
+
+	public void readLines(Line line, Range range, ColumnFilter filter, LineReader liner) throws IOException {
+		readLines(line, range.getBitmap(), filter, liner);
+	}
+
+	/**
+	 * Reads the rows matching both the given row ids and filter.
+	 *
+	 * @param line
+	 * @param bitRowIds the row ids to read, or null to read all rows
+	 * @param filter a predicate on a column value, or null to read all rows
+	 * @param liner
+	 * @throws IOException
+	 */
+	abstract public void readLines(Line line, RoaringBitmap bitRowIds, ColumnFilter filter, LineReader liner) throws IOException;
+
+	/**
+	 * Reads the rows matching both the given row ids and filter on several threads.
+	 * <p>
+	 * Each task fills its own line, taken from lines. When ordered, rows are given to liner one at a time, in the
+	 * order of readLines. Otherwise liner is called concurrently by the tasks and must be thread-safe.
+	 *
+	 * @param lines gives a new line on each call
+	 * @param bitRowIds the row ids to read, or null to read all rows
+	 * @param filter a predicate on a column value, or null to read all rows
+	 * @param liner
+	 * @param ordered
+	 * @throws IOException
+	 */
+	public void readLinesParallel(Supplier<Line> lines, RoaringBitmap bitRowIds, ColumnFilter filter, LineReader liner, boolean ordered) throws IOException {
+		readLines(lines.get(), bitRowIds, filter, liner);
+	}
+
+	public void readBatches(int[] columns, Range range, BatchConsumer consumer) throws IOException {
+		readBatches(columns, range.getBitmap(), consumer);
+	}
+
+	/**
+	 * Reads the given columns one page at a time, as primitive vectors.
+	 *
+	 * @param columns
+	 * @param bitRowIds the row ids to read, or null to read all rows
+	 * @param consumer
+	 * @throws IOException
+	 */
+	abstract public void readBatches(int[] columns, RoaringBitmap bitRowIds, BatchConsumer consumer) throws IOException;
 
 	void moveTo(String newPath) throws IOException {
 		LOGGER.info("Moving " + path + " to " + newPath);
@@ -419,6 +539,7 @@ public abstract class Bucket implements Comparable<ByteKey> {
 	public void drop() throws IOException {
 		String absolutePath = getAbsolutePath();
 		LOGGER.info("Deleting " + absolutePath);
+		PageCache.invalidate(absolutePath + "/");
 		for (int n = 0; n < store.getNumberOfColumns(); n++) {
 			store.getDevice().delete(getColPath(COL + n));
 		}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.kstore.Bucket.LineReader;
+import org.kstore.utils.ArrayByte;
+import org.kstore.utils.Str;
+
+/**
+ * A line recording the rows read by a scan task, to be given later to another line.
+ * <p>
+ * Each row holds one value per projected column. Values added since the last row are dropped by reset.
+ */
+class BufferedLines implements Line {
+
+	private static final byte LONG = 0;
+	private static final byte DOUBLE = 1;
+	private static final byte STRING = 2;
+
+	/** Columns that we want to read. */
+	private final int[] columns;
+	/** Does the projection read the first columns of the store. */
+	private final boolean firstColumns;
+	private int[] rowIds = new int[1024];
+	/** Number of complete rows. */
+	private int nbRows;
+	/** Column, type and value of each recorded value, strings being stored as (offset << 32 | length). */
+	private int[] colIds;
+	private byte[] types;
+	private long[] values;
+	/** Number of values of the pending row. */
+	private int nbPending;
+	private final ArrayByte strs = new ArrayByte().init(4096);
+	/** View of the replayed strings, for lines accepting views. */
+	private final Str view = new Str();
+
+	BufferedLines(int[] columns) {
+		this.columns = columns;
+		firstColumns = Arrays.stream(columns).allMatch(colId -> colId < columns.length);
+		int capacity = rowIds.length * Math.max(1, columns.length);
+		colIds = new int[capacity];
+		types = new byte[capacity];
+		values = new long[capacity];
+	}
+
+	@Override
+	public void addLong(int colId, long value) {
+		add(colId, LONG, value);
+	}
+
+	@Override
+	public void addDouble(int colId, double value) {
+		add(colId, DOUBLE, Double.doubleToRawLongBits(value));
+	}
+
+	@Override
+	public void addString(int colId, Str value) {
+		long offset = strs.getSize();
+		strs.add(value);
+		add(colId, STRING, (offset << 32) | value.length());
+	}
+
+	private void add(int colId, byte type, long value) {
+		int i = nbRows * columns.length + nbPending;
+		if (i >= values.length) {
+			colIds = Arrays.copyOf(colIds, values.length * 2);
+			types = Arrays.copyOf(types, values.length * 2);
+			values = Arrays.copyOf(values, values.length * 2);
+		}
+		colIds[i] = colId;
+		types[i] = type;
+		values[i] = value;
+		nbPending++;
+	}
+
+	/**
+	 * Ends the pending row.
+	 *
+	 * @param rowId
+	 */
+	void endRow(int rowId) {
+		if (nbRows >= rowIds.length) {
+			rowIds = Arrays.copyOf(rowIds, rowIds.length * 2);
+		}
+		rowIds[nbRows++] = rowId;
+		nbPending = 0;
+	}
+
+	/**
+	 * Gives the recorded rows to the reader.
+	 *
+	 * @param line
+	 * @param liner
+	 * @return false if the reader asked to stop
+	 * @throws IOException
+	 */
+	boolean replay(Line line, LineReader liner) throws IOException {
+		int i = 0;
+		for (int row = 0; row < nbRows; row++) {
+			for (int n = 0; n < columns.length; n++, i++) {
+				switch (types[i]) {
+					case LONG:
+						line.addLong(colIds[i], values[i]);
+						break;
+					case DOUBLE:
+						line.addDouble(colIds[i], Double.longBitsToDouble(values[i]));
+						break;
+					default:
+						Str str = line.acceptsViews() ? view : new Str();
+						line.addString(colIds[i], str.set(strs.getBytes(), (int) (values[i] >>> 32), (int) values[i]));
+						break;
+				}
+			}
+			if (!liner.readNext(rowIds[row], line)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean acceptsViews() {
+		// Strings are copied
+		return true;
+	}
+
+	@Override
+	public int[] getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Gets the values of the pending row, or of the last recorded row when no value was added since, indexed as by
+	 * {@link org.kstore.impl.DefaultLine#getValues()}.
+	 */
+	@Override
+	public Object[] getValues() {
+		Object[] row = new Object[columns.length];
+		int nb = (nbPending > 0 || nbRows == 0) ? nbPending : columns.length;
+		int first = (nbPending > 0 || nbRows == 0) ? nbRows * columns.length : (nbRows - 1) * columns.length;
+		for (int i = first; i < first + nb; i++) {
+			int pos = position(colIds[i]);
+			switch (types[i]) {
+				case LONG:
+					row[pos] = values[i];
+					break;
+				case DOUBLE:
+					row[pos] = Double.longBitsToDouble(values[i]);
+					break;
+				default:
+					row[pos] = new Str().set(strs.getBytes(), (int) (values[i] >>> 32), (int) values[i]).toString();
+					break;
+			}
+		}
+		return row;
+	}
+
+	private int position(int colId) {
+		// As in DefaultLine, values of the first columns of the store stay at their column id
+		if (firstColumns) {
+			return colId;
+		}
+		for (int n = 0; n < columns.length; n++) {
+			if (columns[n] == colId) {
+				return n;
+			}
+		}
+		throw new IllegalArgumentException("Column " + colId + " is not read");
+	}
+
+	@Override
+	public int getSize() {
+		return columns.length;
+	}
+
+	@Override
+	public void reset() {
+		nbPending = 0;
+	}
+}
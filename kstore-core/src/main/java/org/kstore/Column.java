@@ -37,4 +37,20 @@ public interface Column {
 	 * @return 
 	 */
 	boolean isCalculated ();
+
+	/**
+	 * Gets the codec of the pages of the column.
+	 * @return the codec, null to use the one of the configuration
+	 */
+	default PageCodec getPageCodec () {
+		return null;
+	}
+
+	/**
+	 * Checks if the pages of a string, date or timestamp column are dictionary encoded, for columns of few distinct values.
+	 * @return 
+	 */
+	default boolean isDictionaryEncoded () {
+		return false;
+	}
 }
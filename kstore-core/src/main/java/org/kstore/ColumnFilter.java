@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.nio.charset.StandardCharsets;
+import org.kstore.columns.ZoneMap;
+import org.kstore.utils.Str;
+
+/**
+ * A predicate on the value of one column, used to skip rows when reading a bucket. Pages whose statistics show they
+ * cannot hold a matching value are not read at all.
+ * <p>
+ * Bounds are inclusive. Null values never match.
+ */
+public class ColumnFilter {
+
+	/** The filtered column. */
+	private final int colId;
+	/** Does this filter apply on floating point values. */
+	private final boolean onDouble;
+	private final long minLong;
+	private final long maxLong;
+	private final double minDouble;
+	private final double maxDouble;
+	/** The matched value of a string column, null for other types. */
+	private final Str str;
+
+	private ColumnFilter(int colId, boolean onDouble, long minLong, long maxLong, double minDouble, double maxDouble) {
+		this.colId = colId;
+		this.onDouble = onDouble;
+		this.minLong = minLong;
+		this.maxLong = maxLong;
+		this.minDouble = minDouble;
+		this.maxDouble = maxDouble;
+		this.str = null;
+	}
+
+	private ColumnFilter(int colId, Str str) {
+		this.colId = colId;
+		this.onDouble = false;
+		this.minLong = 0;
+		this.maxLong = 0;
+		this.minDouble = 0;
+		this.maxDouble = 0;
+		this.str = str;
+	}
+
+	/**
+	 * Matches the values of an integer column between min and max.
+	 * @param colId
+	 * @param min
+	 * @param max
+	 * @return
+	 */
+	public static ColumnFilter range(int colId, long min, long max) {
+		return new ColumnFilter(colId, false, min, max, 0, 0);
+	}
+
+	/**
+	 * Matches the values of an integer column equal to value.
+	 * @param colId
+	 * @param value
+	 * @return
+	 */
+	public static ColumnFilter equal(int colId, long value) {
+		return range(colId, value, value);
+	}
+
+	/**
+	 * Matches the values of a floating point column between min and max.
+	 * @param colId
+	 * @param min
+	 * @param max
+	 * @return
+	 */
+	public static ColumnFilter range(int colId, double min, double max) {
+		return new ColumnFilter(colId, true, 0, 0, min, max);
+	}
+
+	/**
+	 * Matches the values of a floating point column equal to value.
+	 * @param colId
+	 * @param value
+	 * @return
+	 */
+	public static ColumnFilter equal(int colId, double value) {
+		return range(colId, value, value);
+	}
+
+	/**
+	 * Matches the values of a string column equal to value. On dictionary encoded pages, the value is looked up
+	 * once per page and rows are matched by comparing their codes.
+	 * @param colId
+	 * @param value
+	 * @return
+	 */
+	public static ColumnFilter equal(int colId, String value) {
+		return new ColumnFilter(colId, new Str(value.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	public int getColumn() {
+		return colId;
+	}
+
+	/**
+	 * Checks the filter can be applied on the given store.
+	 * @param store
+	 */
+	void check(KStore store) {
+		if (colId < 0 || colId >= store.getNumberOfColumns()) {
+			throw new IllegalArgumentException("Unknown column " + colId);
+		}
+		ColumnType type = store.getColumn(colId).getColumnType();
+		boolean valid;
+		if (str != null) {
+			valid = !ColumnVector.isDouble(type) && !ColumnVector.isLong(type);
+		} else {
+			valid = onDouble ? ColumnVector.isDouble(type) : ColumnVector.isLong(type);
+		}
+		if (!valid) {
+			throw new IllegalArgumentException("Filter cannot be applied on column " + colId + " of type " + type);
+		}
+	}
+
+	/**
+	 * Checks if the given page may hold matching values.
+	 * @param zoneMap
+	 * @param page
+	 * @return
+	 */
+	boolean mayMatch(ZoneMap zoneMap, int page) {
+		if (str != null || page >= zoneMap.getSize()) {
+			// No statistics
+			return true;
+		}
+		if (onDouble) {
+			return Double.longBitsToDouble(zoneMap.getMin(page)) <= maxDouble && Double.longBitsToDouble(zoneMap.getMax(page)) >= minDouble;
+		}
+		return zoneMap.getMin(page) <= maxLong && zoneMap.getMax(page) >= minLong;
+	}
+
+	boolean matches(long value) {
+		return value != Long.MIN_VALUE && value >= minLong && value <= maxLong;
+	}
+
+	boolean matches(double value) {
+		return value >= minDouble && value <= maxDouble;
+	}
+
+	boolean matches(Str value) {
+		return str.equals(value);
+	}
+
+	/**
+	 * Gets the bytes of the matched string, null if this filter does not apply on a string column.
+	 * @return
+	 */
+	byte[] getBytes() {
+		return (str == null) ? null : str.getBuffer();
+	}
+}
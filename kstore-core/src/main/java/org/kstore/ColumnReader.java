@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import org.kstore.columns.ColumnInput;
+import org.kstore.columns.ColumnInputDict;
+import org.kstore.utils.Str;
+
+/**
+ * Reads the values of one column for readLines. Readers are resolved once per scan from the type of their column and
+ * the line, then decode each page column-at-a-time into a vector, so that decode loops do not depend on the type of
+ * each cell.
+ */
+abstract class ColumnReader {
+
+	/** Offset of the matched string when rows of a page are not dictionary encoded. */
+	private static final int NO_CODE = -2;
+
+	/** The column. */
+	protected final int colId;
+	/** Position of the column in the projection. */
+	protected final int position;
+	protected final int size;
+	protected final ColumnVector vector;
+	/** The line receiving values by position, null to add them by column id. */
+	protected final PrimitiveLine primitive;
+
+	private ColumnReader(Column column, int colId, int position, Line line, int capacity) {
+		this.colId = colId;
+		this.position = position;
+		this.size = column.getSize();
+		this.vector = new ColumnVector(column.getColumnType(), capacity);
+		this.primitive = (line instanceof PrimitiveLine) ? (PrimitiveLine) line : null;
+	}
+
+	/**
+	 * Resolves the readers of the columns of a scan.
+	 *
+	 * @param store
+	 * @param readColumns the projected columns, followed by the filtered one
+	 * @param line
+	 * @param capacity the number of rows of a page
+	 * @return
+	 */
+	static ColumnReader[] plan(KStore store, int[] readColumns, Line line, int capacity) {
+		ColumnReader[] readers = new ColumnReader[readColumns.length];
+		for (int n = 0; n < readColumns.length; n++) {
+			Column column = store.getColumn(readColumns[n]);
+			ColumnType type = column.getColumnType();
+			if (ColumnVector.isLong(type)) {
+				readers[n] = new LongReader(column, readColumns[n], n, line, capacity);
+			} else if (ColumnVector.isDouble(type)) {
+				readers[n] = new DoubleReader(column, readColumns[n], n, line, capacity);
+			} else {
+				readers[n] = new StrReader(column, readColumns[n], n, line, capacity);
+			}
+		}
+		return readers;
+	}
+
+	/**
+	 * Decodes the values of the current page.
+	 *
+	 * @param is
+	 * @param nbRows
+	 * @throws IOException
+	 */
+	final void read(ColumnInput is, int nbRows) throws IOException {
+		vector.ensureCapacity(nbRows);
+		decode(is, nbRows);
+	}
+
+	abstract void decode(ColumnInput is, int nbRows) throws IOException;
+
+	/**
+	 * Reads the values of a page of a memtable.
+	 *
+	 * @param source
+	 * @param nbRows
+	 */
+	void read(ColumnVector source, int nbRows) {
+		vector.copy(source, nbRows);
+	}
+
+	/**
+	 * Prepares the filter for the current page, when this reader is the one of the filtered column.
+	 *
+	 * @param filter
+	 * @param is
+	 */
+	void prepare(ColumnFilter filter, ColumnInput is) {
+	}
+
+	abstract boolean matches(ColumnFilter filter, int row);
+
+	/**
+	 * Gives the value of a row to the line.
+	 *
+	 * @param line
+	 * @param row
+	 */
+	abstract void addTo(Line line, int row);
+
+	private static final class LongReader extends ColumnReader {
+
+		private LongReader(Column column, int colId, int position, Line line, int capacity) {
+			super(column, colId, position, line, capacity);
+		}
+
+		@Override
+		void decode(ColumnInput is, int nbRows) throws IOException {
+			is.readLongs(vector.getLongs(), nbRows, size);
+		}
+
+		@Override
+		boolean matches(ColumnFilter filter, int row) {
+			return filter.matches(vector.getLong(row));
+		}
+
+		@Override
+		void addTo(Line line, int row) {
+			if (primitive != null) {
+				primitive.setLong(position, vector.getLong(row));
+			} else {
+				line.addLong(colId, vector.getLong(row));
+			}
+		}
+	}
+
+	private static final class DoubleReader extends ColumnReader {
+
+		private DoubleReader(Column column, int colId, int position, Line line, int capacity) {
+			super(column, colId, position, line, capacity);
+		}
+
+		@Override
+		void decode(ColumnInput is, int nbRows) throws IOException {
+			is.readDoubles(vector.getDoubles(), nbRows, size);
+		}
+
+		@Override
+		boolean matches(ColumnFilter filter, int row) {
+			return filter.matches(vector.getDouble(row));
+		}
+
+		@Override
+		void addTo(Line line, int row) {
+			if (primitive != null) {
+				primitive.setDouble(position, vector.getDouble(row));
+			} else {
+				line.addDouble(colId, vector.getDouble(row));
+			}
+		}
+	}
+
+	private static final class StrReader extends ColumnReader {
+
+		/** View of the strings of the page. */
+		private final Str view = new Str();
+		/** Are strings copied before being given to the line. */
+		private final boolean copy;
+		/** Offset of the matched string in a dictionary page, -1 if the page does not hold it. */
+		private int matchOffset = NO_CODE;
+
+		private StrReader(Column column, int colId, int position, Line line, int capacity) {
+			super(column, colId, position, line, capacity);
+			copy = !line.acceptsViews();
+		}
+
+		@Override
+		void decode(ColumnInput is, int nbRows) throws IOException {
+			vector.setBytes(is.readStrs(vector.getOffsets(), vector.getLengths(), nbRows));
+		}
+
+		@Override
+		void read(ColumnVector source, int nbRows) {
+			super.read(source, nbRows);
+			// Memtable pages have no dictionary
+			matchOffset = NO_CODE;
+		}
+
+		@Override
+		void prepare(ColumnFilter filter, ColumnInput is) {
+			if (filter.getBytes() == null || !(is instanceof ColumnInputDict) || !((ColumnInputDict) is).isDictionaryPage()) {
+				matchOffset = NO_CODE;
+				return;
+			}
+			// The value is looked up once, rows of the page pointing to the same entry
+			int code = ((ColumnInputDict) is).lookup(filter.getBytes());
+			matchOffset = (code < 0) ? -1 : ((ColumnInputDict) is).getEntry(code).getStart();
+		}
+
+		@Override
+		boolean matches(ColumnFilter filter, int row) {
+			if (matchOffset != NO_CODE) {
+				return vector.getOffsets()[row] == matchOffset;
+			}
+			return filter.matches(view.set(vector.getBytes(), vector.getOffsets()[row], vector.getLengths()[row]));
+		}
+
+		@Override
+		void addTo(Line line, int row) {
+			view.set(vector.getBytes(), vector.getOffsets()[row], vector.getLengths()[row]);
+			Str value = copy ? view.clone() : view;
+			if (primitive != null) {
+				primitive.setStr(position, value);
+			} else {
+				line.addString(colId, value);
+			}
+		}
+	}
+}
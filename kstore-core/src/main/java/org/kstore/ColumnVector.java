@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import org.kstore.utils.Str;
+
+/**
+ * The values of one column for a set of rows, stored as primitive arrays.
+ * <p>
+ * Integer types (TINYINT, SMALLINT, INT, BIGINT) are held in {@link #getLongs()}, FLOAT and DOUBLE in
+ * {@link #getDoubles()}. Strings (STRING, TIMESTAMP, DATE) are held as UTF-8 bytes in {@link #getBytes()}, each value
+ * being described by its offset and length. When filled by a read, the bytes are the ones of the decoded page and are
+ * only valid until the next page is read.
+ */
+public class ColumnVector {
+
+	/** The column type. */
+	private final ColumnType type;
+	/** Values of integer columns. */
+	private long[] longs;
+	/** Values of floating point columns. */
+	private double[] doubles;
+	/** Bytes of string columns. */
+	private byte[] bytes;
+	/** Offset of each string in bytes. */
+	private int[] offsets;
+	/** Length of each string in bytes. */
+	private int[] lengths;
+	/** Number of values. */
+	private int size;
+
+	public ColumnVector(ColumnType type, int capacity) {
+		this.type = type;
+		ensureCapacity(capacity);
+	}
+
+	/**
+	 * Checks if the given column type is stored as a long in vectors.
+	 * @param type
+	 * @return
+	 */
+	public static boolean isLong(ColumnType type) {
+		return type == ColumnType.TINYINT || type == ColumnType.SMALLINT || type == ColumnType.INT || type == ColumnType.BIGINT;
+	}
+
+	/**
+	 * Checks if the given column type is stored as a double in vectors.
+	 * @param type
+	 * @return
+	 */
+	public static boolean isDouble(ColumnType type) {
+		return type == ColumnType.FLOAT || type == ColumnType.DOUBLE;
+	}
+
+	public ColumnType getColumnType() {
+		return type;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public long[] getLongs() {
+		return longs;
+	}
+
+	public double[] getDoubles() {
+		return doubles;
+	}
+
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	public void setBytes(byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	public int[] getOffsets() {
+		return offsets;
+	}
+
+	public int[] getLengths() {
+		return lengths;
+	}
+
+	public long getLong(int i) {
+		return longs[i];
+	}
+
+	public double getDouble(int i) {
+		return doubles[i];
+	}
+
+	/**
+	 * Gets a string value, as a view on the vector bytes.
+	 * @param i
+	 * @return
+	 */
+	public Str getStr(int i) {
+		return new Str(bytes, offsets[i], lengths[i]);
+	}
+
+	/**
+	 * Makes sure the vector can hold the given number of values.
+	 * @param capacity
+	 */
+	public final void ensureCapacity(int capacity) {
+		if (isLong(type)) {
+			if (longs == null || longs.length < capacity) {
+				longs = new long[capacity];
+			}
+		} else if (isDouble(type)) {
+			if (doubles == null || doubles.length < capacity) {
+				doubles = new double[capacity];
+			}
+		} else if (offsets == null || offsets.length < capacity) {
+			offsets = new int[capacity];
+			lengths = new int[capacity];
+		}
+	}
+
+	/**
+	 * Copies the first values of another vector of the same type. Strings keep the bytes of the other vector.
+	 * @param source
+	 * @param nb
+	 */
+	void copy(ColumnVector source, int nb) {
+		ensureCapacity(nb);
+		if (isLong(type)) {
+			System.arraycopy(source.longs, 0, longs, 0, nb);
+		} else if (isDouble(type)) {
+			System.arraycopy(source.doubles, 0, doubles, 0, nb);
+		} else {
+			System.arraycopy(source.offsets, 0, offsets, 0, nb);
+			System.arraycopy(source.lengths, 0, lengths, 0, nb);
+			bytes = source.bytes;
+		}
+		size = nb;
+	}
+
+	/**
+	 * Keeps only the values at the given positions, in increasing order.
+	 * @param selected
+	 * @param nb
+	 */
+	void retain(int[] selected, int nb) {
+		if (isLong(type)) {
+			for (int n = 0; n < nb; n++) {
+				longs[n] = longs[selected[n]];
+			}
+		} else if (isDouble(type)) {
+			for (int n = 0; n < nb; n++) {
+				doubles[n] = doubles[selected[n]];
+			}
+		} else {
+			for (int n = 0; n < nb; n++) {
+				offsets[n] = offsets[selected[n]];
+				lengths[n] = lengths[selected[n]];
+			}
+		}
+		size = nb;
+	}
+}
@@ -53,6 +53,71 @@ public class Configuration {
 	private static final int DEFAULT_BUCKET_POOLSIZE = 128;
 	private static int bucketPoolSize = DEFAULT_BUCKET_POOLSIZE;
 	
+	/** Number of threads for parallel bucket scans. */
+	private static final String KEY_BUCKET_SCAN_PARALLELISM = "bucket.scan.parallelism";
+	private static final int DEFAULT_BUCKET_SCAN_PARALLELISM = Runtime.getRuntime().availableProcessors();
+	private static int scanParallelism = DEFAULT_BUCKET_SCAN_PARALLELISM;
+
+	/** Number of threads encoding the pages of the columns of written buckets, 1 to encode them on the writer thread. */
+	private static final String KEY_BUCKET_WRITE_PARALLELISM = "bucket.write.parallelism";
+	private static final int DEFAULT_BUCKET_WRITE_PARALLELISM = Runtime.getRuntime().availableProcessors();
+	private static int writeParallelism = DEFAULT_BUCKET_WRITE_PARALLELISM;
+
+	/** Number of committed rows kept in the memtable of a bucket before being written in a row file, 0 to write rows in row files. */
+	private static final String KEY_BUCKET_MEMTABLE_ROWS = "bucket.memtable.rows";
+	private static final int DEFAULT_BUCKET_MEMTABLE_ROWS = 0;
+	private static int memTableRows = DEFAULT_BUCKET_MEMTABLE_ROWS;
+
+	/** Minimum number of small row files following each other that a bucket merges in the background, 0 to disable merges. */
+	private static final String KEY_BUCKET_MERGE_FILES = "bucket.merge.files";
+	private static final int DEFAULT_BUCKET_MERGE_FILES = 8;
+	private static int mergeFiles = DEFAULT_BUCKET_MERGE_FILES;
+
+	/** Number of rows below which row files are merged, and up to which merged row files are filled. */
+	private static final String KEY_BUCKET_MERGE_ROWS = "bucket.merge.rows";
+	private static final long DEFAULT_BUCKET_MERGE_ROWS = 1 << 20;
+	private static long mergeRows = DEFAULT_BUCKET_MERGE_ROWS;
+
+	/** Ratio of deleted rows above which a row file is compacted in the background, above 1 to disable compactions. */
+	private static final String KEY_BUCKET_COMPACT_RATIO = "bucket.compact.ratio";
+	private static final double DEFAULT_BUCKET_COMPACT_RATIO = 0.2;
+	private static double compactRatio = DEFAULT_BUCKET_COMPACT_RATIO;
+
+	/** Number of pages fetched ahead for each column read from a remote device, 0 to disable. */
+	private static final String KEY_BUCKET_PREFETCH_PAGES = "bucket.prefetch.pages";
+	private static final int DEFAULT_BUCKET_PREFETCH_PAGES = 4;
+	private static int prefetchPages = DEFAULT_BUCKET_PREFETCH_PAGES;
+
+	/** Maximum number of bytes of the buffers holding the pages fetched ahead for all columns read from remote devices. */
+	private static final String KEY_BUCKET_PREFETCH_BYTES = "bucket.prefetch.bytes";
+	private static final int DEFAULT_BUCKET_PREFETCH_BYTES = 16 * 1024 * 1024;
+	private static int prefetchBytes = DEFAULT_BUCKET_PREFETCH_BYTES;
+
+	/** Are local column files read from memory mappings, instead of streams. */
+	private static final String KEY_BUCKET_MMAP = "bucket.mmap";
+	private static final boolean DEFAULT_BUCKET_MMAP = false;
+	private static boolean mmap = DEFAULT_BUCKET_MMAP;
+
+	/** Maximum number of bytes of the decoded page cache, 0 to disable it. */
+	private static final String KEY_BUCKET_CACHE_BYTES = "bucket.cache.bytes";
+	private static final long DEFAULT_BUCKET_CACHE_BYTES = 0;
+	private static long cacheBytes = DEFAULT_BUCKET_CACHE_BYTES;
+
+	/** Maximum number of bytes of the free arrays kept by the page buffer pool. */
+	private static final String KEY_BUCKET_BUFFER_POOL_BYTES = "bucket.buffer.pool.bytes";
+	private static final long DEFAULT_BUCKET_BUFFER_POOL_BYTES = 256 * 1024 * 1024;
+	private static long bufferPoolBytes = DEFAULT_BUCKET_BUFFER_POOL_BYTES;
+
+	/** Codec of the pages of all columns, empty to use the default codec of each column format. */
+	private static final String KEY_BUCKET_PAGE_CODEC = "bucket.page.codec";
+	private static final String DEFAULT_BUCKET_PAGE_CODEC = "";
+	private static PageCodec pageCodec = null;
+
+	/** Compression level of ZSTD pages. */
+	private static final String KEY_BUCKET_ZSTD_LEVEL = "bucket.zstd.level";
+	private static final int DEFAULT_BUCKET_ZSTD_LEVEL = 3;
+	private static int zstdLevel = DEFAULT_BUCKET_ZSTD_LEVEL;
+
 	private static final String KEY_BUCKET_ONEFILE = "bucket.oneFilePerColumn";
 	private static final boolean DEFAULT_BUCKET_ONEFILE = true;
 	private static boolean oneFilePerColumn = DEFAULT_BUCKET_ONEFILE;
@@ -74,6 +139,20 @@ public class Configuration {
 		compressionType = Compression.valueOf(properties.getProperty(KEY_BUCKET_COMPRESSION, DEFAULT_BUCKET_COMPRESSION.name()));
 		nbPages = Integer.parseInt(properties.getProperty(KEY_BUCKET_PAGESIZE, Integer.toString(DEFAULT_BUCKET_PAGESIZE)));
 		bucketPoolSize = Integer.parseInt(properties.getProperty(KEY_BUCKET_POOLSIZE, Integer.toString(DEFAULT_BUCKET_POOLSIZE)));
+		scanParallelism = Integer.parseInt(properties.getProperty(KEY_BUCKET_SCAN_PARALLELISM, Integer.toString(DEFAULT_BUCKET_SCAN_PARALLELISM)));
+		writeParallelism = Integer.parseInt(properties.getProperty(KEY_BUCKET_WRITE_PARALLELISM, Integer.toString(DEFAULT_BUCKET_WRITE_PARALLELISM)));
+		memTableRows = Integer.parseInt(properties.getProperty(KEY_BUCKET_MEMTABLE_ROWS, Integer.toString(DEFAULT_BUCKET_MEMTABLE_ROWS)));
+		mergeFiles = Integer.parseInt(properties.getProperty(KEY_BUCKET_MERGE_FILES, Integer.toString(DEFAULT_BUCKET_MERGE_FILES)));
+		mergeRows = Long.parseLong(properties.getProperty(KEY_BUCKET_MERGE_ROWS, Long.toString(DEFAULT_BUCKET_MERGE_ROWS)));
+		compactRatio = Double.parseDouble(properties.getProperty(KEY_BUCKET_COMPACT_RATIO, Double.toString(DEFAULT_BUCKET_COMPACT_RATIO)));
+		prefetchPages = Integer.parseInt(properties.getProperty(KEY_BUCKET_PREFETCH_PAGES, Integer.toString(DEFAULT_BUCKET_PREFETCH_PAGES)));
+		prefetchBytes = Integer.parseInt(properties.getProperty(KEY_BUCKET_PREFETCH_BYTES, Integer.toString(DEFAULT_BUCKET_PREFETCH_BYTES)));
+		mmap = Boolean.parseBoolean(properties.getProperty(KEY_BUCKET_MMAP, Boolean.toString(DEFAULT_BUCKET_MMAP)));
+		cacheBytes = Long.parseLong(properties.getProperty(KEY_BUCKET_CACHE_BYTES, Long.toString(DEFAULT_BUCKET_CACHE_BYTES)));
+		bufferPoolBytes = Long.parseLong(properties.getProperty(KEY_BUCKET_BUFFER_POOL_BYTES, Long.toString(DEFAULT_BUCKET_BUFFER_POOL_BYTES)));
+		String codec = properties.getProperty(KEY_BUCKET_PAGE_CODEC, DEFAULT_BUCKET_PAGE_CODEC);
+		pageCodec = codec.isEmpty() ? null : PageCodec.valueOf(codec);
+		zstdLevel = Integer.parseInt(properties.getProperty(KEY_BUCKET_ZSTD_LEVEL, Integer.toString(DEFAULT_BUCKET_ZSTD_LEVEL)));
 		oneFilePerColumn = Boolean.parseBoolean(properties.getProperty(KEY_BUCKET_ONEFILE, Boolean.toString(DEFAULT_BUCKET_ONEFILE)));
 	}
 	
@@ -93,6 +172,62 @@ public class Configuration {
 		return bucketPoolSize;
 	}
 	
+	public static int getScanParallelism() {
+		return scanParallelism;
+	}
+	
+	public static int getWriteParallelism() {
+		return writeParallelism;
+	}
+	
+	public static int getMemTableRows() {
+		return memTableRows;
+	}
+	
+	public static int getMergeFiles() {
+		return mergeFiles;
+	}
+	
+	public static long getMergeRows() {
+		return mergeRows;
+	}
+	
+	public static double getCompactRatio() {
+		return compactRatio;
+	}
+	
+	public static int getPrefetchPages() {
+		return prefetchPages;
+	}
+	
+	public static int getPrefetchBytes() {
+		return prefetchBytes;
+	}
+	
+	public static boolean isMmap() {
+		return mmap;
+	}
+	
+	public static long getCacheBytes() {
+		return cacheBytes;
+	}
+	
+	public static long getBufferPoolBytes() {
+		return bufferPoolBytes;
+	}
+	
+	/**
+	 * Gets the codec of the pages of all columns.
+	 * @return the codec, null to use the default codec of each column format
+	 */
+	public static PageCodec getPageCodec() {
+		return pageCodec;
+	}
+	
+	public static int getZstdLevel() {
+		return zstdLevel;
+	}
+	
 	public Properties getProperties() {
 		return properties;
 	}
@@ -17,9 +17,11 @@ package org.kstore;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import org.kstore.utils.MappedFile;
 
 /**
  * The device on which the store will physically write.
@@ -55,6 +57,21 @@ public interface Device {
 	 */
 	void delete(String path) throws IOException;
 
+	/**
+	 * Tells if the given path exists.
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	default boolean exists(String path) throws IOException {
+		try (InputStream in = getInputStream(path)) {
+			return true;
+		} catch (FileNotFoundException e) {
+			return false;
+		}
+	}
+
 	/**
 	 * Renames the given path.
 	 *
@@ -83,4 +100,25 @@ public interface Device {
 	 */
 	OutputStream getOutputStream(String path, boolean append) throws IOException;
 
+	/**
+	 * Maps the given path in memory, for devices holding local files. Readers of the path share its mapping, each one
+	 * releasing it once done.
+	 *
+	 * @param path
+	 * @return the mapping, or null if the path is to be read as a stream
+	 * @throws IOException
+	 */
+	default MappedFile map(String path) throws IOException {
+		return null;
+	}
+
+	/**
+	 * Tells if each read goes through the network, in which case pages are fetched ahead of their decoding.
+	 *
+	 * @return
+	 */
+	default boolean isRemote() {
+		return false;
+	}
+
 }
@@ -47,6 +47,24 @@ public interface KStore extends Closeable {
 	 */
 	boolean useOneFilePerColumn();
 
+	/**
+	 * Get the number of rows of a bucket page.
+	 *
+	 * @return
+	 */
+	default int getPageSize() {
+		return Configuration.getNbPages();
+	}
+
+	/**
+	 * Get the number of committed rows a bucket keeps in memory, with their log, before writing them in a row file.
+	 *
+	 * @return the number of rows, 0 to write added rows directly in row files
+	 */
+	default int getMemTableRows() {
+		return Configuration.getMemTableRows();
+	}
+
 	/**
 	 * Get the number of columns to store.
 	 *
@@ -43,6 +43,16 @@ public interface Line {
 	 */
 	void addString (int colId, Str value);
 
+	/**
+	 * Can the strings given to {@link #addString(int, Str)} be views of the page buffers. Such a view is reused for the
+	 * next row: the line has to copy or convert it if it keeps the value beyond the next row.
+	 *
+	 * @return false by default, each string being allocated
+	 */
+	default boolean acceptsViews() {
+		return false;
+	}
+
 	/**
 	 * Gets the columns position
 	 */
@@ -0,0 +1,469 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.kstore.utils.Convert;
+
+/**
+ * Rows added to a bucket and not yet written in a row file, held in memory as pages of vectors so that they can be
+ * read as soon as they are added.
+ * <p>
+ * Rows are also appended to a log on the device, written in segments. Each commit appends a mark to the current
+ * segment and closes it, so that committed rows are durable even on devices writing files once closed. When the log
+ * is replayed, the rows following the last mark of a segment are dropped. Segments are never rewritten: rows that are
+ * rolled back are only in the current segment, which is deleted. Pages are only appended to, the last one being
+ * copied when read, so that scans can read the rows while other rows are added.
+ */
+class MemTable {
+
+	/** Log record holding rows. */
+	private static final byte ROWS = 1;
+	/** Log record marking the rows before it as committed. */
+	private static final byte COMMIT = 2;
+
+	private final KStore store;
+	private final int pageSize;
+	/** Path of the log on the device. */
+	private final String logPath;
+	/** Suffix of the log, saved in the bucket index. */
+	private final String post;
+	/** Number of rows of the bucket before the first row of this table. */
+	private final long startCount;
+	private final List<Page> pages = new ArrayList<>();
+	private int size;
+	private int sizeCommit;
+	/** Number of the log segment receiving the next rows, the previous ones being closed. */
+	private int segment;
+	private DataOutputStream log;
+
+	/**
+	 * A page of rows, one vector per column of the store.
+	 */
+	static final class Page {
+
+		private final int[] rowIds;
+		private final ColumnVector[] vectors;
+		/** Number of bytes used by the strings of each column. */
+		private final int[] used;
+		private int size;
+
+		private Page(KStore store, int capacity) {
+			rowIds = new int[capacity];
+			vectors = new ColumnVector[store.getNumberOfColumns()];
+			for (int n = 0; n < vectors.length; n++) {
+				vectors[n] = new ColumnVector(store.getColumn(n).getColumnType(), capacity);
+				if (!isFixed(vectors[n])) {
+					vectors[n].setBytes(new byte[capacity * 16]);
+				}
+			}
+			used = new int[vectors.length];
+		}
+
+		int[] getRowIds() {
+			return rowIds;
+		}
+
+		ColumnVector[] getVectors() {
+			return vectors;
+		}
+
+		ColumnVector getVector(int colId) {
+			return vectors[colId];
+		}
+
+		int getSize() {
+			return size;
+		}
+
+		private void addStr(int colId, int row, byte[] buf, int start, int len) {
+			ColumnVector vector = vectors[colId];
+			if (used[colId] + len > vector.getBytes().length) {
+				vector.setBytes(Arrays.copyOf(vector.getBytes(), Math.max(used[colId] + len, vector.getBytes().length * 2)));
+			}
+			System.arraycopy(buf, start, vector.getBytes(), used[colId], len);
+			vector.getOffsets()[row] = used[colId];
+			vector.getLengths()[row] = len;
+			used[colId] += len;
+		}
+
+		/**
+		 * Copies the first rows of this page, which the copy does not share with it.
+		 * @param nb
+		 * @return
+		 */
+		private Page copy(KStore store, int nb) {
+			Page page = new Page(store, rowIds.length);
+			System.arraycopy(rowIds, 0, page.rowIds, 0, nb);
+			for (int n = 0; n < vectors.length; n++) {
+				page.vectors[n].copy(vectors[n], nb);
+				if (!isFixed(vectors[n])) {
+					page.used[n] = (nb == 0) ? 0 : vectors[n].getOffsets()[nb - 1] + vectors[n].getLengths()[nb - 1];
+					page.vectors[n].setBytes(Arrays.copyOf(vectors[n].getBytes(), Math.max(page.used[n], 16)));
+				}
+			}
+			page.size = nb;
+			return page;
+		}
+	}
+
+	MemTable(KStore store, String prefix, String post, long startCount) {
+		this.store = store;
+		this.pageSize = store.getPageSize();
+		this.logPath = prefix + post;
+		this.post = post;
+		this.startCount = startCount;
+	}
+
+	private static boolean isFixed(ColumnVector vector) {
+		return ColumnVector.isLong(vector.getColumnType()) || ColumnVector.isDouble(vector.getColumnType());
+	}
+
+	/**
+	 * Gets the path of a segment of the log, the first one being named as the log.
+	 */
+	private String getSegmentPath(int n) {
+		return (n == 0) ? logPath : logPath + "_" + n;
+	}
+
+	/**
+	 * Gets the paths of the closed segments of the log.
+	 * @return
+	 */
+	synchronized List<String> getLogPaths() {
+		List<String> paths = new ArrayList<>();
+		for (int n = 0; n < segment; n++) {
+			paths.add(getSegmentPath(n));
+		}
+		return paths;
+	}
+
+	/**
+	 * Gets the number of closed segments of the log, which hold committed rows.
+	 * @return
+	 */
+	synchronized int getSegments() {
+		return segment;
+	}
+
+	String getPost() {
+		return post;
+	}
+
+	long getStartCount() {
+		return startCount;
+	}
+
+	synchronized int getSize() {
+		return size;
+	}
+
+	synchronized int getSizeCommit() {
+		return sizeCommit;
+	}
+
+	/**
+	 * Gets the page receiving the next row.
+	 * @return
+	 */
+	private Page page() {
+		if (pages.isEmpty() || pages.get(pages.size() - 1).size == pageSize) {
+			pages.add(new Page(store, pageSize));
+		}
+		return pages.get(pages.size() - 1);
+	}
+
+	/**
+	 * Adds a row, values being boxed as given to {@link Bucket#add(int, Object[])}.
+	 * @param rowId
+	 * @param values
+	 * @throws IOException
+	 */
+	synchronized void add(int rowId, Object[] values) throws IOException {
+		Page page = page();
+		page.rowIds[page.size] = rowId;
+		for (int n = 0; n < values.length; n++) {
+			ColumnVector vector = page.vectors[n];
+			switch (vector.getColumnType()) {
+				case TINYINT:
+					vector.getLongs()[page.size] = Convert.byteToLong((Byte) values[n]);
+					break;
+				case SMALLINT:
+					vector.getLongs()[page.size] = Convert.shortToLong((Short) values[n]);
+					break;
+				case INT:
+					vector.getLongs()[page.size] = Convert.intToLong((Integer) values[n]);
+					break;
+				case BIGINT:
+					vector.getLongs()[page.size] = (Long) values[n];
+					break;
+				case FLOAT:
+					vector.getDoubles()[page.size] = (Float) values[n];
+					break;
+				case DOUBLE:
+					vector.getDoubles()[page.size] = (Double) values[n];
+					break;
+				default:
+					byte[] str = values[n].toString().getBytes(StandardCharsets.UTF_8);
+					page.addStr(n, page.size, str, 0, str.length);
+					break;
+			}
+		}
+		page.size++;
+		size++;
+		writeRows(page, page.size - 1, 1);
+	}
+
+	/**
+	 * Adds rows given as vectors, as given to {@link Bucket#addBatch(int[], ColumnVector...)}.
+	 * @param keyIds
+	 * @param columns
+	 * @throws IOException
+	 */
+	synchronized void addBatch(int[] keyIds, ColumnVector[] columns) throws IOException {
+		append(keyIds, columns, keyIds.length, true);
+	}
+
+	private void append(int[] keyIds, ColumnVector[] columns, int nbRows, boolean logged) throws IOException {
+		for (int from = 0; from < nbRows;) {
+			Page page = page();
+			int nb = Math.min(nbRows - from, pageSize - page.size);
+			System.arraycopy(keyIds, from, page.rowIds, page.size, nb);
+			for (int n = 0; n < columns.length; n++) {
+				ColumnVector vector = page.vectors[n];
+				int sizeType = store.getColumn(n).getSize();
+				if (ColumnVector.isLong(vector.getColumnType())) {
+					for (int i = 0; i < nb; i++) {
+						vector.getLongs()[page.size + i] = truncate(columns[n].getLong(from + i), sizeType);
+					}
+				} else if (ColumnVector.isDouble(vector.getColumnType())) {
+					for (int i = 0; i < nb; i++) {
+						// Floats are read back as doubles from their float value
+						double value = columns[n].getDouble(from + i);
+						vector.getDoubles()[page.size + i] = (sizeType == 4) ? (float) value : value;
+					}
+				} else {
+					for (int i = 0; i < nb; i++) {
+						page.addStr(n, page.size + i, columns[n].getBytes(), columns[n].getOffsets()[from + i], columns[n].getLengths()[from + i]);
+					}
+				}
+			}
+			page.size += nb;
+			size += nb;
+			if (logged) {
+				writeRows(page, page.size - nb, nb);
+			}
+			from += nb;
+		}
+	}
+
+	/**
+	 * Truncates a value to the size of its column, as it would be read from a row file.
+	 */
+	private static long truncate(long value, int sizeType) {
+		switch (sizeType) {
+			case 1:
+				return Convert.byteToLong(Convert.longToByte(value));
+			case 2:
+				return Convert.shortToLong(Convert.longToShort(value));
+			case 4:
+				return Convert.intToLong(Convert.longToInt(value));
+			default:
+				return value;
+		}
+	}
+
+	/**
+	 * Gets the pages holding the rows added so far. The last page is copied if it may still receive rows.
+	 * @return
+	 */
+	synchronized List<Page> getPages() {
+		List<Page> snapshot = new ArrayList<>(pages);
+		if (!snapshot.isEmpty() && snapshot.get(snapshot.size() - 1).size < pageSize) {
+			Page last = snapshot.get(snapshot.size() - 1);
+			snapshot.set(snapshot.size() - 1, last.copy(store, last.size));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Marks the rows added so far as committed, once the segment of the log holding them has been closed.
+	 * @throws IOException
+	 */
+	synchronized void commit() throws IOException {
+		if (log != null) {
+			log.writeByte(COMMIT);
+			closeLog();
+			segment++;
+		}
+		sizeCommit = size;
+	}
+
+	/**
+	 * Drops the rows added since the last commit, and deletes the segment of the log holding them.
+	 * @throws IOException
+	 */
+	synchronized void rollback() throws IOException {
+		dropUncommitted();
+		if (log != null) {
+			closeLog();
+			store.getDevice().delete(getSegmentPath(segment));
+		}
+	}
+
+	private void dropUncommitted() {
+		int nbPages = (sizeCommit + pageSize - 1) / pageSize;
+		while (pages.size() > nbPages) {
+			pages.remove(pages.size() - 1);
+		}
+		int last = sizeCommit - (nbPages - 1) * pageSize;
+		if (nbPages > 0 && pages.get(nbPages - 1).size > last) {
+			// Scans may hold the page, the rows they read are not overwritten
+			pages.set(nbPages - 1, pages.get(nbPages - 1).copy(store, last));
+		}
+		size = sizeCommit;
+	}
+
+	/**
+	 * Reads the committed rows of the segments of the log. The next rows are written in a new segment, segments
+	 * holding uncommitted rows being kept as they are.
+	 * @param durable number of segments known to be closed, which must be found
+	 * @throws IOException
+	 */
+	synchronized void replay(int durable) throws IOException {
+		while (segment < durable || store.getDevice().exists(getSegmentPath(segment))) {
+			replaySegment(getSegmentPath(segment));
+			// Rows following the last commit of a segment were not committed
+			dropUncommitted();
+			segment++;
+		}
+	}
+
+	private void replaySegment(String path) throws IOException {
+		int columns = store.getNumberOfColumns();
+		try (DataInputStream in = store.getDevice().open(path, Compression.NONE)) {
+			int tag;
+			while ((tag = in.read()) == ROWS || tag == COMMIT) {
+				if (tag == COMMIT) {
+					sizeCommit = size;
+					continue;
+				}
+				int nb = in.readInt();
+				int[] keyIds = new int[nb];
+				ColumnVector[] vectors = new ColumnVector[columns];
+				for (int i = 0; i < nb; i++) {
+					keyIds[i] = in.readInt();
+				}
+				for (int n = 0; n < columns; n++) {
+					vectors[n] = readVector(in, store.getColumn(n).getColumnType(), nb);
+				}
+				append(keyIds, vectors, nb, false);
+			}
+		} catch (EOFException e) {
+			// The last record was not completely written, it follows the last commit
+		}
+	}
+
+	private static ColumnVector readVector(DataInputStream in, ColumnType type, int nb) throws IOException {
+		ColumnVector vector = new ColumnVector(type, nb);
+		if (ColumnVector.isLong(type)) {
+			for (int i = 0; i < nb; i++) {
+				vector.getLongs()[i] = in.readLong();
+			}
+		} else if (ColumnVector.isDouble(type)) {
+			for (int i = 0; i < nb; i++) {
+				vector.getDoubles()[i] = in.readDouble();
+			}
+		} else {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			vector.setBytes(bytes);
+			for (int i = 0, offset = 0; i < nb; i++) {
+				vector.getOffsets()[i] = offset;
+				vector.getLengths()[i] = in.readInt();
+				offset += vector.getLengths()[i];
+			}
+		}
+		vector.setSize(nb);
+		return vector;
+	}
+
+	/**
+	 * Appends rows of a page to the log, column by column.
+	 */
+	private void writeRows(Page page, int from, int nb) throws IOException {
+		if (log == null) {
+			openLog();
+		}
+		log.writeByte(ROWS);
+		log.writeInt(nb);
+		for (int i = from; i < from + nb; i++) {
+			log.writeInt(page.rowIds[i]);
+		}
+		for (ColumnVector vector : page.vectors) {
+			if (ColumnVector.isLong(vector.getColumnType())) {
+				for (int i = from; i < from + nb; i++) {
+					log.writeLong(vector.getLongs()[i]);
+				}
+			} else if (ColumnVector.isDouble(vector.getColumnType())) {
+				for (int i = from; i < from + nb; i++) {
+					log.writeDouble(vector.getDoubles()[i]);
+				}
+			} else {
+				// Strings of a page are contiguous
+				int start = vector.getOffsets()[from];
+				int end = vector.getOffsets()[from + nb - 1] + vector.getLengths()[from + nb - 1];
+				log.writeInt(end - start);
+				log.write(vector.getBytes(), start, end - start);
+				for (int i = from; i < from + nb; i++) {
+					log.writeInt(vector.getLengths()[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the current segment of the log.
+	 */
+	private void openLog() throws IOException {
+		log = store.getDevice().create(getSegmentPath(segment), Compression.NONE, false);
+	}
+
+	private void closeLog() throws IOException {
+		if (log != null) {
+			log.close();
+			log = null;
+		}
+	}
+
+	/**
+	 * Closes the log, whose rows are no longer needed once written in a row file.
+	 * @throws IOException
+	 */
+	synchronized void close() throws IOException {
+		if (log != null) {
+			closeLog();
+			segment++;
+		}
+	}
+}
@@ -23,31 +23,53 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.kstore.columns.ColumnInput;
+import org.kstore.columns.ColumnInputArithmetic;
+import org.kstore.columns.ColumnInputDict;
+import org.kstore.columns.ColumnInputDouble;
 import org.kstore.columns.ColumnInputLong;
 import org.kstore.columns.ColumnInputSnap;
 import org.kstore.columns.ColumnInputVoid;
 import org.kstore.columns.ColumnOutput;
+import org.kstore.columns.ColumnOutputDict;
+import org.kstore.columns.ColumnOutputDouble;
 import org.kstore.columns.ColumnOutputLong;
 import org.kstore.columns.ColumnOutputSnap;
 import org.kstore.columns.ColumnOutputVoid;
+import org.kstore.columns.ZoneMap;
 import org.kstore.columns.io.MultipleColumnPageBytesInput;
+import org.kstore.columns.io.LazyColumnPageBytesInput;
+import org.kstore.columns.io.MappedColumnPageBytesInput;
 import org.kstore.columns.io.MultipleColumnPageBytesOutput;
+import org.kstore.columns.io.PrefetchColumnPageBytesInput;
 import org.kstore.columns.io.SingleColumnPageBytesInput;
 import org.kstore.columns.io.SingleColumnPageBytesOutput;
+import org.kstore.utils.ArrayInt;
 import org.kstore.utils.BucketIOSharedPool;
+import org.kstore.utils.BucketScanPool;
+import org.kstore.utils.BucketWritePool;
 import org.kstore.utils.IO;
-import org.kstore.utils.Convert;
+import org.kstore.utils.MappedFile;
+import org.kstore.utils.PageCache;
+import org.roaringbitmap.IntIterator;
 import org.roaringbitmap.RoaringBitmap;
 import org.kstore.columns.io.ColumnPageBytesInput;
 import org.kstore.columns.io.ColumnPageBytesOutput;
@@ -70,30 +92,56 @@ public class PageBucket extends Bucket {
 	// Used to mark files which holds all data columns
 	private static final String TAG_SINGLE_FILE_ALL_COLUMNS = "ALL";
 
+	// Number of pages read by one task of a parallel scan
+	private static final int PAGES_PER_TASK = 16;
+
+	// Version of the bucket index, 1 adds the page statistics of row files, 2 the step between ids of pages, 3 the
+	// page codec of columns, 4 the logs of memtables, 5 the deleted rows of row files, 6 the closed segments of logs,
+	// 7 the replaced files to delete
+	private static final int INDEX_VERSION = 7;
+
+	// Prefix of the logs of memtables
+	private static final String LOG = "log";
+
 	private ColumnOutput[] out;
 	// Number of rows pending in current page
 	private int countPage;
-	private int sizePage = Configuration.getNbPages();
+	private int sizePage;
 	private List<RowFile> rowFiles;
 	private int rowFilesCommit;
 	private RowFile rowFile;
 	private byte[] colFormat;
+	// Page codec of each column, see PageCodec
+	private byte[] colCodec;
 	private boolean oneFilePerColumn;
+	// Rows added and not yet written in a row file, when the store has memtables
+	private MemTable memTable;
+	// Memtables of commits being written in row files, in order
+	private final List<MemTable> flushing = new ArrayList<>();
+	// Writing of the last memtable in a row file, which waits for the previous one
+	private ForkJoinTask<Void> flushTask;
+	// Number of logs created, to name the next one
+	private int logCount;
+	// Background merge of small row files or compaction of a row file, null if none was started
+	private ForkJoinTask<Void> mergeTask;
+	// Number of row files created, to name the next one
+	private int rowFileCount;
+	// Files of logs and row files replaced by row files, deleted once saved indexes no longer reference them
+	private List<String> replacedFiles = new ArrayList<>();
+	private List<String> obsoleteFiles = new ArrayList<>();
+	// Number of the last scan started when each file was replaced, so that scans reading it end before it is deleted
+	private final Map<String, Long> replacedScans = new HashMap<>();
+	// Numbers of the running scans
+	private final TreeSet<Long> scans = new TreeSet<>();
+	private long scanCount;
 
 	public PageBucket(KStore store) {
 		super(store);
 		colFormat = new byte[store.getNumberOfColumns()];
+		colCodec = new byte[store.getNumberOfColumns()];
 		rowFiles = new ArrayList<>();
 		oneFilePerColumn = store.useOneFilePerColumn();
-	}
-
-	private void init(PageBucket other) {
-		super.init(other);
-		sizePage = other.sizePage;
-		rowFiles = other.rowFiles;
-		colFormat = other.colFormat;
-		rowFilesCommit = other.rowFilesCommit;
-		oneFilePerColumn = other.oneFilePerColumn;
+		sizePage = store.getPageSize();
 	}
 
 	private void initFormat() {
@@ -101,15 +149,32 @@ public class PageBucket extends Bucket {
 			if (colFormat[n] == 0) {
 				Column fi = store.getColumn(n);
 				ColumnType t = fi.getColumnType();
+				PageCodec codec = (fi.getPageCodec() != null) ? fi.getPageCodec() : Configuration.getPageCodec();
 				if (t == ColumnType.TINYINT || t == ColumnType.SMALLINT || t == ColumnType.INT || t == ColumnType.BIGINT) {
 					colFormat[n] = (byte) 2;
+				} else if (fi.isDictionaryEncoded() && (t == ColumnType.STRING || t == ColumnType.DATE || t == ColumnType.TIMESTAMP)) {
+					colFormat[n] = (byte) 3;
+				} else if (t == ColumnType.FLOAT || t == ColumnType.DOUBLE) {
+					colFormat[n] = (byte) 4;
 				} else {
 					colFormat[n] = (byte) 1;
 				}
+				colCodec[n] = ((codec != null) ? codec : defaultCodec(colFormat[n])).getId();
 			}
 		}
 	}
 
+	/**
+	 * Gets the codec of the pages of a column format, when the codec is not configured.
+	 *
+	 * @param format
+	 * @return
+	 */
+	private static PageCodec defaultCodec(byte format) {
+		// Integer and floating point pages are already packed
+		return (format == 2 || format == 4) ? PageCodec.NONE : PageCodec.SNAPPY;
+	}
+
 	private ColumnOutput[] openWriteCol(RowFile rf, int[] colIds, boolean withId) throws IOException {
 		initFormat();
 		ColumnOutput[] cOuts = new ColumnOutput[1 + colIds.length];
@@ -131,7 +196,7 @@ public class PageBucket extends Bucket {
 
 		// We keep the id column in its own column
 		if (withId) {
-			cOuts[0] = new ColumnOutputLong(new SingleColumnPageBytesOutput(oneFilePerColumnOutputStream(rf, ID_COL_INDEX)), rf.getPos(0), sizePage);
+			cOuts[0] = new ColumnOutputLong(new SingleColumnPageBytesOutput(oneFilePerColumnOutputStream(rf, ID_COL_INDEX)), rf.getPos(0), rf.getZoneMap(0), sizePage, rf.getIdSteps());
 		}
 		for (int n = 1; n < cOuts.length; n++) {
 			int colId = colIds[n - 1];
@@ -142,10 +207,23 @@ public class PageBucket extends Bucket {
 				cOuts[n] = new ColumnOutputVoid(columnIdToByteConsumer.apply(colId), rf.getPos(1 + colId));
 			} else {
 				if (colFormat[colId] == 2) {
-					cOuts[n] = new ColumnOutputLong(columnIdToByteConsumer.apply(colId), rf.getPos(1 + colId), sizePage);
+					cOuts[n] = new ColumnOutputLong(columnIdToByteConsumer.apply(colId), rf.getPos(1 + colId), rf.getZoneMap(1 + colId), sizePage);
+				} else if (colFormat[colId] == 3) {
+					cOuts[n] = new ColumnOutputDict(columnIdToByteConsumer.apply(colId), rf.getPos(1 + colId));
+				} else if (colFormat[colId] == 4) {
+					cOuts[n] = new ColumnOutputDouble(columnIdToByteConsumer.apply(colId), rf.getPos(1 + colId), rf.getZoneMap(1 + colId), sizePage);
 				} else {
-					cOuts[n] = new ColumnOutputSnap(columnIdToByteConsumer.apply(colId), rf.getPos(1 + colId));
+					// Only floating point values have statistics in compressed columns
+					ZoneMap zoneMap = ColumnVector.isDouble(fi.getColumnType()) ? rf.getZoneMap(1 + colId) : null;
+					cOuts[n] = new ColumnOutputSnap(columnIdToByteConsumer.apply(colId), rf.getPos(1 + colId), zoneMap);
 				}
+				cOuts[n].setCodec(PageCodec.valueOf(colCodec[colId]));
+			}
+		}
+		for (ColumnOutput cOut : cOuts) {
+			if (cOut != null) {
+				// Pages are written by newPage, once all columns are encoded
+				cOut.setDeferred(true);
 			}
 		}
 		return cOuts;
@@ -172,19 +250,32 @@ public class PageBucket extends Bucket {
 	}
 
 	private MultiInputStream openReadCol(RowFile rf, int[] colIds) throws IOException {
+		return openReadCol(rf, colIds, true);
+	}
+
+	/**
+	 * Opens the columns of a row file.
+	 *
+	 * @param rf
+	 * @param colIds
+	 * @param computedIds can ids be computed instead of being read, when the id pages are not copied
+	 * @return
+	 * @throws IOException
+	 */
+	private MultiInputStream openReadCol(RowFile rf, int[] colIds, boolean computedIds) throws IOException {
 		ColumnInput[] in = new ColumnInput[1 + colIds.length];
-		in[0] = new ColumnInputLong(new SingleColumnPageBytesInput(store.getDevice().getInputStream(getColPath(ID + rf.getPost()))), rf.getPos(0));
+		in[0] = openReadIds(rf, computedIds);
 
 		boolean openFilesConcurrently;
 
 		final IntFunction<ColumnPageBytesInput> pageBytesProvider;
 		if (oneFilePerColumn) {
 			// There is one InputStream per column
-			pageBytesProvider = i -> new SingleColumnPageBytesInput(readColumn(rf, i));
+			pageBytesProvider = i -> readColumn(rf, i);
 			openFilesConcurrently = true;
 		} else {
 			// We open a single inputStream shared between all columns
-			MultipleColumnPageBytesInput singleFileProvider = new MultipleColumnPageBytesInput(rf.getPos(), store.getDevice().getInputStream(getColPath(COL + TAG_SINGLE_FILE_ALL_COLUMNS + rf.getPost())));
+			MultipleColumnPageBytesInput singleFileProvider = new MultipleColumnPageBytesInput(rf.getPos(), store.getDevice(), getColPath(COL + TAG_SINGLE_FILE_ALL_COLUMNS + rf.getPost()));
 			pageBytesProvider = i -> singleFileProvider.popColumnReader(i);
 			openFilesConcurrently = false;
 		}
@@ -210,9 +301,23 @@ public class PageBucket extends Bucket {
 			}
 			throw new IOException("Unable to read columns (" + sb.toString() + ")");
 		}
+		if (PageCache.isEnabled()) {
+			in[0].cacheAs(getColPath(ID + rf.getPost()));
+			for (int n = 1; n < in.length; n++) {
+				in[n].cacheAs(getColPath(COL + colIds[n - 1] + rf.getPost()));
+			}
+		}
 		return new MultipleInputStream(openFilesConcurrently, in);
 	}
 
+	private ColumnInput openReadIds(RowFile rf, boolean computedIds) throws IOException {
+		if (computedIds && rf.hasArithmeticIds()) {
+			// Ids are computed from the page statistics, the id column is not read
+			return new ColumnInputArithmetic(rf.getZoneMap(0), rf.getIdSteps());
+		}
+		return new ColumnInputLong(columnPageBytesInput(getColPath(ID + rf.getPost()), rf.getPos(0)), rf.getPos(0));
+	}
+
 	private List<ColumnInput> openColumns(boolean openFilesConcurrently,
 			RowFile rf,
 			int[] colIds,
@@ -245,20 +350,46 @@ public class PageBucket extends Bucket {
 			// calculated fields are not stored. the 'void' column does nothing.
 			return new ColumnInputVoid(pageBytesProvider.apply(colId), rf.getPos(1 + colId));
 		}
+		ColumnInput in;
 		if (colFormat[colId] == 2) {
-			return new ColumnInputLong(pageBytesProvider.apply(colId), rf.getPos(1 + colId));
+			in = new ColumnInputLong(pageBytesProvider.apply(colId), rf.getPos(1 + colId));
+		} else if (colFormat[colId] == 3) {
+			in = new ColumnInputDict(pageBytesProvider.apply(colId), rf.getPos(1 + colId));
+		} else if (colFormat[colId] == 4) {
+			in = new ColumnInputDouble(pageBytesProvider.apply(colId), rf.getPos(1 + colId));
 		} else {
-			return new ColumnInputSnap(pageBytesProvider.apply(colId), rf.getPos(1 + colId));
+			in = new ColumnInputSnap(pageBytesProvider.apply(colId), rf.getPos(1 + colId));
 		}
+		in.setCodec(PageCodec.valueOf(colCodec[colId]));
+		return in;
 	}
 
-	private InputStream readColumn(RowFile rf, int colId) {
-		String colPath = getColPath(COL + colId + rf.getPost());
-		try {
-			return store.getDevice().getInputStream(colPath);
-		} catch (IOException e) {
-			throw new UncheckedIOException("Unable to read column (" + colPath + ")", e);
+	/**
+	 * Reads the pages of a column stored in its own file. The file is opened on the first page read, pages are fetched
+	 * ahead on remote devices, and copied from the mapping of the file on devices mapping files.
+	 *
+	 * @param path
+	 * @param pos
+	 * @return
+	 */
+	private ColumnPageBytesInput columnPageBytesInput(String path, ArrayInt pos) {
+		return new LazyColumnPageBytesInput(() -> openColumnPageBytesInput(path, pos));
+	}
+
+	private ColumnPageBytesInput openColumnPageBytesInput(String path, ArrayInt pos) throws IOException {
+		Device device = store.getDevice();
+		if (device.isRemote() && Configuration.getPrefetchPages() > 0) {
+			return new PrefetchColumnPageBytesInput(device.getInputStream(path), pos, Configuration.getPrefetchPages(), Configuration.getPrefetchBytes());
 		}
+		MappedFile mapping = device.map(path);
+		if (mapping != null) {
+			return new MappedColumnPageBytesInput(mapping, pos);
+		}
+		return new SingleColumnPageBytesInput(device.getInputStream(path));
+	}
+
+	private ColumnPageBytesInput readColumn(RowFile rf, int colId) {
+		return columnPageBytesInput(getColPath(COL + colId + rf.getPost()), rf.getPos(1 + colId));
 	}
 
 	private void initOut() throws IOException {
@@ -268,13 +399,21 @@ public class PageBucket extends Bucket {
 	private void initOut(int[] colIds, boolean withId) throws IOException {
 		countPage = 0;
 		if (withId) {
-			rowFiles.add(rowFile = new RowFile(store.getNumberOfColumns()).init("_" + rowFiles.size(), count));
+			rowFile = new RowFile(store.getNumberOfColumns()).init(nextPost(), count);
+			synchronized (this) {
+				rowFiles.add(rowFile);
+			}
 		}
 		out = openWriteCol(rowFile, colIds, withId);
 	}
 
 	@Override
 	public PageBucket add(int keyId, Object[] values) throws IOException {
+		if (store.getMemTableRows() > 0) {
+			memTable().add(keyId, values);
+			count++;
+			return this;
+		}
 		if (out == null) {
 			initOut();
 		}
@@ -312,6 +451,69 @@ public class PageBucket extends Bucket {
 		return this;
 	}
 
+	/**
+	 * Adds rows given as vectors, written page by page without boxing their values.
+	 */
+	@Override
+	public PageBucket addBatch(int[] keyIds, ColumnVector... columns) throws IOException {
+		checkBatch(columns);
+		if (store.getMemTableRows() > 0) {
+			memTable().addBatch(keyIds, columns);
+			count += keyIds.length;
+			return this;
+		}
+		if (out == null) {
+			initOut();
+		}
+		for (int from = 0; from < keyIds.length;) {
+			// Rows are written up to the end of the current page
+			int nb = Math.min(keyIds.length - from, sizePage - countPage);
+			writeVectors(out, keyIds, columns, from, nb);
+			from += nb;
+			countPage += nb;
+			if (countPage >= sizePage) {
+				newPage();
+			}
+		}
+		return this;
+	}
+
+	private void writeVectors(ColumnOutput[] cols, int[] keyIds, ColumnVector[] columns, int from, int nb) throws IOException {
+		cols[0].writeInts(keyIds, from, nb);
+		for (int n = 1; n < columns.length + 1; n++) {
+			ColumnVector vector = columns[n - 1];
+			Column column = store.getColumn(n - 1);
+			if (ColumnVector.isLong(column.getColumnType())) {
+				cols[n].writeLongs(vector.getLongs(), from, nb, column.getSize());
+			} else if (ColumnVector.isDouble(column.getColumnType())) {
+				cols[n].writeDoubles(vector.getDoubles(), from, nb, column.getSize());
+			} else {
+				cols[n].writeStrs(vector.getBytes(), vector.getOffsets(), vector.getLengths(), from, nb);
+			}
+		}
+	}
+
+	/**
+	 * Gets the suffix of a new row file.
+	 *
+	 * @return
+	 */
+	private synchronized String nextPost() {
+		return "_" + rowFileCount++;
+	}
+
+	/**
+	 * Gets the memtable receiving added rows, created with its log on the first row.
+	 *
+	 * @return
+	 */
+	private synchronized MemTable memTable() {
+		if (memTable == null) {
+			memTable = new MemTable(store, getColPath(LOG), "_" + logCount++, count);
+		}
+		return memTable;
+	}
+
 	private void addRow() throws IOException {
 		if (++countPage >= sizePage) {
 			newPage();
@@ -319,111 +521,659 @@ public class PageBucket extends Bucket {
 	}
 
 	private void newPage() throws IOException {
-		for (ColumnOutput colOut : out) {
-			if (colOut != null) {
-				size += colOut.newPage();
-			}
-		}
+		size += writePage(out);
 		count += countPage;
 		rowFile.getPosCount().add(countPage);
 		countPage = 0;
 	}
 
+	/**
+	 * Encodes the current page of the given columns, and writes it.
+	 *
+	 * @param cols
+	 * @return the number of written bytes
+	 * @throws IOException
+	 */
+	private long writePage(ColumnOutput[] cols) throws IOException {
+		long written = 0;
+		if (cols.length > 2 && BucketWritePool.getParallelism() > 1) {
+			// Columns are encoded and compressed at the same time by the pool
+			List<ForkJoinTask<Integer>> tasks = new ArrayList<>(cols.length);
+			for (ColumnOutput colOut : cols) {
+				if (colOut != null) {
+					tasks.add(BucketWritePool.submit(colOut::newPage));
+				}
+			}
+			Exception error = null;
+			for (ForkJoinTask<Integer> task : tasks) {
+				try {
+					written += getResult(task);
+				} catch (IOException | RuntimeException e) {
+					// Other tasks are awaited, as they use the columns
+					error = (error == null) ? e : error;
+				}
+			}
+			if (error instanceof IOException) {
+				throw (IOException) error;
+			} else if (error != null) {
+				throw (RuntimeException) error;
+			}
+		} else {
+			for (ColumnOutput colOut : cols) {
+				if (colOut != null) {
+					written += colOut.newPage();
+				}
+			}
+		}
+		// Pages are written in column order, as columns may share the same file
+		for (ColumnOutput colOut : cols) {
+			if (colOut != null) {
+				colOut.writePending();
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Writes the memtable in a row file in the background. Its rows are read from memory until the row file is
+	 * written.
+	 *
+	 * @param table
+	 */
+	private synchronized void flush(MemTable table) {
+		flushing.add(table);
+		if (table == memTable) {
+			memTable = null;
+		}
+		ForkJoinTask<Void> previous = flushTask;
+		flushTask = BucketWritePool.submit(() -> {
+			// Row files are written in the order of their rows
+			if (previous != null) {
+				getResult(previous);
+			}
+			writeRowFile(table);
+			return null;
+		});
+	}
+
+	/**
+	 * Drops the memtable, which holds no row. Its log is deleted with the replaced files, so that it is kept until the
+	 * saved index no longer needs it to find the logs of the next memtables.
+	 *
+	 * @throws IOException
+	 */
+	private synchronized void dropMemTable() throws IOException {
+		memTable.close();
+		replaced(memTable.getLogPaths());
+		memTable = null;
+	}
+
+	/**
+	 * Waits for the memtables given to flush to be written.
+	 *
+	 * @throws IOException
+	 */
+	void awaitFlush() throws IOException {
+		ForkJoinTask<Void> task = flushTask;
+		if (task != null) {
+			flushTask = null;
+			// Memtables that could not be written are kept, and read from memory
+			getResult(task);
+		}
+	}
+
+	private void writeRowFile(MemTable table) throws IOException {
+		long time = System.currentTimeMillis();
+		RowFile rf = new RowFile(store.getNumberOfColumns()).init(nextPost(), table.getStartCount());
+		ColumnOutput[] cols = openWriteCol(rf, getAllColIds(), true);
+		long written = 0;
+		try {
+			for (MemTable.Page page : table.getPages()) {
+				writeVectors(cols, page.getRowIds(), page.getVectors(), 0, page.getSize());
+				written += writePage(cols);
+				rf.getPosCount().add(page.getSize());
+			}
+			for (ColumnOutput co : cols) {
+				if (co != null) {
+					co.close();
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			IO.close(cols);
+			throw e;
+		}
+		table.close();
+		synchronized (this) {
+			rowFiles.add(rf);
+			rowFilesCommit = rowFiles.size();
+			flushing.remove(table);
+			replaced(table.getLogPaths());
+			size += written;
+		}
+		LOGGER.info("Writing " + table.getSize() + " rows of memtable " + path + " in " + (System.currentTimeMillis() - time) + " ms.");
+	}
+
+	/**
+	 * Registers a scan, before it takes the row files to read: files replaced afterwards are not deleted until it
+	 * ends.
+	 *
+	 * @return the number of the scan
+	 */
+	private synchronized long startScan() {
+		scans.add(++scanCount);
+		return scanCount;
+	}
+
+	private synchronized void endScan(long scan) {
+		scans.remove(scan);
+	}
+
+	/**
+	 * Adds files to delete once saved indexes no longer reference them and the running scans have ended.
+	 *
+	 * @param paths
+	 */
+	private synchronized void replaced(List<String> paths) {
+		replacedFiles.addAll(paths);
+		for (String path : paths) {
+			replacedScans.put(path, scanCount);
+		}
+	}
+
+	/**
+	 * Gets the pages of the memtables and the committed row files to read, at once as written memtables are
+	 * replaced by their row file.
+	 *
+	 * @param files receives the row files
+	 * @return
+	 */
+	private synchronized List<MemTable.Page> snapshot(List<RowFile> files) {
+		files.addAll(rowFiles.subList(0, rowFilesCommit));
+		List<MemTable.Page> pages = new ArrayList<>();
+		for (MemTable table : flushing) {
+			pages.addAll(table.getPages());
+		}
+		if (memTable != null) {
+			pages.addAll(memTable.getPages());
+		}
+		return pages;
+	}
+
 	@Override
-	public void readLines(Line line, RoaringBitmap bitRowIds, LineReader liner) throws IOException {
-		if (countCommit == 0) {
+	public void readLines(Line line, RoaringBitmap bitRowIds, ColumnFilter filter, LineReader liner) throws IOException {
+		long scan = startScan();
+		try {
+			scanLines(line, bitRowIds, filter, liner);
+		} finally {
+			endScan(scan);
+		}
+	}
+
+	private void scanLines(Line line, RoaringBitmap bitRowIds, ColumnFilter filter, LineReader liner) throws IOException {
+		List<RowFile> files = new ArrayList<>();
+		List<MemTable.Page> pages = snapshot(files);
+		if (countCommit == 0 && pages.isEmpty()) {
 			return;
 		}
-		int[] columns = line.getColumns();
-		int[] indexInOriginal = computerIndexOfSorted(columns);
+		int[] readColumns = getReadColumns(line.getColumns(), filter);
+		ScanStats stats = new ScanStats();
+		for (int ifile = 0; ifile < files.size(); ifile++) {
+			RowFile rf = files.get(ifile);
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Reading " + ifile + " " + rf.getPosCount().getSize());
+			}
+			if (!readPages(rf, 0, rf.getPosCount().getSize(), line, bitRowIds, filter, readColumns, liner, stats)) {
+				stats.log();
+				return;
+			}
+		}
+		stats.log();
+		readMemPages(pages, line, bitRowIds, filter, readColumns, liner);
+	}
 
-		long count = 0;
-		long total = 0;
-		long min = Long.MAX_VALUE;
-		long max = 0;
-		long countB = 0;
-		long totalB = 0;
-		long minB = Long.MAX_VALUE;
-		long maxB = 0;
+	@Override
+	public void readLinesParallel(Supplier<Line> lines, RoaringBitmap bitRowIds, ColumnFilter filter, LineReader liner, boolean ordered) throws IOException {
+		long scan = startScan();
+		try {
+			scanLinesParallel(lines, bitRowIds, filter, liner, ordered);
+		} finally {
+			endScan(scan);
+		}
+	}
 
-		loop:
-		for (int ifile = 0; ifile < rowFilesCommit; ifile++) {
-			RowFile rf = rowFiles.get(ifile);
+	private void scanLinesParallel(Supplier<Line> lines, RoaringBitmap bitRowIds, ColumnFilter filter, LineReader liner, boolean ordered) throws IOException {
+		List<RowFile> files = new ArrayList<>();
+		List<MemTable.Page> pages = snapshot(files);
+		if (countCommit == 0 && pages.isEmpty()) {
+			return;
+		}
+		Line line = lines.get();
+		int[] readColumns = getReadColumns(line.getColumns(), filter);
 
-			try (MultiInputStream in = openReadCol(rf, columns)) {
-				if (LOGGER.isDebugEnabled()) {
-					LOGGER.debug("Reading " + ifile + " " + rf.getPosCount().getSize());
+		// Each task reads a range of pages of a row file
+		List<int[]> segments = new ArrayList<>();
+		for (int ifile = 0; ifile < files.size(); ifile++) {
+			RowFile rf = files.get(ifile);
+			for (int fromPage = 0; fromPage < rf.getPosCount().getSize(); fromPage += PAGES_PER_TASK) {
+				int toPage = Math.min(fromPage + PAGES_PER_TASK, rf.getPosCount().getSize());
+				if (mayHoldRowIds(bitRowIds, rf, fromPage, toPage)) {
+					segments.add(new int[]{ifile, fromPage, toPage});
 				}
-				for (int ipage = 0; ipage < rf.getPosCount().getSize(); ipage++) {
+			}
+		}
+		AtomicBoolean stop = new AtomicBoolean();
 
-					// We need to process column in growing order, as if columns are in a single file, we can load column content only in growing order
-					long start = System.nanoTime();
-					for (int columnIndex : indexInOriginal) {
-						ColumnInput col = in.getColumn(columnIndex);
-						loadNextPage(indexInOriginal, rf, ipage, columnIndex, col);
+		if (ordered) {
+			// Tasks buffer their rows, which are given to the reader in order by the caller thread. The number of
+			// buffered tasks is bounded to the pool parallelism.
+			int window = BucketScanPool.getParallelism();
+			List<ForkJoinTask<BufferedLines>> tasks = new ArrayList<>();
+			for (int n = 0; n < segments.size(); n++) {
+				if (n == 0) {
+					for (int i = 0; i < Math.min(window, segments.size()); i++) {
+						tasks.add(submitBuffered(files, segments.get(i), line.getColumns(), bitRowIds, filter, readColumns, stop));
 					}
-					long stop = System.nanoTime();
-					long diff = (stop - start);
-					count += 1;
-					total += diff;
-					min = (diff < min) ? diff : min;
-					max = (diff > max) ? diff : max;
-
-					start = System.nanoTime();
-					for (int irow = 0; irow < rf.getPosCount().getInt(ipage); irow++) {
-						int rowId = in.getColumn(0).readInt();
-						if (bitRowIds != null && !bitRowIds.contains(rowId)) {
-							for (int n = 1; n < in.getColumnCount(); n++) {
-								in.getColumn(n).skipRow(store.getColumn(n - 1).getSize());
-							}
-							continue;
+				}
+				BufferedLines rows;
+				try {
+					rows = getResult(tasks.get(n));
+				} catch (IOException | RuntimeException e) {
+					stop.set(true);
+					throw e;
+				}
+				tasks.set(n, null);
+				if (n + window < segments.size()) {
+					tasks.add(submitBuffered(files, segments.get(n + window), line.getColumns(), bitRowIds, filter, readColumns, stop));
+				}
+				if (!rows.replay(line, liner)) {
+					stop.set(true);
+					return;
+				}
+			}
+		} else {
+			List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+			for (int[] segment : segments) {
+				tasks.add(BucketScanPool.submit(() -> {
+					RowFile rf = files.get(segment[0]);
+					LineReader taskLiner = (int rowId, Line l) -> {
+						if (!liner.readNext(rowId, l)) {
+							stop.set(true);
 						}
-						for (int n = 1; n < in.getColumnCount(); n++) {
-							int colId = columns[n - 1];
-							ColumnInput is = in.getColumn(n);
-
-							switch (store.getColumn(colId).getColumnType()) {
-								case TINYINT:
-									line.addLong(colId, Convert.byteToLong(is.readByte()));
-									break;
-								case SMALLINT:
-									line.addLong(colId, Convert.shortToLong(is.readShort()));
-									break;
-								case INT:
-									line.addLong(colId, Convert.intToLong(is.readInt()));
-									break;
-								case FLOAT:
-									line.addDouble(colId, is.readFloat());
-									break;
-								case BIGINT:
-									line.addLong(colId, is.readLong());
-									break;
-								case DOUBLE:
-									line.addDouble(colId, is.readDouble());
-									break;
-								case STRING:
-								case TIMESTAMP:
-								case DATE:
-									line.addString(colId, is.readStr());
-									break;
-							}
+						return !stop.get();
+					};
+					if (!stop.get()) {
+						readPagesInTask(rf, segment[1], segment[2], lines.get(), bitRowIds, filter, readColumns, taskLiner, stop);
+					}
+					return null;
+				}));
+			}
+			IOException error = null;
+			for (ForkJoinTask<Void> task : tasks) {
+				try {
+					getResult(task);
+				} catch (IOException e) {
+					stop.set(true);
+					error = (error == null) ? e : error;
+				}
+			}
+			if (error != null) {
+				throw error;
+			}
+			if (stop.get()) {
+				return;
+			}
+		}
+		// Rows of memtables follow the ones of row files
+		readMemPages(pages, line, bitRowIds, filter, readColumns, liner);
+	}
+
+	private ForkJoinTask<BufferedLines> submitBuffered(List<RowFile> files, int[] segment, int[] columns, RoaringBitmap bitRowIds, ColumnFilter filter, int[] readColumns, AtomicBoolean stop) {
+		return BucketScanPool.submit(() -> {
+			RowFile rf = files.get(segment[0]);
+			BufferedLines rows = new BufferedLines(columns);
+			if (!stop.get()) {
+				readPagesInTask(rf, segment[1], segment[2], rows, bitRowIds, filter, readColumns, (int rowId, Line l) -> {
+					rows.endRow(rowId);
+					return !stop.get();
+				}, stop);
+			}
+			return rows;
+		});
+	}
+
+	private boolean readPagesInTask(RowFile rf, int fromPage, int toPage, Line line, RoaringBitmap bitRowIds, ColumnFilter filter,
+			int[] readColumns, LineReader liner, AtomicBoolean stop) throws IOException {
+		ScanStats stats = new ScanStats();
+		try {
+			return readPages(rf, fromPage, toPage, line, bitRowIds, filter, readColumns, liner, stats);
+		} catch (IOException | RuntimeException e) {
+			// Other tasks do not need to go on
+			stop.set(true);
+			throw e;
+		} finally {
+			stats.log();
+		}
+	}
+
+	private static <T> T getResult(ForkJoinTask<T> task) throws IOException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while scanning");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Gets the columns to read: the projected ones, followed by the filtered column if it is not projected.
+	 *
+	 * @param columns
+	 * @param filter
+	 * @return
+	 */
+	private int[] getReadColumns(int[] columns, ColumnFilter filter) {
+		if (filter == null) {
+			return columns;
+		}
+		filter.check(store);
+		if (Ints.contains(columns, filter.getColumn())) {
+			return columns;
+		}
+		int[] readColumns = Arrays.copyOf(columns, columns.length + 1);
+		readColumns[columns.length] = filter.getColumn();
+		return readColumns;
+	}
+
+	/**
+	 * Reads the rows of a range of pages of a row file.
+	 *
+	 * @return false if the reader asked to stop
+	 */
+	private boolean readPages(RowFile rf, int fromPage, int toPage, Line line, RoaringBitmap bitRowIds, ColumnFilter filter,
+			int[] readColumns, LineReader liner, ScanStats stats) throws IOException {
+		if (!mayHoldRowIds(bitRowIds, rf, fromPage, toPage)) {
+			return true;
+		}
+		int filterIndex = (filter == null) ? -1 : Ints.indexOf(readColumns, filter.getColumn());
+		int[] indexInOriginal = computerIndexOfSorted(readColumns);
+		// Readers are resolved once, then pages are decoded column-at-a-time
+		ColumnReader[] readers = ColumnReader.plan(store, readColumns, line, sizePage);
+		ColumnReader filterReader = (filterIndex < 0) ? null : readers[filterIndex];
+		int[] rowIds = new int[sizePage];
+		RoaringBitmap deleted = rf.getDeleted();
+
+		try (MultiInputStream in = openReadCol(rf, readColumns)) {
+			int firstRow = 0;
+			if (fromPage > 0) {
+				if (oneFilePerColumn) {
+					// Pages of the previous tasks are skipped with one seek per column
+					for (int columnIndex : indexInOriginal) {
+						skipNextPages(indexInOriginal, rf, fromPage, columnIndex, in.getColumn(columnIndex));
+					}
+				}
+				for (int ipage = 0; ipage < fromPage; ipage++) {
+					if (!oneFilePerColumn) {
+						// Pages of the columns are interleaved in the single file
+						for (int columnIndex : indexInOriginal) {
+							skipNextPage(indexInOriginal, rf, ipage, columnIndex, in.getColumn(columnIndex));
 						}
-						if (!liner.readNext(rowId, line)) {
-							break loop;
+					}
+					firstRow += rf.getPosCount().getInt(ipage);
+				}
+			}
+			for (int ipage = fromPage; ipage < toPage; ipage++) {
+				int nbRows = rf.getPosCount().getInt(ipage);
+				int pageRow = firstRow;
+				firstRow += nbRows;
+				int nbDeleted = countDeleted(deleted, pageRow, nbRows);
+
+				if (nbDeleted == nbRows || !mayHoldRowIds(bitRowIds, rf.getZoneMap(0), ipage)
+						|| (filter != null && !filter.mayMatch(rf.getZoneMap(1 + filter.getColumn()), ipage))) {
+					// No row of this page can match: its bytes are skipped without being decoded
+					for (int columnIndex : indexInOriginal) {
+						skipNextPage(indexInOriginal, rf, ipage, columnIndex, in.getColumn(columnIndex));
+					}
+					continue;
+				}
+
+				// We need to process column in growing order, as if columns are in a single file, we can load column content only in growing order
+				long start = System.nanoTime();
+				for (int columnIndex : indexInOriginal) {
+					ColumnInput col = in.getColumn(columnIndex);
+					loadNextPage(indexInOriginal, rf, ipage, columnIndex, col);
+				}
+				stats.addLoad(System.nanoTime() - start);
+
+				start = System.nanoTime();
+				if (rowIds.length < nbRows) {
+					rowIds = new int[nbRows];
+				}
+				in.getColumn(0).readInts(rowIds, nbRows);
+				for (int n = 1; n < in.getColumnCount(); n++) {
+					readers[n - 1].read(in.getColumn(n), nbRows);
+				}
+				if (filterReader != null) {
+					filterReader.prepare(filter, in.getColumn(1 + filterIndex));
+				}
+				if (!readRows(rowIds, nbRows, (nbDeleted == 0) ? null : deleted, pageRow, readers, line, bitRowIds, filter, filterReader, liner)) {
+					return false;
+				}
+				stats.addBrowse(System.nanoTime() - start);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the rows of pages of memtables, as readPages does for row files.
+	 *
+	 * @return false if the reader asked to stop
+	 */
+	private boolean readMemPages(List<MemTable.Page> pages, Line line, RoaringBitmap bitRowIds, ColumnFilter filter,
+			int[] readColumns, LineReader liner) throws IOException {
+		if (pages.isEmpty()) {
+			return true;
+		}
+		int filterIndex = (filter == null) ? -1 : Ints.indexOf(readColumns, filter.getColumn());
+		ColumnReader[] readers = ColumnReader.plan(store, readColumns, line, sizePage);
+		ColumnReader filterReader = (filterIndex < 0) ? null : readers[filterIndex];
+		for (MemTable.Page page : pages) {
+			for (int n = 0; n < readColumns.length; n++) {
+				readers[n].read(page.getVector(readColumns[n]), page.getSize());
+			}
+			if (!readRows(page.getRowIds(), page.getSize(), null, 0, readers, line, bitRowIds, filter, filterReader, liner)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gives the rows of a page read by the readers to the line, when they are not deleted and match the row ids and
+	 * the filter.
+	 *
+	 * @param deleted the numbers of the deleted rows in the row file, null if no row of the page is deleted
+	 * @param firstRow the number of the first row of the page in the row file
+	 * @return false if the reader asked to stop
+	 */
+	private static boolean readRows(int[] rowIds, int nbRows, RoaringBitmap deleted, int firstRow, ColumnReader[] readers, Line line,
+			RoaringBitmap bitRowIds, ColumnFilter filter, ColumnReader filterReader, LineReader liner) throws IOException {
+		int nbProjected = line.getColumns().length;
+		for (int irow = 0; irow < nbRows; irow++) {
+			int rowId = rowIds[irow];
+			if ((deleted != null && deleted.contains(firstRow + irow)) || (bitRowIds != null && !bitRowIds.contains(rowId))
+					|| (filterReader != null && !filterReader.matches(filter, irow))) {
+				continue;
+			}
+			for (int n = 0; n < nbProjected; n++) {
+				readers[n].addTo(line, irow);
+			}
+			if (!liner.readNext(rowId, line)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Counts the deleted rows of a page.
+	 *
+	 * @param deleted the numbers of the deleted rows in the row file
+	 * @param firstRow the number of the first row of the page in the row file
+	 * @param nbRows
+	 * @return
+	 */
+	private static int countDeleted(RoaringBitmap deleted, int firstRow, int nbRows) {
+		if (deleted.isEmpty() || nbRows == 0) {
+			return 0;
+		}
+		return deleted.rank(firstRow + nbRows - 1) - ((firstRow == 0) ? 0 : deleted.rank(firstRow - 1));
+	}
+
+	@Override
+	public void readBatches(int[] columns, RoaringBitmap bitRowIds, BatchConsumer consumer) throws IOException {
+		long scan = startScan();
+		try {
+			scanBatches(columns, bitRowIds, consumer);
+		} finally {
+			endScan(scan);
+		}
+	}
+
+	private void scanBatches(int[] columns, RoaringBitmap bitRowIds, BatchConsumer consumer) throws IOException {
+		List<RowFile> files = new ArrayList<>();
+		List<MemTable.Page> pages = snapshot(files);
+		if (countCommit == 0 && pages.isEmpty()) {
+			return;
+		}
+		int[] indexInOriginal = computerIndexOfSorted(columns);
+		Batch batch = new Batch(store, columns, sizePage);
+
+		for (int ifile = 0; ifile < files.size(); ifile++) {
+			RowFile rf = files.get(ifile);
+			if (!mayHoldRowIds(bitRowIds, rf)) {
+				continue;
+			}
+
+			RoaringBitmap deleted = rf.getDeleted();
+			try (MultiInputStream in = openReadCol(rf, columns)) {
+				for (int ipage = 0, firstRow = 0; ipage < rf.getPosCount().getSize(); ipage++) {
+					int nbRows = rf.getPosCount().getInt(ipage);
+					int pageRow = firstRow;
+					firstRow += nbRows;
+					int nbDeleted = countDeleted(deleted, pageRow, nbRows);
+					if (nbDeleted == nbRows || !mayHoldRowIds(bitRowIds, rf.getZoneMap(0), ipage)) {
+						for (int columnIndex : indexInOriginal) {
+							skipNextPage(indexInOriginal, rf, ipage, columnIndex, in.getColumn(columnIndex));
 						}
+						continue;
+					}
+					// Same as readLines, pages have to be loaded in growing column order
+					for (int columnIndex : indexInOriginal) {
+						loadNextPage(indexInOriginal, rf, ipage, columnIndex, in.getColumn(columnIndex));
+					}
+					batch.reset(nbRows);
+					in.getColumn(0).readInts(batch.getRowIds(), nbRows);
+					for (int n = 1; n < in.getColumnCount(); n++) {
+						readVector(in.getColumn(n), store.getColumn(columns[n - 1]), batch.getVector(n - 1), nbRows);
+					}
+					if (nbDeleted > 0) {
+						batch.remove(deleted, pageRow);
+					}
+					if (bitRowIds != null) {
+						batch.retain(bitRowIds);
+					}
+					if (batch.getSize() > 0 && !consumer.readBatch(batch)) {
+						return;
 					}
-					stop = System.nanoTime();
-					diff = (stop - start);
-					countB += 1;
-					totalB += diff;
-					minB = (diff < min) ? diff : min;
-					maxB = (diff > max) ? diff : max;
 				}
 			}
 		}
-		if (LOGGER.isDebugEnabled()) {
-			LOGGER.debug("loadPages count={}, total ={}, avg ={}, min={}, max={}", count, total / 1000000.F, (total / count) / 1000000.F, min / 1000000.F, max / 1000000.F);
-			LOGGER.debug("browse count={}, total ={}, avg ={}, min={}, max={}", countB, totalB / 1000000.F, (totalB / countB) / 1000000.F, minB / 1000000.F, maxB / 1000000.F);
+		for (MemTable.Page page : pages) {
+			batch.reset(page.getSize());
+			System.arraycopy(page.getRowIds(), 0, batch.getRowIds(), 0, page.getSize());
+			for (int n = 0; n < columns.length; n++) {
+				batch.getVector(n).copy(page.getVector(columns[n]), page.getSize());
+			}
+			if (bitRowIds != null) {
+				batch.retain(bitRowIds);
+			}
+			if (batch.getSize() > 0 && !consumer.readBatch(batch)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Checks if some of the given row ids may be in the row file.
+	 *
+	 * @param bitRowIds the row ids to read, or null to read all rows
+	 * @param rf
+	 * @return
+	 */
+	private static boolean mayHoldRowIds(RoaringBitmap bitRowIds, RowFile rf) {
+		return mayHoldRowIds(bitRowIds, rf, 0, rf.getPosCount().getSize());
+	}
+
+	/**
+	 * Checks if some of the given row ids may be in a range of pages of the row file.
+	 *
+	 * @param bitRowIds the row ids to read, or null to read all rows
+	 * @param rf
+	 * @param fromPage
+	 * @param toPage
+	 * @return
+	 */
+	private static boolean mayHoldRowIds(RoaringBitmap bitRowIds, RowFile rf, int fromPage, int toPage) {
+		if (bitRowIds == null) {
+			return true;
+		}
+		for (int ipage = fromPage; ipage < toPage; ipage++) {
+			if (mayHoldRowIds(bitRowIds, rf.getZoneMap(0), ipage)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if some of the given row ids are in the id range of a page.
+	 *
+	 * @param bitRowIds the row ids to read, or null to read all rows
+	 * @param ids the statistics of the id column
+	 * @param ipage
+	 * @return
+	 */
+	private static boolean mayHoldRowIds(RoaringBitmap bitRowIds, ZoneMap ids, int ipage) {
+		if (bitRowIds == null || ipage >= ids.getSize()) {
+			return true;
+		}
+		long min = ids.getMin(ipage);
+		long max = ids.getMax(ipage);
+		if (min < 0) {
+			// The bitmap orders ids as unsigned values
+			return true;
+		}
+		int before = (min == 0) ? 0 : bitRowIds.rank((int) min - 1);
+		return bitRowIds.rank((int) max) > before;
+	}
+
+	private void readVector(ColumnInput is, Column column, ColumnVector vector, int nbRows) throws IOException {
+		ColumnType type = column.getColumnType();
+		if (ColumnVector.isLong(type)) {
+			is.readLongs(vector.getLongs(), nbRows, column.getSize());
+		} else if (ColumnVector.isDouble(type)) {
+			is.readDoubles(vector.getDoubles(), nbRows, column.getSize());
+		} else {
+			vector.setBytes(is.readStrs(vector.getOffsets(), vector.getLengths(), nbRows));
 		}
 	}
 
@@ -476,6 +1226,26 @@ public class PageBucket extends Bucket {
 		}
 	}
 
+	private void skipNextPage(int[] indexInOriginal, RowFile rf, int ipage, int columnIndex, ColumnInput col) {
+		try {
+			col.skipPage();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Issue on bucket=" + this.directory + " page=" + ipage + " on file=" + rf.getPost() + " on store="
+					+ store.getName() + " at column " + columnIndex + "/"
+					+ Arrays.toString(indexInOriginal), e);
+		}
+	}
+
+	private void skipNextPages(int[] indexInOriginal, RowFile rf, int nbPages, int columnIndex, ColumnInput col) {
+		try {
+			col.skipPages(nbPages);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Issue on bucket=" + this.directory + " pages=0-" + nbPages + " on file=" + rf.getPost() + " on store="
+					+ store.getName() + " at column " + columnIndex + "/"
+					+ Arrays.toString(indexInOriginal), e);
+		}
+	}
+
 	protected int[] computerIndexOfSorted(int[] columnIds) {
 		// We need to sort the column to be read. We always read the column index=0, and the next columns are appended in 'in'
 		return IntStream
@@ -483,17 +1253,6 @@ public class PageBucket extends Bucket {
 				.toArray();
 	}
 
-	private boolean isDeleted(RowFile rf, int irowNum, int rowId) {
-		long rowNum = rf.getStartCount() + irowNum;
-		if (rowNum >= countDelete) {
-			return false;
-		}
-		if (deleteRowNums != null && deleteRowNums.contains(rowNum)) {
-			return true;
-		}
-		return deleteRowIds != null && deleteRowIds.contains(rowId);
-	}
-
 	private void load(RowFile rf, BucketLoader loader) throws IOException {
 		int columns = store.getNumberOfColumns();
 		try (MultiInputStream in = openReadCol(rf)) {
@@ -510,7 +1269,7 @@ public class PageBucket extends Bucket {
 					for (int n = 0; n < columns; n++) {
 						lg[n] = in.getColumn(1 + n).readRow(buf[n], store.getColumn(n).getSize());
 					}
-					if (isDeleted(rf, rowNum, rowId)) {
+					if (rf.getDeleted().contains(rowNum)) {
 						continue;
 					}
 					loader.load(rowNum, rowId, buf, lg);
@@ -544,7 +1303,7 @@ public class PageBucket extends Bucket {
 				for (int irow = 0; irow < rf.getPosCount().getInt(ipage); irow++, rowNum++) {
 					int rowId = in.getColumn(0).readInt();
 					int lg = in.getColumn(1).readRow(buf, store.getColumn(icol).getSize());
-					if (isDeleted(rf, rowNum, rowId)) {
+					if (rf.getDeleted().contains(rowNum)) {
 						continue;
 					}
 					loader.loadOne(rowNum, rowId, buf, lg);
@@ -559,34 +1318,207 @@ public class PageBucket extends Bucket {
 		}
 	}
 
+	/**
+	 * Keeps the rows deleted since the last commit in the deletion vectors of their row files, which scans skip.
+	 * Rows are not written again: row files holding enough deleted rows are compacted in the background, see
+	 * {@link #merge()}.
+	 *
+	 * @throws IOException
+	 */
 	@Override
 	protected void compact() throws IOException {
 		if (deleteRowNums == null && deleteRowIds == null) {
 			return;
 		}
 		long time = System.currentTimeMillis();
-		final PageBucket buc = new PageBucket(store);
-		buc.init(directory, path + "c");
-		buc.initOut();
-		mergeTo(buc);
-		buc.close();
-		drop();
-		init(buc);
+		// Rows of memtables are written in row files, to be deleted as the other ones
+		if (memTable != null && memTable.getSize() > 0) {
+			flush(memTable);
+		} else if (memTable != null) {
+			dropMemTable();
+		}
+		awaitFlush();
+		RoaringBitmap rowIds = (deleteRowIds == null) ? null : deleteRowIds.getInts();
+		int nbDeleted = 0;
+		boolean done = false;
+		while (!done) {
+			List<RowFile> files;
+			synchronized (this) {
+				files = new ArrayList<>(rowFiles.subList(0, rowFilesCommit));
+			}
+			List<RoaringBitmap> deleted = findDeletedRows(files, rowIds);
+			synchronized (this) {
+				// Row files replaced by a merge in the meantime are searched again
+				done = rowFiles.subList(0, rowFilesCommit).equals(files);
+				if (done) {
+					for (int n = 0; n < files.size(); n++) {
+						RowFile rf = files.get(n);
+						if (!deleted.get(n).isEmpty()) {
+							RoaringBitmap rows = RoaringBitmap.or(rf.getDeleted(), deleted.get(n));
+							nbDeleted += rows.getCardinality() - rf.getDeleted().getCardinality();
+							rowFiles.set(n, rf.withDeleted(rows));
+						}
+					}
+				}
+			}
+		}
 		deleteRowNums = deleteRowIds = null;
-		LOGGER.info("Compacting bucket " + path + " in " + (System.currentTimeMillis() - time) + " ms.");
+		mergeInBackground();
+		LOGGER.info("Deleting " + nbDeleted + " rows of bucket " + path + " in " + (System.currentTimeMillis() - time) + " ms.");
+	}
+
+	/**
+	 * Finds the committed rows deleted before the last commit.
+	 *
+	 * @param files the committed row files
+	 * @param rowIds the deleted row ids, null if rows are only deleted by number
+	 * @return the number of each deleted row in its row file, for each row file
+	 * @throws IOException
+	 */
+	private List<RoaringBitmap> findDeletedRows(List<RowFile> files, RoaringBitmap rowIds) throws IOException {
+		List<RoaringBitmap> deleted = new ArrayList<>(files.size());
+		long[] starts = new long[files.size()];
+		for (int n = 0; n < files.size(); n++) {
+			deleted.add(new RoaringBitmap());
+			starts[n] = files.get(n).getStartCount();
+		}
+		if (deleteRowNums != null) {
+			deleteRowNums.forEach(rowNum -> {
+				if (rowNum >= countDelete) {
+					// Rows added after the deletes are kept
+					return;
+				}
+				int ifile = Arrays.binarySearch(starts, rowNum);
+				ifile = (ifile >= 0) ? ifile : -ifile - 2;
+				if (ifile >= 0) {
+					RowFile rf = files.get(ifile);
+					int irow = getRowIndex(rf, rowNum - rf.getStartCount());
+					if (irow >= 0) {
+						deleted.get(ifile).add(irow);
+					}
+				}
+			});
+		}
+		if (rowIds != null) {
+			for (int n = 0; n < files.size(); n++) {
+				RowFile rf = files.get(n);
+				if (rf.getStartCount() < countDelete && mayHoldRowIds(rowIds, rf)) {
+					findDeletedRows(rf, rowIds, deleted.get(n));
+				}
+			}
+		}
+		return deleted;
 	}
 
-	private void mergeTo(final PageBucket buc) throws IOException {
-		load(new BucketLoader() {
-			@Override
-			public void load(int rowNum, int rowId, byte[][] buf, int[] size) throws IOException {
-				buc.out[0].writeInt(rowId);
-				for (int n = 0; n < store.getNumberOfColumns(); n++) {
-					buc.out[n + 1].writeRow(buf[n], size[n]);
+	/**
+	 * Finds the rows of a row file holding deleted row ids.
+	 *
+	 * @param rf
+	 * @param rowIds the deleted row ids
+	 * @param deleted receives the number of each deleted row in the row file
+	 * @throws IOException
+	 */
+	private void findDeletedRows(RowFile rf, RoaringBitmap rowIds, RoaringBitmap deleted) throws IOException {
+		// Rows added after the deletes are kept
+		long lastOffset = Math.min(countDelete - rf.getStartCount(), countRows(rf) + rf.getRemoved().getCardinality()) - 1;
+		int nbRows = (lastOffset < 0) ? 0 : (int) (lastOffset + 1) - rf.getRemoved().rank((int) lastOffset);
+		// Only ids are read, or computed when they are arithmetic sequences
+		try (ColumnInput in = openReadIds(rf, true)) {
+			int[] ids = new int[sizePage];
+			for (int ipage = 0, irow = 0; ipage < rf.getPosCount().getSize() && irow < nbRows; ipage++) {
+				int nb = rf.getPosCount().getInt(ipage);
+				if (!mayHoldRowIds(rowIds, rf.getZoneMap(0), ipage)) {
+					in.skipPage();
+					irow += nb;
+					continue;
+				}
+				if (ids.length < nb) {
+					ids = new int[nb];
+				}
+				in.newPage();
+				in.readInts(ids, nb);
+				for (int n = 0; n < nb && irow + n < nbRows; n++) {
+					if (rowIds.contains(ids[n])) {
+						deleted.add(irow + n);
+					}
 				}
-				buc.addRow();
+				irow += nb;
 			}
-		});
+		}
+	}
+
+	/**
+	 * Gets the number in a row file of the row numbered startCount + offset in the bucket. Rows keep their number
+	 * when rows of their row file are removed.
+	 *
+	 * @param rf
+	 * @param offset
+	 * @return the number of the row in the row file, -1 if the row file does not hold it anymore
+	 */
+	private static int getRowIndex(RowFile rf, long offset) {
+		RoaringBitmap removed = rf.getRemoved();
+		if (offset < 0 || offset >= countRows(rf) + removed.getCardinality() || removed.contains((int) offset)) {
+			return -1;
+		}
+		return (int) offset - removed.rank((int) offset);
+	}
+
+	/**
+	 * Gets the offset from startCount of the row of a row file with the given number.
+	 *
+	 * @param removed the removed rows of the row file
+	 * @param irow the number of the row in the row file
+	 * @return
+	 */
+	private static int getRowOffset(RoaringBitmap removed, int irow) {
+		int offset = irow;
+		for (int skipped = removed.rank(offset); offset != irow + skipped; skipped = removed.rank(offset)) {
+			offset = irow + skipped;
+		}
+		return offset;
+	}
+
+	/**
+	 * Copies a page of all columns of a row file, and its statistics, to a row file being written.
+	 *
+	 * @param source
+	 * @param ipage
+	 * @param in the columns of the source, at the page
+	 * @param cols the columns of the written row file
+	 * @param rf the written row file
+	 * @throws IOException
+	 */
+	private void copyPage(RowFile source, int ipage, MultiInputStream in, ColumnOutput[] cols, RowFile rf) throws IOException {
+		// Columns are copied in order, as they may share the same file
+		for (int n = 0; n < cols.length; n++) {
+			if (n == 0 || !store.getColumn(n - 1).isCalculated()) {
+				in.getColumn(n).copyPage(cols[n]);
+			}
+		}
+		for (int n = 0; n < rf.getPos().length; n++) {
+			ZoneMap stats = source.getZoneMap(n);
+			if (ipage < stats.getSize()) {
+				rf.getZoneMap(n).add(stats.getMin(ipage), stats.getMax(ipage), stats.getNulls(ipage));
+			}
+		}
+		rf.getIdSteps().add(source.getIdSteps().getInt(ipage));
+		rf.getPosCount().add(source.getPosCount().getInt(ipage));
+	}
+
+	/**
+	 * Gets the size of the pages of all columns of a row file.
+	 *
+	 * @param rf
+	 * @return
+	 */
+	private static long countBytes(RowFile rf) {
+		long bytes = 0;
+		for (ArrayInt pos : rf.getPos()) {
+			for (int ipage = 0; ipage < pos.getSize(); ipage++) {
+				bytes += pos.getInt(ipage);
+			}
+		}
+		return bytes;
 	}
 
 	@Override
@@ -603,11 +1535,298 @@ public class PageBucket extends Bucket {
 			out = null;
 			modified = true;
 		}
+		if (memTable != null) {
+			if (flushTask != null && flushTask.isDone()) {
+				// Reports the failure of previous writes
+				awaitFlush();
+			}
+			memTable.commit();
+			if (memTable.getSize() >= store.getMemTableRows()) {
+				flush(memTable);
+			}
+		}
 		initCommitValues();
+		mergeInBackground();
+	}
+
+	/**
+	 * Starts merging or compacting row files in the background, unless it is already running.
+	 *
+	 * @throws IOException if the previous merge failed
+	 */
+	private void mergeInBackground() throws IOException {
+		if (mergeTask != null && mergeTask.isDone()) {
+			awaitMerge();
+		}
+		if (mergeTask == null) {
+			merge();
+		}
+	}
+
+	/**
+	 * Starts merging small committed row files in the background, when enough of them of the same size tier follow
+	 * each other. Files of a tier hold up to minFiles times more rows than the ones of the previous tier, so that rows
+	 * are rewritten once per tier. Otherwise, the first row file holding enough deleted rows is compacted. Scans read
+	 * the files until the written row file replaces them.
+	 */
+	private synchronized void merge() {
+		int minFiles = Configuration.getMergeFiles();
+		long maxRows = Configuration.getMergeRows();
+		List<RowFile> sources = new ArrayList<>();
+		long rows = 0;
+		int tier = -1;
+		for (int ifile = 0; ifile < rowFilesCommit && minFiles >= 2; ifile++) {
+			long fileRows = countRows(rowFiles.get(ifile));
+			// Large files are not merged
+			int fileTier = (fileRows >= maxRows) ? -1 : tier(fileRows, minFiles);
+			if (fileTier != tier || rows + fileRows > maxRows) {
+				if (sources.size() >= minFiles) {
+					break;
+				}
+				sources.clear();
+				rows = 0;
+				tier = fileTier;
+			}
+			if (fileTier >= 0) {
+				sources.add(rowFiles.get(ifile));
+				rows += fileRows;
+			}
+		}
+		if (sources.size() < minFiles || minFiles < 2) {
+			sources.clear();
+			for (int ifile = 0; ifile < rowFilesCommit; ifile++) {
+				RowFile rf = rowFiles.get(ifile);
+				int nbDeleted = rf.getDeleted().getCardinality();
+				if (nbDeleted > 0 && nbDeleted >= Configuration.getCompactRatio() * countRows(rf)) {
+					sources.add(rf);
+					break;
+				}
+			}
+		}
+		if (!sources.isEmpty()) {
+			// Rows deleted while the files are written are kept in the written row file
+			List<RoaringBitmap> deleted = new ArrayList<>();
+			for (RowFile source : sources) {
+				deleted.add(source.getDeleted());
+			}
+			mergeTask = BucketWritePool.submit(() -> {
+				mergeRowFiles(sources, deleted);
+				return null;
+			});
+		}
+	}
+
+	private static int tier(long rows, int base) {
+		int tier = 0;
+		for (long n = rows; n >= base; n /= base) {
+			tier++;
+		}
+		return tier;
+	}
+
+	private static long countRows(RowFile rf) {
+		long rows = 0;
+		for (int ipage = 0; ipage < rf.getPosCount().getSize(); ipage++) {
+			rows += rf.getPosCount().getInt(ipage);
+		}
+		return rows;
+	}
+
+	/**
+	 * Waits for the running merge of row files.
+	 *
+	 * @throws IOException
+	 */
+	void awaitMerge() throws IOException {
+		ForkJoinTask<Void> task = mergeTask;
+		if (task != null) {
+			mergeTask = null;
+			getResult(task);
+		}
+	}
+
+	/**
+	 * Writes the rows of row files following each other, which are not deleted, in a new row file which replaces
+	 * them. Large pages without deleted rows are copied as they are stored, the rows of the other pages are gathered
+	 * in full pages.
+	 *
+	 * @param sources
+	 * @param deleted the deleted rows of each row file
+	 * @throws IOException
+	 */
+	private void mergeRowFiles(List<RowFile> sources, List<RoaringBitmap> deleted) throws IOException {
+		long time = System.currentTimeMillis();
+		long startCount = sources.get(0).getStartCount();
+		RowFile rf = new RowFile(store.getNumberOfColumns()).init(nextPost(), startCount);
+		int[] columns = getAllColIds();
+		int[] indexInOriginal = computerIndexOfSorted(columns);
+		Batch batch = new Batch(store, columns, sizePage);
+		ColumnVector[] vectors = new ColumnVector[columns.length];
+		for (int n = 0; n < columns.length; n++) {
+			vectors[n] = batch.getVector(n);
+		}
+		ColumnOutput[] cols = openWriteCol(rf, columns, true);
+		int pending = 0;
+		try {
+			for (int isource = 0; isource < sources.size(); isource++) {
+				RowFile source = sources.get(isource);
+				RoaringBitmap sourceDeleted = deleted.get(isource);
+				int nbPages = source.getPosCount().getSize();
+				// Statistics of copied pages are copied too, which needs the ones of every page
+				boolean copyPages = source.getIdSteps().getSize() == nbPages && source.getZoneMap(0).getSize() == nbPages;
+				try (MultiInputStream in = openReadCol(source, columns, !copyPages)) {
+					for (int ipage = 0, firstRow = 0; ipage < nbPages; ipage++) {
+						int nbRows = source.getPosCount().getInt(ipage);
+						int pageRow = firstRow;
+						firstRow += nbRows;
+						int nbDeleted = countDeleted(sourceDeleted, pageRow, nbRows);
+						if (nbDeleted == 0 && copyPages && nbRows >= sizePage / 2) {
+							if (pending > 0) {
+								writePage(cols);
+								rf.getPosCount().add(pending);
+								pending = 0;
+							}
+							copyPage(source, ipage, in, cols, rf);
+							continue;
+						}
+						if (nbDeleted == nbRows) {
+							for (int columnIndex : indexInOriginal) {
+								skipNextPage(indexInOriginal, source, ipage, columnIndex, in.getColumn(columnIndex));
+							}
+							continue;
+						}
+						for (int columnIndex : indexInOriginal) {
+							loadNextPage(indexInOriginal, source, ipage, columnIndex, in.getColumn(columnIndex));
+						}
+						batch.reset(nbRows);
+						in.getColumn(0).readInts(batch.getRowIds(), nbRows);
+						for (int n = 1; n < in.getColumnCount(); n++) {
+							readVector(in.getColumn(n), store.getColumn(columns[n - 1]), vectors[n - 1], nbRows);
+						}
+						if (nbDeleted > 0) {
+							batch.remove(sourceDeleted, pageRow);
+						}
+						// Rows of small pages are gathered in full pages, values being copied by the outputs
+						for (int from = 0; from < batch.getSize();) {
+							int nb = Math.min(batch.getSize() - from, sizePage - pending);
+							writeVectors(cols, batch.getRowIds(), vectors, from, nb);
+							from += nb;
+							pending += nb;
+							if (pending == sizePage) {
+								writePage(cols);
+								rf.getPosCount().add(pending);
+								pending = 0;
+							}
+						}
+					}
+				}
+			}
+			if (pending > 0) {
+				writePage(cols);
+				rf.getPosCount().add(pending);
+			}
+			for (ColumnOutput co : cols) {
+				if (co != null) {
+					co.close();
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			IO.close(cols);
+			throw e;
+		}
+		// Rows keep their number: the removed ones are kept with the offset of their row file
+		RoaringBitmap removed = rf.getRemoved();
+		long endCount = startCount;
+		for (int isource = 0; isource < sources.size(); isource++) {
+			RowFile source = sources.get(isource);
+			int offset = (int) (source.getStartCount() - startCount);
+			if (source.getStartCount() > endCount) {
+				removed.add((int) (endCount - startCount), offset);
+			}
+			IntIterator it = source.getRemoved().getIntIterator();
+			while (it.hasNext()) {
+				removed.add(offset + it.next());
+			}
+			it = deleted.get(isource).getIntIterator();
+			while (it.hasNext()) {
+				removed.add(offset + getRowOffset(source.getRemoved(), it.next()));
+			}
+			endCount = source.getStartCount() + countRows(source) + source.getRemoved().getCardinality();
+		}
+		synchronized (this) {
+			// Sources were replaced by copies if rows were deleted since they were read
+			int from = indexOf(sources.get(0).getPost());
+			List<RowFile> current = rowFiles.subList(from, from + sources.size());
+			// Rows deleted since the files were read are numbered in the written row file
+			RoaringBitmap rows = new RoaringBitmap();
+			int firstRow = 0;
+			for (int isource = 0; isource < sources.size(); isource++) {
+				RoaringBitmap before = deleted.get(isource);
+				RoaringBitmap after = current.get(isource).getDeleted();
+				if (after != before) {
+					IntIterator it = RoaringBitmap.andNot(after, before).getIntIterator();
+					while (it.hasNext()) {
+						int irow = it.next();
+						rows.add(firstRow + irow - before.rank(irow));
+					}
+				}
+				firstRow += countRows(sources.get(isource)) - before.getCardinality();
+			}
+			rf = rf.withDeleted(rows);
+			current.clear();
+			rowFilesCommit -= sources.size();
+			if (rf.getPosCount().getSize() > 0) {
+				rowFiles.add(from, rf);
+				rowFilesCommit++;
+			} else {
+				// All rows were deleted
+				replaced(getRowFilePaths(rf));
+			}
+			for (RowFile source : sources) {
+				replaced(getRowFilePaths(source));
+				size -= countBytes(source);
+			}
+			size += countBytes(rf);
+		}
+		LOGGER.info("Writing " + sources.size() + " row files of " + path + " in " + (System.currentTimeMillis() - time) + " ms.");
+	}
+
+	/**
+	 * Gets the index of a row file in the list of row files, from its suffix.
+	 *
+	 * @param post
+	 * @return
+	 */
+	private int indexOf(String post) {
+		for (int n = 0; n < rowFiles.size(); n++) {
+			if (rowFiles.get(n).getPost().equals(post)) {
+				return n;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the paths of the files of a row file.
+	 *
+	 * @param rf
+	 * @return
+	 */
+	private List<String> getRowFilePaths(RowFile rf) {
+		List<String> paths = new ArrayList<>();
+		paths.add(getColPath(ID + rf.getPost()));
+		if (oneFilePerColumn) {
+			for (int n = 0; n < store.getNumberOfColumns(); n++) {
+				paths.add(getColPath(COL + n + rf.getPost()));
+			}
+		} else {
+			paths.add(getColPath(COL + TAG_SINGLE_FILE_ALL_COLUMNS + rf.getPost()));
+		}
+		return paths;
 	}
 
 	@Override
-	protected void initCommitValues() throws IOException {
+	protected synchronized void initCommitValues() throws IOException {
 		super.initCommitValues();
 		rowFilesCommit = rowFiles.size();
 	}
@@ -627,32 +1846,172 @@ public class PageBucket extends Bucket {
 			for (int n = 0; n < store.getNumberOfColumns(); n++) {
 				store.getDevice().delete(getColPath(COL + n + rowFile.getPost()));
 			}
-			rowFiles.remove(rowFiles.size() - 1);
-			rowFilesCommit = rowFiles.size();
+			synchronized (this) {
+				rowFiles.remove(rowFile);
+				rowFilesCommit = rowFiles.size();
+			}
 			out = null;
 		}
+		if (memTable != null) {
+			memTable.rollback();
+		}
 		deleteRowNums = deleteRowIds = null;
 	}
 
+	/**
+	 * Deletes files no longer referenced by saved indexes, unless scans started before they were replaced are still
+	 * running.
+	 *
+	 * @param paths
+	 * @param kept receives the files that are not deleted
+	 * @throws IOException
+	 */
+	private void deleteFiles(List<String> paths, List<String> kept) throws IOException {
+		for (String file : paths) {
+			Long scan = replacedScans.get(file);
+			if (scan != null && !scans.isEmpty() && scans.first() <= scan) {
+				kept.add(file);
+			} else {
+				store.getDevice().delete(file);
+				replacedScans.remove(file);
+			}
+		}
+		paths.clear();
+	}
+
 	@Override
-	public void save(DataOutputStream indexOut) throws IOException {
+	public synchronized void save(DataOutputStream indexOut) throws IOException {
+		// Files replaced before the previous save are no longer referenced by the saved index
+		deleteFiles(obsoleteFiles, replacedFiles);
 		super.save(indexOut);
 		IO.save(indexOut, colFormat, colFormat.length);
+		// Indexes without version directly hold the number of row files, which can not be negative
+		indexOut.writeInt(-INDEX_VERSION);
+		IO.save(indexOut, colCodec, colCodec.length);
 		indexOut.writeInt(rowFiles.size());
 		for (RowFile sav : rowFiles) {
 			sav.save(indexOut);
 		}
+		List<MemTable> tables = new ArrayList<>(flushing);
+		if (memTable != null) {
+			tables.add(memTable);
+		}
+		indexOut.writeInt(logCount);
+		indexOut.writeInt(tables.size());
+		for (MemTable table : tables) {
+			IO.save(indexOut, table.getPost());
+			indexOut.writeLong(table.getStartCount());
+			// Only closed segments are durable, the following ones are found when the log is replayed
+			indexOut.writeInt(table.getSegments());
+		}
+		List<String> files = obsoleteFiles;
+		obsoleteFiles = replacedFiles;
+		replacedFiles = files;
+		// Files are deleted at the next save, even if the store is loaded again from this index
+		indexOut.writeInt(obsoleteFiles.size());
+		for (String file : obsoleteFiles) {
+			IO.save(indexOut, file.substring(getColPath("").length()));
+		}
 	}
 
 	@Override
 	public Bucket load(String absolutePrefix, DataInputStream stream) throws IOException {
 		super.load(absolutePrefix, stream);
 		colFormat = IO.load(stream, colFormat);
+		int version = 0;
 		int nbFiles = stream.readInt();
+		if (nbFiles < 0) {
+			version = -nbFiles;
+			if (version >= 3) {
+				colCodec = IO.load(stream, colCodec);
+			}
+			nbFiles = stream.readInt();
+		}
+		if (version < 3) {
+			// Pages were compressed with the default codec of their format
+			for (int n = 0; n < colFormat.length; n++) {
+				colCodec[n] = (colFormat[n] == 0) ? 0 : defaultCodec(colFormat[n]).getId();
+			}
+		}
 		for (int n = 0; n < nbFiles; n++) {
-			rowFiles.add(new RowFile(store.getNumberOfColumns()).load(stream));
+			RowFile rf = new RowFile(store.getNumberOfColumns()).load(stream, version);
+			rowFiles.add(rf);
+			// Row files are named from their creation order, which merges do not keep
+			rowFileCount = Math.max(rowFileCount, Integer.parseInt(rf.getPost().substring(1)) + 1);
 		}
 		rowFilesCommit = rowFiles.size();
+		if (version >= 4) {
+			logCount = stream.readInt();
+			int nbLogs = stream.readInt();
+			for (int n = 0; n < nbLogs; n++) {
+				// Rows committed after the index was saved are found in the log
+				MemTable table = new MemTable(store, getColPath(LOG), IO.loadString(stream), stream.readLong());
+				table.replay((version >= 6) ? stream.readInt() : 0);
+				replayed(table);
+			}
+			// Memtables created after the index was saved are found from their log
+			while (store.getDevice().exists(getColPath(LOG) + "_" + logCount)) {
+				MemTable table = new MemTable(store, getColPath(LOG), "_" + logCount++, count);
+				table.replay(0);
+				replayed(table);
+			}
+			initCommitValues();
+		}
+		if (version >= 7) {
+			int nbObsolete = stream.readInt();
+			for (int n = 0; n < nbObsolete; n++) {
+				obsoleteFiles.add(getColPath(IO.loadString(stream)));
+			}
+		}
 		return this;
 	}
+
+	/**
+	 * Makes a replayed memtable the one receiving added rows, the previous one being written in a row file.
+	 */
+	private void replayed(MemTable table) throws IOException {
+		if (memTable != null && memTable.getSize() > 0) {
+			flush(memTable);
+		} else if (memTable != null) {
+			dropMemTable();
+		}
+		memTable = table;
+		count = table.getStartCount() + table.getSize();
+	}
+
+	/**
+	 * Timings of page loading and browsing, logged in debug.
+	 */
+	private static class ScanStats {
+
+		private long count;
+		private long total;
+		private long min = Long.MAX_VALUE;
+		private long max;
+		private long countB;
+		private long totalB;
+		private long minB = Long.MAX_VALUE;
+		private long maxB;
+
+		void addLoad(long diff) {
+			count += 1;
+			total += diff;
+			min = (diff < min) ? diff : min;
+			max = (diff > max) ? diff : max;
+		}
+
+		void addBrowse(long diff) {
+			countB += 1;
+			totalB += diff;
+			minB = (diff < minB) ? diff : minB;
+			maxB = (diff > maxB) ? diff : maxB;
+		}
+
+		void log() {
+			if (LOGGER.isDebugEnabled() && count > 0) {
+				LOGGER.debug("loadPages count={}, total ={}, avg ={}, min={}, max={}", count, total / 1000000.F, (total / count) / 1000000.F, min / 1000000.F, max / 1000000.F);
+				LOGGER.debug("browse count={}, total ={}, avg ={}, min={}, max={}", countB, totalB / 1000000.F, (totalB / countB) / 1000000.F, minB / 1000000.F, maxB / 1000000.F);
+			}
+		}
+	}
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import com.github.luben.zstd.Zstd;
+import java.io.IOException;
+import net.jpountz.lz4.LZ4Factory;
+import org.iq80.snappy.Snappy;
+import org.kstore.utils.Convert;
+import org.kstore.utils.IO;
+
+/**
+ * The compression codec of the pages of a column.
+ * <p>
+ * LZ4 and ZSTD pages start with their uncompressed size. The codec of each column is kept in the bucket index, so it
+ * can be changed without making existing buckets unreadable.
+ */
+public enum PageCodec {
+
+	NONE(0) {
+		@Override
+		public int maxCompressedLength(int len) {
+			return len;
+		}
+
+		@Override
+		public int compress(byte[] src, int len, byte[] dst) {
+			System.arraycopy(src, 0, dst, 0, len);
+			return len;
+		}
+
+		@Override
+		public int uncompressedLength(byte[] src, int off, int len) {
+			return len;
+		}
+
+		@Override
+		public int uncompress(byte[] src, int off, int len, byte[] dst) {
+			System.arraycopy(src, off, dst, 0, len);
+			return len;
+		}
+	},
+	SNAPPY(1) {
+		@Override
+		public int maxCompressedLength(int len) {
+			return Snappy.maxCompressedLength(len);
+		}
+
+		@Override
+		public int compress(byte[] src, int len, byte[] dst) {
+			return Snappy.compress(src, 0, len, dst, 0);
+		}
+
+		@Override
+		public int uncompressedLength(byte[] src, int off, int len) {
+			return Snappy.getUncompressedLength(src, off);
+		}
+
+		@Override
+		public int uncompress(byte[] src, int off, int len, byte[] dst) {
+			return Snappy.uncompress(src, off, len, dst, 0);
+		}
+	},
+	/** Fast decompression, for frequently read columns. */
+	LZ4(2) {
+		@Override
+		public int maxCompressedLength(int len) {
+			return 4 + LZ4Factory.fastestInstance().fastCompressor().maxCompressedLength(len);
+		}
+
+		@Override
+		public int compress(byte[] src, int len, byte[] dst) {
+			IO.writeInt(len, dst, 0);
+			return 4 + LZ4Factory.fastestInstance().fastCompressor().compress(src, 0, len, dst, 4, dst.length - 4);
+		}
+
+		@Override
+		public int uncompressedLength(byte[] src, int off, int len) {
+			return Convert.readInt(src, off);
+		}
+
+		@Override
+		public int uncompress(byte[] src, int off, int len, byte[] dst) {
+			int size = Convert.readInt(src, off);
+			LZ4Factory.fastestInstance().fastDecompressor().decompress(src, off + 4, dst, 0, size);
+			return size;
+		}
+	},
+	/** High compression ratio at the level of the configuration, for cold data. */
+	ZSTD(3) {
+		@Override
+		public int maxCompressedLength(int len) {
+			return 4 + (int) Zstd.compressBound(len);
+		}
+
+		@Override
+		public int compress(byte[] src, int len, byte[] dst) throws IOException {
+			IO.writeInt(len, dst, 0);
+			long size = Zstd.compressByteArray(dst, 4, dst.length - 4, src, 0, len, Configuration.getZstdLevel());
+			if (Zstd.isError(size)) {
+				throw new IOException("Unable to compress page: " + Zstd.getErrorName(size));
+			}
+			return 4 + (int) size;
+		}
+
+		@Override
+		public int uncompressedLength(byte[] src, int off, int len) {
+			return Convert.readInt(src, off);
+		}
+
+		@Override
+		public int uncompress(byte[] src, int off, int len, byte[] dst) throws IOException {
+			int size = Convert.readInt(src, off);
+			long res = Zstd.decompressByteArray(dst, 0, size, src, off + 4, len - 4);
+			if (Zstd.isError(res)) {
+				throw new IOException("Unable to uncompress page: " + Zstd.getErrorName(res));
+			}
+			return size;
+		}
+	};
+
+	/** The identifier of the codec in the bucket index. */
+	private final byte id;
+
+	PageCodec(int id) {
+		this.id = (byte) id;
+	}
+
+	public byte getId() {
+		return id;
+	}
+
+	/**
+	 * Gets the maximum size of a compressed page.
+	 * @param len the size of the page
+	 * @return
+	 */
+	public abstract int maxCompressedLength(int len);
+
+	/**
+	 * Compresses the first len bytes of a page into dst, which holds at least {@link #maxCompressedLength(int)} bytes.
+	 * @param src
+	 * @param len
+	 * @param dst
+	 * @return the size of the compressed page
+	 * @throws IOException
+	 */
+	public abstract int compress(byte[] src, int len, byte[] dst) throws IOException;
+
+	/**
+	 * Gets the size of a page once uncompressed.
+	 * @param src
+	 * @param off
+	 * @param len
+	 * @return
+	 * @throws IOException
+	 */
+	public abstract int uncompressedLength(byte[] src, int off, int len) throws IOException;
+
+	/**
+	 * Uncompresses a page into dst, which holds at least {@link #uncompressedLength(byte[], int, int)} bytes.
+	 * @param src
+	 * @param off
+	 * @param len
+	 * @param dst
+	 * @return the size of the page
+	 * @throws IOException
+	 */
+	public abstract int uncompress(byte[] src, int off, int len, byte[] dst) throws IOException;
+
+	public static PageCodec valueOf(byte id) {
+		for (PageCodec codec : values()) {
+			if (codec.id == id) {
+				return codec;
+			}
+		}
+		throw new IllegalArgumentException("Unknown page codec " + id);
+	}
+}
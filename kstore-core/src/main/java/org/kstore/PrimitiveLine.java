@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.util.Arrays;
+import org.kstore.utils.Str;
+
+/**
+ * A line holding its values in primitive arrays, so that reading a bucket does not box them. Values are indexed by
+ * their position in the projection.
+ * <p>
+ * Strings are kept as {@link Str} views of the page buffers, valid until the next page: use {@link Str#clone()} to
+ * keep a value longer. Null integers are Long.MIN_VALUE and null floating point values are NaN.
+ */
+public class PrimitiveLine implements Line {
+
+	private static final byte NONE = 0;
+	private static final byte LONG = 1;
+	private static final byte DOUBLE = 2;
+	private static final byte STRING = 3;
+
+	/** Columns that we want to read. */
+	private final int[] columns;
+	/** Position of each column in the projection. */
+	private final int[] positions;
+	/** Type of the value at each position, NONE if it is not set. */
+	private final byte[] types;
+	private final long[] longs;
+	private final double[] doubles;
+	private final Str[] strs;
+
+	public PrimitiveLine(int... columns) {
+		this.columns = columns;
+		int max = -1;
+		for (int colId : columns) {
+			max = Math.max(max, colId);
+		}
+		positions = new int[max + 1];
+		for (int i = 0; i < columns.length; i++) {
+			positions[columns[i]] = i;
+		}
+		types = new byte[columns.length];
+		longs = new long[columns.length];
+		doubles = new double[columns.length];
+		strs = new Str[columns.length];
+		for (int i = 0; i < strs.length; i++) {
+			strs[i] = new Str();
+		}
+	}
+
+	@Override
+	public void addLong(int colId, long value) {
+		setLong(positions[colId], value);
+	}
+
+	@Override
+	public void addDouble(int colId, double value) {
+		setDouble(positions[colId], value);
+	}
+
+	@Override
+	public void addString(int colId, Str value) {
+		setStr(positions[colId], value);
+	}
+
+	/**
+	 * Sets the value at a position of the projection.
+	 *
+	 * @param i
+	 * @param value
+	 */
+	public void setLong(int i, long value) {
+		longs[i] = value;
+		types[i] = LONG;
+	}
+
+	/**
+	 * Sets the value at a position of the projection.
+	 *
+	 * @param i
+	 * @param value
+	 */
+	public void setDouble(int i, double value) {
+		doubles[i] = value;
+		types[i] = DOUBLE;
+	}
+
+	/**
+	 * Sets the value at a position of the projection. The string is not copied.
+	 *
+	 * @param i
+	 * @param value
+	 */
+	public void setStr(int i, Str value) {
+		strs[i].set(value.getBuffer(), value.getStart(), value.length());
+		types[i] = STRING;
+	}
+
+	public long getLong(int i) {
+		return longs[i];
+	}
+
+	public double getDouble(int i) {
+		return doubles[i];
+	}
+
+	/**
+	 * Gets the string at a position of the projection, as a view valid until the next page.
+	 *
+	 * @param i
+	 * @return
+	 */
+	public Str getStr(int i) {
+		return strs[i];
+	}
+
+	@Override
+	public boolean acceptsViews() {
+		return true;
+	}
+
+	@Override
+	public int[] getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Gets the values as objects, strings being converted to String.
+	 */
+	@Override
+	public Object[] getValues() {
+		Object[] values = new Object[columns.length];
+		for (int i = 0; i < values.length; i++) {
+			switch (types[i]) {
+				case LONG:
+					values[i] = longs[i];
+					break;
+				case DOUBLE:
+					values[i] = doubles[i];
+					break;
+				case STRING:
+					values[i] = strs[i].toString();
+					break;
+				default:
+					break;
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public int getSize() {
+		return columns.length;
+	}
+
+	@Override
+	public void reset() {
+		Arrays.fill(types, NONE);
+	}
+
+	@Override
+	public String toString() {
+		return "PrimitiveLine [values=" + Arrays.toString(getValues()) + "]";
+	}
+}
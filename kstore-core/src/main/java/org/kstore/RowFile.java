@@ -18,18 +18,40 @@ package org.kstore;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import org.kstore.columns.ZoneMap;
 import org.kstore.utils.ArrayInt;
 import org.kstore.utils.IO;
+import org.roaringbitmap.RoaringBitmap;
 
 public class RowFile {
 
 	private final ArrayInt[] pos;
+	/** Page statistics of each column, index 0 being the id column. */
+	private final ZoneMap[] zones;
+	/** Step between the ids of each page, 0 if the ids of the page are not an arithmetic sequence. */
+	private ArrayInt idSteps;
 	private ArrayInt posCount;
 	private String post;
 	private long startCount;
+	/** Rows deleted and still stored, by their number in the row file. */
+	private RoaringBitmap deleted = new RoaringBitmap();
+	/** Rows removed when the row file was written, by their offset from startCount. */
+	private RoaringBitmap removed = new RoaringBitmap();
 
 	RowFile(int nbVals) {
 		pos = new ArrayInt[nbVals + 1];
+		zones = new ZoneMap[nbVals + 1];
+	}
+
+	private RowFile(RowFile rf, RoaringBitmap deleted) {
+		pos = rf.pos;
+		zones = rf.zones;
+		idSteps = rf.idSteps;
+		posCount = rf.posCount;
+		post = rf.post;
+		startCount = rf.startCount;
+		this.deleted = deleted;
+		removed = rf.removed;
 	}
 
 	public ArrayInt[] getPos() {
@@ -40,6 +62,32 @@ public class RowFile {
 		return pos[i];
 	}
 
+	public ZoneMap getZoneMap(int i) {
+		return zones[i];
+	}
+
+	public ArrayInt getIdSteps() {
+		return idSteps;
+	}
+
+	/**
+	 * Checks if the ids of every page are an arithmetic sequence, so they can be computed without reading the id
+	 * column.
+	 * @return
+	 */
+	public boolean hasArithmeticIds() {
+		if (idSteps.getSize() != posCount.getSize()) {
+			// Row files saved before steps were kept
+			return false;
+		}
+		for (int n = 0; n < idSteps.getSize(); n++) {
+			if (idSteps.getInt(n) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	public ArrayInt getPosCount() {
 		return posCount;
 	}
@@ -52,13 +100,33 @@ public class RowFile {
 		return startCount;
 	}
 
+	public RoaringBitmap getDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * Copies the row file with other deleted rows. Committed row files are not modified, as scans read them without
+	 * lock.
+	 * @param deleted
+	 * @return
+	 */
+	RowFile withDeleted(RoaringBitmap deleted) {
+		return new RowFile(this, deleted);
+	}
+
+	public RoaringBitmap getRemoved() {
+		return removed;
+	}
+
 	RowFile init(String post, long startCount) {
 		this.post = post;
 		this.startCount = startCount;
 		if (posCount == null) {
 			posCount = new ArrayInt().init(1024);
+			idSteps = new ArrayInt().init(1024);
 			for (int n = 0; n < pos.length; n++) {
 				pos[n] = new ArrayInt().init(1024);
+				zones[n] = new ZoneMap();
 			}
 		}
 		return this;
@@ -71,15 +139,44 @@ public class RowFile {
 			IO.save(out, p);
 		}
 		out.writeLong(startCount);
+		for (ZoneMap zone : zones) {
+			zone.save(out);
+		}
+		out.writeInt(idSteps.getSize());
+		for (int n = 0; n < idSteps.getSize(); n++) {
+			out.writeInt(idSteps.getInt(n));
+		}
+		deleted.serialize(out);
+		removed.serialize(out);
 	}
 
-	RowFile load(DataInputStream in) throws IOException {
+	RowFile load(DataInputStream in, int version) throws IOException {
 		post = IO.loadString(in);
 		posCount = IO.load(in, posCount);
 		for (int n = 0; n < pos.length; n++) {
 			pos[n] = IO.load(in, pos[n]);
 		}
 		startCount = in.readLong();
+		for (int n = 0; n < zones.length; n++) {
+			// Row files saved before zone maps have no statistics
+			zones[n] = new ZoneMap();
+			if (version >= 1) {
+				zones[n].load(in);
+			}
+		}
+		idSteps = new ArrayInt().init(1024);
+		if (version >= 2) {
+			int size = in.readInt();
+			for (int n = 0; n < size; n++) {
+				idSteps.add(in.readInt());
+			}
+		}
+		deleted = new RoaringBitmap();
+		removed = new RoaringBitmap();
+		if (version >= 5) {
+			deleted.deserialize(in);
+			removed.deserialize(in);
+		}
 		return this;
 	}
 }
@@ -19,8 +19,11 @@ import java.io.Closeable;
 import java.io.IOException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.iq80.snappy.Snappy;
+import org.kstore.PageCodec;
 import org.kstore.utils.ArrayInt;
+import org.kstore.utils.Convert;
+import org.kstore.utils.PageBufferPool;
+import org.kstore.utils.PageCache;
 import org.kstore.utils.Str;
 import org.kstore.columns.io.ColumnPageBytesInput;
 
@@ -30,52 +33,80 @@ public abstract class ColumnInput implements Closeable {
 
 	private final ColumnPageBytesInput in;
 	private final ArrayInt pos;
-	/** Is the column in compress format or not. */
-	private final boolean compress;
+	/** The codec of the pages. */
+	private PageCodec codec;
 	/** Number of pages. */
 	private int ipage;
-	private byte[] buf = new byte[65536];
+	/** Buffer of the bytes read from the stream, taken from the {@link PageBufferPool} on first read. */
+	private byte[] buf;
 	private int ibuf;
 	private int lbuf;
 	/** The rows. */
 	protected byte[] rows;
 	/** Cursor position in row. */
 	protected int p;
+	/** Name of the column file in the page cache, null if pages are not cached. */
+	private String cachePath;
+	/** Buffer of the uncompressed pages and of the pages read from the cache. */
+	private byte[] decoded;
+	/** Bytes of the skipped pages that are still to be skipped in the stream, on the next read. */
+	private long skipped;
 
 	public ColumnInput(ColumnPageBytesInput in, ArrayInt pos, boolean compress) {
 		this.in = in;
 		this.pos = pos;
-		this.compress = compress;
+		this.codec = compress ? PageCodec.SNAPPY : PageCodec.NONE;
+	}
+
+	/**
+	 * Sets the codec of the pages, when it is not the default one of the column format.
+	 *
+	 * @param codec
+	 */
+	public void setCodec(PageCodec codec) {
+		this.codec = codec;
+	}
+
+	/**
+	 * Keeps the decoded pages of this column in the {@link PageCache}.
+	 *
+	 * @param path the column file
+	 */
+	public void cacheAs(String path) {
+		this.cachePath = path;
 	}
 
 	public void newPage() throws IOException {
 		final long start = System.currentTimeMillis();
 
-		int size = pos.getInt(ipage);
-		if (ibuf + size > lbuf) {
-			byte[] nbuf = (size < buf.length) ? buf : new byte[size * 2];
-			if (lbuf > 0) {
-				System.arraycopy(buf, ibuf, nbuf, 0, lbuf - ibuf);
-				ibuf = lbuf - ibuf;
-				lbuf = ibuf;
-			}
-			buf = nbuf;
-			while (lbuf < size) {
-				int nb = in.readNextPage(buf, ibuf, buf.length - ibuf);
-				if (nb <= 0) {
-					break;
+		if (cachePath != null) {
+			byte[] page = PageCache.get(cachePath, ipage, decoded);
+			if (page != null) {
+				// The bytes of the page are not needed: the stream is not read
+				skipPage();
+				if (page != decoded) {
+					PageBufferPool.release(decoded);
 				}
-				ibuf += nb;
-				lbuf += nb;
+				rows = decoded = page;
+				p = 0;
+				return;
 			}
-			ibuf = 0;
 		}
-		if (compress) {
-			rows = Snappy.uncompress(buf, ibuf, size);
+		int size = loadPage();
+		if (codec != PageCodec.NONE) {
+			decoded = PageBufferPool.ensure(decoded, codec.uncompressedLength(buf, ibuf, size));
+			int len = codec.uncompress(buf, ibuf, size, decoded);
+			rows = decoded;
 			p = 0;
+			if (cachePath != null) {
+				PageCache.put(cachePath, ipage, rows, 0, len);
+			}
 		} else {
 			rows = buf;
 			p = ibuf;
+			if (cachePath != null) {
+				PageCache.put(cachePath, ipage, rows, p, size);
+			}
 		}
 		ibuf += size;
 		ipage++;
@@ -94,16 +125,113 @@ public abstract class ColumnInput implements Closeable {
 		}
 	}
 
+	/**
+	 * Moves to the next page without decoding the current one.
+	 *
+	 * @throws IOException
+	 */
+	public void skipPage() throws IOException {
+		skipPages(1);
+	}
+
+	/**
+	 * Moves forward of nb pages without decoding them. The bytes that are not buffered are skipped in the stream on
+	 * the next read, with one seek for all the pages skipped meanwhile.
+	 *
+	 * @param nb
+	 * @throws IOException
+	 */
+	public void skipPages(int nb) throws IOException {
+		long size = 0;
+		for (int n = ipage; n < ipage + nb; n++) {
+			size += pos.getInt(n);
+		}
+		int buffered = lbuf - ibuf;
+		if (size <= buffered) {
+			ibuf += size;
+		} else {
+			// Drop what is buffered, the remaining bytes of the pages being skipped in the stream later
+			skipped += size - buffered;
+			ibuf = 0;
+			lbuf = 0;
+		}
+		ipage += nb;
+	}
+
+	/**
+	 * Copies the next page to a column output as it is stored, without decoding it.
+	 *
+	 * @param dst a column of the same format and codec
+	 * @throws IOException
+	 */
+	public void copyPage(ColumnOutput dst) throws IOException {
+		int size = loadPage();
+		dst.copyPage(buf, ibuf, size);
+		ibuf += size;
+		ipage++;
+	}
+
+	/**
+	 * Makes sure the bytes of the current page are available in the buffer, from ibuf.
+	 *
+	 * @return the size of the page
+	 * @throws IOException
+	 */
+	private int loadPage() throws IOException {
+		int size = pos.getInt(ipage);
+		if (ibuf + size > lbuf) {
+			byte[] nbuf = (buf != null && size < buf.length) ? buf : PageBufferPool.acquire(size * 2);
+			if (lbuf > 0) {
+				System.arraycopy(buf, ibuf, nbuf, 0, lbuf - ibuf);
+				ibuf = lbuf - ibuf;
+				lbuf = ibuf;
+			}
+			if (nbuf != buf) {
+				PageBufferPool.release(buf);
+				buf = nbuf;
+			}
+			if (skipped > 0) {
+				in.skipNextPages(skipped);
+				skipped = 0;
+			}
+			while (lbuf < size) {
+				int nb = in.readNextPage(buf, ibuf, buf.length - ibuf);
+				if (nb <= 0) {
+					break;
+				}
+				ibuf += nb;
+				lbuf += nb;
+			}
+			ibuf = 0;
+		}
+		return size;
+	}
+
 	@Override
 	public void close() throws IOException {
 		in.closeColumn();
-		buf = rows = null;
+		// Values read from the pages are not valid anymore
+		PageBufferPool.release(buf);
+		PageBufferPool.release(decoded);
+		buf = rows = decoded = null;
 	}
 
 	public abstract byte[] readBytes() throws IOException;
 
 	public abstract Str readStr() throws IOException;
 
+	/**
+	 * Reads the next value as a view of the page, valid until the next page is loaded, instead of allocating a
+	 * string.
+	 *
+	 * @param view the string set to the value
+	 * @return the value, which may not be the given view
+	 * @throws IOException
+	 */
+	public Str readStr(Str view) throws IOException {
+		return readStr();
+	}
+
 	public abstract byte readByte() throws IOException;
 
 	public abstract short readShort() throws IOException;
@@ -120,6 +248,95 @@ public abstract class ColumnInput implements Closeable {
 
 	public abstract int readRow(byte[] buf, int sizeType) throws IOException;
 
+	/**
+	 * Reads the next values of the page as strings. The strings are not copied: their position in the returned
+	 * buffer is stored in the given arrays, and they are valid until the next page is loaded.
+	 *
+	 * @param offsets
+	 * @param lengths
+	 * @param nb
+	 * @return the buffer holding the strings
+	 * @throws IOException
+	 */
+	public abstract byte[] readStrs(int[] offsets, int[] lengths, int nb) throws IOException;
+
+	/**
+	 * Reads the next values of the page as ints.
+	 *
+	 * @param dst
+	 * @param nb
+	 * @throws IOException
+	 */
+	public void readInts(int[] dst, int nb) throws IOException {
+		for (int n = 0; n < nb; n++) {
+			dst[n] = readInt();
+		}
+	}
+
+	/**
+	 * Reads the next values of the page as longs, the null value of the given type size being converted to
+	 * Long.MIN_VALUE.
+	 *
+	 * @param dst
+	 * @param nb
+	 * @param sizeType
+	 * @throws IOException
+	 */
+	public void readLongs(long[] dst, int nb, int sizeType) throws IOException {
+		switch (sizeType) {
+			case 1:
+				for (int n = 0; n < nb; n++) {
+					dst[n] = Convert.byteToLong(readByte());
+				}
+				break;
+			case 2:
+				for (int n = 0; n < nb; n++) {
+					dst[n] = Convert.shortToLong(readShort());
+				}
+				break;
+			case 4:
+				for (int n = 0; n < nb; n++) {
+					dst[n] = Convert.intToLong(readInt());
+				}
+				break;
+			default:
+				for (int n = 0; n < nb; n++) {
+					dst[n] = readLong();
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Reads the next values of the page as doubles.
+	 *
+	 * @param dst
+	 * @param nb
+	 * @param sizeType
+	 * @throws IOException
+	 */
+	public void readDoubles(double[] dst, int nb, int sizeType) throws IOException {
+		if (sizeType == 4) {
+			for (int n = 0; n < nb; n++) {
+				dst[n] = readFloat();
+			}
+		} else {
+			for (int n = 0; n < nb; n++) {
+				dst[n] = readDouble();
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of rows holding the same value, starting from the next row to read, so that a run of values
+	 * can be processed at once. Columns not keeping runs return 1.
+	 *
+	 * @return
+	 */
+	public int getRunLength() {
+		return 1;
+	}
+
 	final short getShort() {
 		return (short) (((rows[p++] & 0xFF) << 8) + ((rows[p++] & 0xFF) << 0));
 	}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.columns;
+
+import java.io.IOException;
+import org.kstore.utils.ArrayInt;
+import org.kstore.utils.IO;
+import org.kstore.utils.Str;
+
+/**
+ * A column input computing the values of pages holding arithmetic sequences of ints, like the ids of rows added in
+ * order, from the page statistics. Nothing is read.
+ */
+public class ColumnInputArithmetic extends ColumnInput {
+
+	private final ZoneMap zoneMap;
+	private final ArrayInt steps;
+	private int ipage;
+	private int value;
+	private int step;
+
+	/**
+	 * Constructor.
+	 * @param zoneMap the statistics of the pages
+	 * @param steps the step between values of each page
+	 */
+	public ColumnInputArithmetic(ZoneMap zoneMap, ArrayInt steps) {
+		super(null, null, false);
+		this.zoneMap = zoneMap;
+		this.steps = steps;
+	}
+
+	@Override
+	public void newPage() throws IOException {
+		step = steps.getInt(ipage);
+		value = (int) ((step > 0) ? zoneMap.getMin(ipage) : zoneMap.getMax(ipage));
+		ipage++;
+	}
+
+	@Override
+	public void skipPage() throws IOException {
+		ipage++;
+	}
+
+	@Override
+	public void skipPages(int nb) throws IOException {
+		ipage += nb;
+	}
+
+	@Override
+	public void close() throws IOException {
+	}
+
+	@Override
+	public int readInt() throws IOException {
+		int res = value;
+		value += step;
+		return res;
+	}
+
+	@Override
+	public void readInts(int[] dst, int nb) throws IOException {
+		for (int n = 0; n < nb; n++) {
+			dst[n] = value;
+			value += step;
+		}
+	}
+
+	@Override
+	public long readLong() throws IOException {
+		return readInt();
+	}
+
+	@Override
+	public void skipRow(int sizeType) throws IOException {
+		value += step;
+	}
+
+	@Override
+	public byte[] readBytes() throws IOException {
+		throw new IOException("bytes[] cannot be read from an arithmetic column");
+	}
+
+	@Override
+	public Str readStr() throws IOException {
+		throw new IOException("String cannot be read from an arithmetic column");
+	}
+
+	@Override
+	public byte[] readStrs(int[] offsets, int[] lengths, int nb) throws IOException {
+		throw new IOException("String cannot be read from an arithmetic column");
+	}
+
+	@Override
+	public byte readByte() throws IOException {
+		throw new IOException("byte cannot be read from an arithmetic column");
+	}
+
+	@Override
+	public short readShort() throws IOException {
+		throw new IOException("short cannot be read from an arithmetic column");
+	}
+
+	@Override
+	public float readFloat() throws IOException {
+		throw new IOException("float cannot be read from an arithmetic column");
+	}
+
+	@Override
+	public double readDouble() throws IOException {
+		throw new IOException("double cannot be read from an arithmetic column");
+	}
+
+	@Override
+	public int readRow(byte[] buf, int sizeType) throws IOException {
+		IO.writeLong(readLong(), buf, 0);
+		return 8;
+	}
+}
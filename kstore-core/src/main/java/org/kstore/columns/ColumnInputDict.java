@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.columns;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.kstore.utils.ArrayInt;
+import org.kstore.utils.BitPacking;
+import org.kstore.utils.Str;
+import org.kstore.columns.io.ColumnPageBytesInput;
+
+/**
+ * A column input that reads strings written by {@link ColumnOutputDict}.
+ * <p>
+ * Rows of a dictionary page can be read as codes, which are resolved to strings only when needed.
+ */
+public class ColumnInputDict extends ColumnInputSnap {
+
+	/** Is the current page a dictionary page. */
+	private boolean dictionary;
+	private int nbEntries;
+	private int[] entryOffsets = new int[0];
+	private int[] entryLengths = new int[0];
+	/** Strings of the entries, created on first use. */
+	private Str[] entryStrs = new Str[0];
+	private int[] rowCodes = new int[0];
+	private int irow;
+	/** Runs of the current page, none if it is not RLE encoded. */
+	private int nbRuns;
+	private int[] runCodes = new int[0];
+	/** Index of the row following each run. */
+	private int[] runEnds = new int[0];
+	private int irun;
+
+	public ColumnInputDict(ColumnPageBytesInput in, ArrayInt pos) throws IOException {
+		super(in, pos);
+	}
+
+	@Override
+	public void newPage() throws IOException {
+		super.newPage();
+		byte mode = rows[p++];
+		dictionary = mode != ColumnOutputDict.PLAIN;
+		nbRuns = 0;
+		irow = 0;
+		if (!dictionary) {
+			return;
+		}
+		nbEntries = getInt();
+		if (entryOffsets.length < nbEntries) {
+			entryOffsets = new int[nbEntries];
+			entryLengths = new int[nbEntries];
+			entryStrs = new Str[nbEntries];
+		} else {
+			Arrays.fill(entryStrs, 0, nbEntries, null);
+		}
+		for (int n = 0; n < nbEntries; n++) {
+			int len = getShort();
+			entryOffsets[n] = p;
+			entryLengths[n] = len;
+			p += len;
+		}
+		if (mode == ColumnOutputDict.RUNS) {
+			decodeRuns();
+			return;
+		}
+		int nbRows = getInt();
+		int bitWidth = rows[p++];
+		if (rowCodes.length < nbRows) {
+			rowCodes = new int[nbRows];
+		}
+		p = BitPacking.unpack(rows, p, bitWidth, rowCodes, nbRows);
+	}
+
+	/**
+	 * Unpacks the runs of the page, and expands them in the codes of the rows.
+	 */
+	private void decodeRuns() {
+		nbRuns = getInt();
+		int bitWidth = rows[p++];
+		int runWidth = rows[p++];
+		if (runEnds.length < nbRuns) {
+			runCodes = new int[nbRuns];
+			runEnds = new int[nbRuns];
+		}
+		p = BitPacking.unpack(rows, p, bitWidth, runCodes, nbRuns);
+		p = BitPacking.unpack(rows, p, runWidth, runEnds, nbRuns);
+		int nb = 0;
+		for (int n = 0; n < nbRuns; n++) {
+			nb += runEnds[n] + 1;
+			runEnds[n] = nb;
+		}
+		if (rowCodes.length < nb) {
+			rowCodes = new int[nb];
+		}
+		for (int n = 0, start = 0; n < nbRuns; n++) {
+			Arrays.fill(rowCodes, start, runEnds[n], runCodes[n]);
+			start = runEnds[n];
+		}
+		irun = 0;
+	}
+
+	@Override
+	public int getRunLength() {
+		if (nbRuns == 0) {
+			return 1;
+		}
+		while (runEnds[irun] <= irow) {
+			irun++;
+		}
+		return runEnds[irun] - irow;
+	}
+
+	/**
+	 * Is the current page made of a dictionary and codes.
+	 * @return
+	 */
+	public boolean isDictionaryPage() {
+		return dictionary;
+	}
+
+	/**
+	 * Reads the code of the next row of a dictionary page.
+	 * @return
+	 */
+	public int readCode() {
+		return rowCodes[irow++];
+	}
+
+	/**
+	 * Gets the string of a code of the current dictionary page.
+	 * @param code
+	 * @return
+	 */
+	public Str getEntry(int code) {
+		Str str = entryStrs[code];
+		if (str == null) {
+			str = entryStrs[code] = new Str(rows, entryOffsets[code], entryLengths[code]);
+		}
+		return str;
+	}
+
+	/**
+	 * Gets the code of a value in the current dictionary page.
+	 * @param value
+	 * @return the code, -1 if the page does not hold the value
+	 */
+	public int lookup(byte[] value) {
+		for (int n = 0; n < nbEntries; n++) {
+			if (entryLengths[n] == value.length
+					&& Str.compareTo(rows, entryOffsets[n], entryLengths[n], value, 0, value.length) == 0) {
+				return n;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public byte[] readBytes() throws IOException {
+		if (!dictionary) {
+			return super.readBytes();
+		}
+		return getEntry(readCode()).toBytes();
+	}
+
+	@Override
+	public Str readStr() throws IOException {
+		if (!dictionary) {
+			return super.readStr();
+		}
+		return getEntry(readCode());
+	}
+
+	@Override
+	public Str readStr(Str view) throws IOException {
+		if (!dictionary) {
+			return super.readStr(view);
+		}
+		int code = readCode();
+		return view.set(rows, entryOffsets[code], entryLengths[code]);
+	}
+
+	@Override
+	public byte[] readStrs(int[] offsets, int[] lengths, int nb) throws IOException {
+		if (!dictionary) {
+			return super.readStrs(offsets, lengths, nb);
+		}
+		for (int n = 0; n < nb; n++) {
+			int code = readCode();
+			offsets[n] = entryOffsets[code];
+			lengths[n] = entryLengths[code];
+		}
+		return rows;
+	}
+
+	@Override
+	public void skipRow(int sizeType) throws IOException {
+		if (!dictionary) {
+			super.skipRow(sizeType);
+			return;
+		}
+		irow++;
+	}
+
+	@Override
+	public int readRow(byte[] buf, int sizeType) throws IOException {
+		if (!dictionary) {
+			return super.readRow(buf, sizeType);
+		}
+		int code = readCode();
+		int len = entryLengths[code];
+		buf[0] = (byte) (len >> 8);
+		buf[1] = (byte) len;
+		System.arraycopy(rows, entryOffsets[code], buf, 2, len);
+		return len + 2;
+	}
+}
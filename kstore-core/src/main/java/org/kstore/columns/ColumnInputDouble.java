@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.columns;
+
+import java.io.IOException;
+import org.kstore.utils.ArrayInt;
+import org.kstore.utils.BitReader;
+import org.kstore.utils.IO;
+import org.kstore.utils.Str;
+import org.kstore.columns.io.ColumnPageBytesInput;
+
+/**
+ * A column input that reads floating point values written by {@link ColumnOutputDouble}. All values of a page are
+ * decoded when the page is loaded.
+ */
+public class ColumnInputDouble extends ColumnInput {
+
+	private final BitReader reader = new BitReader();
+	private double[] values = new double[0];
+	private int irow;
+
+	public ColumnInputDouble(ColumnPageBytesInput in, ArrayInt pos) throws IOException {
+		super(in, pos, false);
+	}
+
+	@Override
+	public void newPage() throws IOException {
+		super.newPage();
+		reader.init(rows, p);
+		int nb = (int) reader.read(32);
+		if (values.length < nb) {
+			values = new double[nb];
+		}
+		decode(reader, values, nb);
+		irow = 0;
+	}
+
+	static void decode(BitReader reader, double[] values, int nb) {
+		if (nb == 0) {
+			return;
+		}
+		long prev = reader.read(64);
+		values[0] = Double.longBitsToDouble(prev);
+		int leading = 0;
+		int trailing = 0;
+		for (int n = 1; n < nb; n++) {
+			if (reader.readBit()) {
+				if (reader.readBit()) {
+					leading = (int) reader.read(5);
+					int meaningful = (int) reader.read(6) + 1;
+					trailing = 64 - leading - meaningful;
+				}
+				prev ^= reader.read(64 - leading - trailing) << trailing;
+			}
+			values[n] = Double.longBitsToDouble(prev);
+		}
+	}
+
+	@Override
+	public byte[] readBytes() throws IOException {
+		throw new IOException("bytes[] cannot be read from a DOUBLE column");
+	}
+
+	@Override
+	public Str readStr() throws IOException {
+		throw new IOException("String cannot be read from a DOUBLE column");
+	}
+
+	@Override
+	public byte[] readStrs(int[] offsets, int[] lengths, int nb) throws IOException {
+		throw new IOException("String cannot be read from a DOUBLE column");
+	}
+
+	@Override
+	public byte readByte() throws IOException {
+		throw new IOException("byte cannot be read from a DOUBLE column");
+	}
+
+	@Override
+	public short readShort() throws IOException {
+		throw new IOException("short cannot be read from a DOUBLE column");
+	}
+
+	@Override
+	public int readInt() throws IOException {
+		throw new IOException("int cannot be read from a DOUBLE column");
+	}
+
+	@Override
+	public long readLong() throws IOException {
+		throw new IOException("long cannot be read from a DOUBLE column");
+	}
+
+	@Override
+	public float readFloat() throws IOException {
+		return (float) values[irow++];
+	}
+
+	@Override
+	public double readDouble() throws IOException {
+		return values[irow++];
+	}
+
+	@Override
+	public void readDoubles(double[] dst, int nb, int sizeType) throws IOException {
+		System.arraycopy(values, irow, dst, 0, nb);
+		irow += nb;
+	}
+
+	@Override
+	public void skipRow(int sizeType) throws IOException {
+		irow++;
+	}
+
+	@Override
+	public int readRow(byte[] buf, int sizeType) throws IOException {
+		if (sizeType == 4) {
+			IO.writeInt(Float.floatToRawIntBits(readFloat()), buf, 0);
+		} else {
+			IO.writeLong(Double.doubleToRawLongBits(readDouble()), buf, 0);
+		}
+		return sizeType;
+	}
+}
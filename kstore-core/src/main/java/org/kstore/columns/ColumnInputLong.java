@@ -16,7 +16,10 @@
 package org.kstore.columns;
 
 import java.io.IOException;
+import java.util.Arrays;
 import org.kstore.utils.ArrayInt;
+import org.kstore.utils.BitPacking;
+import org.kstore.utils.Convert;
 import org.kstore.utils.IO;
 import org.kstore.utils.Str;
 import org.kstore.columns.io.ColumnPageBytesInput;
@@ -28,6 +31,19 @@ public class ColumnInputLong extends ColumnInput {
 
 	private int size;
 	private long min;
+	/** Values decoded by bulk reads of ints. */
+	private long[] values;
+	/** Is the current page bit-packed, its values being unpacked in decoded. */
+	private boolean packed;
+	private long[] decoded = new long[0];
+	private int irow;
+	/** Runs of the current page, none if it is not RLE encoded. */
+	private int nbRuns;
+	private long[] runValues = new long[0];
+	private long[] runLengths = new long[0];
+	/** Index of the row following each run. */
+	private int[] runEnds = new int[0];
+	private int irun;
 
 	public ColumnInputLong(ColumnPageBytesInput in, ArrayInt pos) throws IOException {
 		super(in, pos, false);
@@ -37,7 +53,84 @@ public class ColumnInputLong extends ColumnInput {
 	public void newPage() throws IOException {
 		super.newPage();
 		size = rows[p++];
-		min = getLong();
+		packed = size >= ColumnOutputLong.FOR;
+		nbRuns = 0;
+		irow = 0;
+		if (!packed) {
+			min = getLong();
+			return;
+		}
+		if (size == ColumnOutputLong.RLE || size == ColumnOutputLong.RLE_NULLS) {
+			decodeRuns();
+			return;
+		}
+		// The whole page is unpacked at once
+		int nb = getInt();
+		long base = getLong();
+		long minDelta = (size == ColumnOutputLong.DELTA) ? getLong() : 0;
+		int width = rows[p++];
+		if (decoded.length < nb) {
+			decoded = new long[nb];
+		}
+		p = BitPacking.unpack(rows, p, width, decoded, nb);
+		if (size == ColumnOutputLong.DELTA) {
+			long value = base;
+			for (int n = 0; n < nb; n++) {
+				value += (n == 0) ? 0 : decoded[n] + minDelta;
+				decoded[n] = value;
+			}
+		} else {
+			// Pages with nulls keep the highest packed value for them
+			boolean withNulls = size == ColumnOutputLong.FOR_NULLS;
+			long nullValue = (1L << width) - 1;
+			for (int n = 0; n < nb; n++) {
+				decoded[n] = (withNulls && decoded[n] == nullValue) ? Long.MIN_VALUE : decoded[n] + base;
+			}
+		}
+	}
+
+	/**
+	 * Unpacks the runs of the page, and expands them in the decoded values.
+	 */
+	private void decodeRuns() {
+		nbRuns = getInt();
+		long base = getLong();
+		int width = rows[p++];
+		int runWidth = rows[p++];
+		if (runValues.length < nbRuns) {
+			runValues = new long[nbRuns];
+			runLengths = new long[nbRuns];
+			runEnds = new int[nbRuns];
+		}
+		p = BitPacking.unpack(rows, p, width, runValues, nbRuns);
+		p = BitPacking.unpack(rows, p, runWidth, runLengths, nbRuns);
+		int nb = 0;
+		for (int n = 0; n < nbRuns; n++) {
+			nb += (int) runLengths[n] + 1;
+			runEnds[n] = nb;
+		}
+		if (decoded.length < nb) {
+			decoded = new long[nb];
+		}
+		boolean withNulls = size == ColumnOutputLong.RLE_NULLS;
+		long nullValue = (1L << width) - 1;
+		for (int n = 0, start = 0; n < nbRuns; n++) {
+			long value = (withNulls && runValues[n] == nullValue) ? Long.MIN_VALUE : runValues[n] + base;
+			Arrays.fill(decoded, start, runEnds[n], value);
+			start = runEnds[n];
+		}
+		irun = 0;
+	}
+
+	@Override
+	public int getRunLength() {
+		if (nbRuns == 0) {
+			return 1;
+		}
+		while (runEnds[irun] <= irow) {
+			irun++;
+		}
+		return runEnds[irun] - irow;
 	}
 
 	@Override
@@ -71,6 +164,9 @@ public class ColumnInputLong extends ColumnInput {
 
 	@Override
 	public long readLong() {
+		if (packed) {
+			return decoded[irow++];
+		}
 		switch (size) {
 			case 1:
 				long val = (rows[p++] & 0xFF);
@@ -98,19 +194,19 @@ public class ColumnInputLong extends ColumnInput {
 				return val + min;
 			case 5:
 				val = (((rows[p++] & 0xFFL) << 32) | ((rows[p++] & 0xFFL) << 24) | ((rows[p++] & 0xFFL) << 16) | ((rows[p++] & 0xFFL) << 8) | (rows[p++] & 0xFFL));
-				if (val == 0xFFFFFFFFL) {
+				if (val == 0xFFFFFFFFFFL) {
 					return Long.MIN_VALUE;
 				}
 				return val + min;
 			case 6:
 				val = (((rows[p++] & 0xFFL) << 40) | ((rows[p++] & 0xFFL) << 32) | ((rows[p++] & 0xFFL) << 24) | ((rows[p++] & 0xFFL) << 16) | ((rows[p++] & 0xFFL) << 8) | (rows[p++] & 0xFFL));
-				if (val == 0xFFFFFFFFFFL) {
+				if (val == 0xFFFFFFFFFFFFL) {
 					return Long.MIN_VALUE;
 				}
 				return val + min;
 			case 7:
 				val = (((rows[p++] & 0xFFL) << 48) | ((rows[p++] & 0xFFL) << 40) | ((rows[p++] & 0xFFL) << 32) | ((rows[p++] & 0xFFL) << 24) | ((rows[p++] & 0xFFL) << 16) | ((rows[p++] & 0xFFL) << 8) | (rows[p++] & 0xFFL));
-				if (val == 0xFFFFFFFFFFFFL) {
+				if (val == 0xFFFFFFFFFFFFFFL) {
 					return Long.MIN_VALUE;
 				}
 				return val + min;
@@ -123,6 +219,70 @@ public class ColumnInputLong extends ColumnInput {
 		}
 	}
 
+	@Override
+	public byte[] readStrs(int[] offsets, int[] lengths, int nb) throws IOException {
+		throw new IOException("String cannot be read from a LONG column");
+	}
+
+	@Override
+	public void readInts(int[] dst, int nb) throws IOException {
+		if (values == null || values.length < nb) {
+			values = new long[nb];
+		}
+		decodeLongs(values, nb);
+		for (int n = 0; n < nb; n++) {
+			dst[n] = (values[n] == Long.MIN_VALUE) ? Integer.MIN_VALUE : (int) values[n];
+		}
+	}
+
+	@Override
+	public void readLongs(long[] dst, int nb, int sizeType) throws IOException {
+		decodeLongs(dst, nb);
+		switch (sizeType) {
+			case 1:
+				for (int n = 0; n < nb; n++) {
+					dst[n] = Convert.byteToLong((byte) dst[n]);
+				}
+				break;
+			case 2:
+				for (int n = 0; n < nb; n++) {
+					dst[n] = Convert.shortToLong((short) dst[n]);
+				}
+				break;
+			case 4:
+				for (int n = 0; n < nb; n++) {
+					if (dst[n] != Long.MIN_VALUE) {
+						dst[n] = Convert.intToLong((int) dst[n]);
+					}
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Decodes the next values of the page, the size of values being resolved once for all rows.
+	 *
+	 * @param dst
+	 * @param nb
+	 */
+	private void decodeLongs(long[] dst, int nb) {
+		if (packed) {
+			System.arraycopy(decoded, irow, dst, 0, nb);
+			irow += nb;
+			return;
+		}
+		long nullValue = (size >= 8) ? Long.MIN_VALUE : (1L << (size * 8)) - 1;
+		for (int n = 0; n < nb; n++) {
+			long val = 0;
+			for (int b = 0; b < size; b++) {
+				val = (val << 8) | (rows[p++] & 0xFFL);
+			}
+			dst[n] = (val == nullValue) ? Long.MIN_VALUE : val + min;
+		}
+	}
+
 	@Override
 	public float readFloat() throws IOException {
 		return Float.intBitsToFloat((int) readLong());
@@ -135,6 +295,10 @@ public class ColumnInputLong extends ColumnInput {
 
 	@Override
 	public void skipRow(int sizeType) throws IOException {
+		if (packed) {
+			irow++;
+			return;
+		}
 		p += size;
 	}
 
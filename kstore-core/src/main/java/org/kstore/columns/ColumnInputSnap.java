@@ -44,6 +44,25 @@ public class ColumnInputSnap extends ColumnInput {
 		return new Str(bytes, 0, bytes.length);
 	}
 
+	@Override
+	public Str readStr(Str view) throws IOException {
+		int len = getShort();
+		view.set(rows, p, len);
+		p += len;
+		return view;
+	}
+
+	@Override
+	public byte[] readStrs(int[] offsets, int[] lengths, int nb) throws IOException {
+		for (int n = 0; n < nb; n++) {
+			int len = getShort();
+			offsets[n] = p;
+			lengths[n] = len;
+			p += len;
+		}
+		return rows;
+	}
+
 	@Override
 	public byte readByte() throws IOException {
 		return rows[p++];
@@ -79,4 +79,13 @@ public class ColumnInputVoid extends ColumnInput {
 		return Str.NULL;
 	}
 
+	@Override
+	public byte[] readStrs(int[] offsets, int[] lengths, int nb) throws IOException {
+		for (int n = 0; n < nb; n++) {
+			offsets[n] = Str.NULL.getStart();
+			lengths[n] = Str.NULL.length();
+		}
+		return Str.NULL.getBuffer();
+	}
+
 }
@@ -15,28 +15,132 @@
  */
 package org.kstore.columns;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.Arrays;
+import org.kstore.PageCodec;
 import org.kstore.utils.ArrayInt;
+import org.kstore.utils.Convert;
+import org.kstore.utils.PageBufferPool;
 import org.kstore.columns.io.ColumnPageBytesOutput;
 
 /**
  * 
  */
-public abstract class ColumnOutput {
+public abstract class ColumnOutput implements Closeable {
 
 	protected ColumnPageBytesOutput out;
 	protected ArrayInt pos;
+	/** The statistics of the pages, null if the column does not keep statistics. */
+	protected ZoneMap zoneMap;
+	/** The codec of the pages. */
+	protected PageCodec codec = PageCodec.NONE;
+	/** Buffer of the compressed pages, taken from the {@link PageBufferPool}. */
+	private byte[] compressed;
+	/** Are pages kept until {@link #writePending()} is called, instead of being written once encoded. */
+	private boolean deferred;
+	/** The encoded page waiting to be written, null if there is none. */
+	private byte[] pending;
+	private int pendingSize;
 
 	public ColumnOutput(ColumnPageBytesOutput out, ArrayInt pos) {
+		this(out, pos, null);
+	}
+
+	public ColumnOutput(ColumnPageBytesOutput out, ArrayInt pos, ZoneMap zoneMap) {
 		this.out = out;
 		this.pos = pos;
+		this.zoneMap = zoneMap;
 	}
 
 	public abstract int newPage() throws IOException;
 
+	/**
+	 * Sets the codec of the pages, when it is not the default one of the column format.
+	 *
+	 * @param codec
+	 */
+	public void setCodec(PageCodec codec) {
+		this.codec = codec;
+	}
+
+	/**
+	 * Keeps encoded pages until {@link #writePending()} is called, so that pages can be encoded by another thread
+	 * than the one writing them. The buffers of the page are not modified until it is written.
+	 *
+	 * @param deferred
+	 */
+	public void setDeferred(boolean deferred) {
+		this.deferred = deferred;
+	}
+
+	/**
+	 * Writes the page encoded by the last call to {@link #newPage()}, if writes are deferred.
+	 *
+	 * @throws IOException
+	 */
+	public void writePending() throws IOException {
+		if (pending != null) {
+			out.writeNextPageBytes(pending, pendingSize);
+			pending = null;
+		}
+	}
+
+	/**
+	 * Compresses and writes a page.
+	 *
+	 * @param page
+	 * @param len the size of the page
+	 * @return the size of the written page
+	 * @throws IOException
+	 */
+	protected int writePage(byte[] page, int len) throws IOException {
+		byte[] buf = page;
+		int size = len;
+		if (codec != PageCodec.NONE) {
+			compressed = PageBufferPool.ensure(compressed, codec.maxCompressedLength(len));
+			buf = compressed;
+			size = codec.compress(page, len, compressed);
+		}
+		if (deferred) {
+			pending = buf;
+			pendingSize = size;
+		} else {
+			out.writeNextPageBytes(buf, size);
+		}
+		pos.add(size);
+		return size;
+	}
+
+	/**
+	 * Writes a page stored by a column of the same format and codec, without encoding it. The page is written at
+	 * once, after the pending one.
+	 *
+	 * @param page
+	 * @param off the offset of the page
+	 * @param len the size of the page
+	 * @throws IOException
+	 */
+	public void copyPage(byte[] page, int off, int len) throws IOException {
+		writePending();
+		byte[] buf = page;
+		if (off > 0) {
+			compressed = PageBufferPool.ensure(compressed, len);
+			System.arraycopy(page, off, compressed, 0, len);
+			buf = compressed;
+		}
+		out.writeNextPageBytes(buf, len);
+		pos.add(len);
+	}
+
 	public void close() throws IOException {
 		out.closeColumn();
+		PageBufferPool.release(compressed);
+		compressed = pending = null;
 		pos.compact();
+		if (zoneMap != null) {
+			zoneMap.compact();
+		}
 	}
 
 	public void writeBytes(byte[] tab) throws IOException {
@@ -74,4 +178,89 @@ public abstract class ColumnOutput {
 	public void writeRow(byte[] buf, int lg) throws IOException {
 		throw new IOException("Data Type not implemented");
 	}
+
+	/**
+	 * Writes values of the id column.
+	 *
+	 * @param values
+	 * @param from
+	 * @param nb
+	 * @throws IOException
+	 */
+	public void writeInts(int[] values, int from, int nb) throws IOException {
+		for (int n = from; n < from + nb; n++) {
+			writeInt(values[n]);
+		}
+	}
+
+	/**
+	 * Writes values of an integer column, Long.MIN_VALUE being null.
+	 *
+	 * @param values
+	 * @param from
+	 * @param nb
+	 * @param sizeType the size of the column type
+	 * @throws IOException
+	 */
+	public void writeLongs(long[] values, int from, int nb, int sizeType) throws IOException {
+		switch (sizeType) {
+			case 1:
+				for (int n = from; n < from + nb; n++) {
+					writeByte(Convert.longToByte(values[n]));
+				}
+				break;
+			case 2:
+				for (int n = from; n < from + nb; n++) {
+					writeShort(Convert.longToShort(values[n]));
+				}
+				break;
+			case 4:
+				for (int n = from; n < from + nb; n++) {
+					writeInt(Convert.longToInt(values[n]));
+				}
+				break;
+			default:
+				for (int n = from; n < from + nb; n++) {
+					writeLong(values[n]);
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Writes values of a floating point column.
+	 *
+	 * @param values
+	 * @param from
+	 * @param nb
+	 * @param sizeType the size of the column type
+	 * @throws IOException
+	 */
+	public void writeDoubles(double[] values, int from, int nb, int sizeType) throws IOException {
+		if (sizeType == 4) {
+			for (int n = from; n < from + nb; n++) {
+				writeFloat((float) values[n]);
+			}
+		} else {
+			for (int n = from; n < from + nb; n++) {
+				writeDouble(values[n]);
+			}
+		}
+	}
+
+	/**
+	 * Writes strings stored in a buffer.
+	 *
+	 * @param bytes
+	 * @param offsets the offset of each string in bytes
+	 * @param lengths
+	 * @param from
+	 * @param nb
+	 * @throws IOException
+	 */
+	public void writeStrs(byte[] bytes, int[] offsets, int[] lengths, int from, int nb) throws IOException {
+		for (int n = from; n < from + nb; n++) {
+			writeBytes(Arrays.copyOfRange(bytes, offsets[n], offsets[n] + lengths[n]));
+		}
+	}
 }
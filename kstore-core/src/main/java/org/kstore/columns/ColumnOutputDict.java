@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.columns;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.kstore.PageCodec;
+import org.kstore.utils.ArrayInt;
+import org.kstore.utils.BitPacking;
+import org.kstore.utils.Convert;
+import org.kstore.utils.PageOutputStream;
+import org.kstore.columns.io.ColumnPageBytesOutput;
+
+/**
+ * A column output that writes strings with a dictionary per page.
+ * <p>
+ * Each page holds its distinct values followed by the bit-packed code of every row. A page with too many distinct
+ * values to benefit from a dictionary is written as a plain {@link ColumnOutputSnap} page, and a page made of long runs
+ * of the same value writes the code and the length of each run instead. Pages are compressed with Snappy by default.
+ */
+public class ColumnOutputDict extends ColumnOutput {
+
+	/** Page holding the values as is. */
+	static final byte PLAIN = 0;
+	/** Page holding a dictionary and the codes of the rows. */
+	static final byte DICTIONARY = 1;
+	/** Page holding a dictionary and runs of rows with the same code, as their code and their length. */
+	static final byte RUNS = 2;
+	/** Maximum number of entries of the dictionary of a page. */
+	static final int MAX_ENTRIES = 65536;
+
+	private final Map<Entry, Integer> codes = new HashMap<>();
+	/** Key looking up a value without copying it. */
+	private final Entry probe = new Entry();
+	private final List<byte[]> entries = new ArrayList<>();
+	private int[] rowCodes = new int[1024];
+	private int nbRows;
+	/** Size of the entries, with their length. */
+	private int sizeEntries;
+	/** Size of the values of the page in plain format. */
+	private long sizePlain;
+	/** Buffers kept from one page to the next. */
+	private PageOutputStream bufArray = new PageOutputStream(1024);
+	private DataOutputStream bufData = new DataOutputStream(bufArray);
+	private int[] runs = new int[0];
+	private byte[] packed = new byte[0];
+
+	public ColumnOutputDict(ColumnPageBytesOutput out, ArrayInt pos) {
+		super(out, pos, null);
+		codec = PageCodec.SNAPPY;
+	}
+
+	@Override
+	public int newPage() throws IOException {
+		int bitWidth = BitPacking.bitWidth(Math.max(0, entries.size() - 1));
+		long sizeDictionary = 4 + sizeEntries + 4 + 1 + BitPacking.packedSize(nbRows, bitWidth);
+		int nbRuns = 0;
+		int maxRun = 0;
+		for (int n = 0, start = 0; n < nbRows; n++) {
+			if (n == nbRows - 1 || rowCodes[n + 1] != rowCodes[n]) {
+				nbRuns++;
+				maxRun = Math.max(maxRun, n + 1 - start);
+				start = n + 1;
+			}
+		}
+		int runWidth = BitPacking.bitWidth(Math.max(0, maxRun - 1));
+		long sizeRuns = 4 + sizeEntries + 4 + 2 + BitPacking.packedSize(nbRuns, bitWidth) + BitPacking.packedSize(nbRuns, runWidth);
+		if (entries.size() <= MAX_ENTRIES && sizeRuns < sizeDictionary && sizeRuns < sizePlain) {
+			bufData.write(RUNS);
+			writeEntries(bufData);
+			if (runs.length < nbRuns) {
+				runs = new int[nbRuns];
+			}
+			int irun = 0;
+			for (int n = 0, start = 0; n < nbRows; n++) {
+				if (n == nbRows - 1 || rowCodes[n + 1] != rowCodes[n]) {
+					runs[irun] = n - start;
+					rowCodes[irun++] = rowCodes[n];
+					start = n + 1;
+				}
+			}
+			bufData.writeInt(nbRuns);
+			bufData.write(bitWidth);
+			bufData.write(runWidth);
+			int len = BitPacking.packedSize(nbRuns, bitWidth) + BitPacking.packedSize(nbRuns, runWidth);
+			ensurePacked(len);
+			int p = BitPacking.pack(rowCodes, nbRuns, bitWidth, packed, 0);
+			BitPacking.pack(runs, nbRuns, runWidth, packed, p);
+			bufData.write(packed, 0, len);
+		} else if (entries.size() <= MAX_ENTRIES && sizeDictionary < sizePlain) {
+			bufData.write(DICTIONARY);
+			writeEntries(bufData);
+			bufData.writeInt(nbRows);
+			bufData.write(bitWidth);
+			int len = BitPacking.packedSize(nbRows, bitWidth);
+			ensurePacked(len);
+			BitPacking.pack(rowCodes, nbRows, bitWidth, packed, 0);
+			bufData.write(packed, 0, len);
+		} else {
+			// Too many distinct values, rows are written as in a compressed column
+			bufData.write(PLAIN);
+			for (int n = 0; n < nbRows; n++) {
+				byte[] entry = entries.get(rowCodes[n]);
+				bufData.writeShort(entry.length);
+				bufData.write(entry);
+			}
+		}
+		bufData.flush();
+		int size = writePage(bufArray.getBuffer(), bufArray.size());
+
+		bufArray.reset();
+		codes.clear();
+		entries.clear();
+		nbRows = 0;
+		sizeEntries = 0;
+		sizePlain = 0;
+		return size;
+	}
+
+	private void ensurePacked(int len) {
+		if (packed.length < len) {
+			packed = new byte[len];
+		}
+	}
+
+	private void writeEntries(DataOutputStream bufData) throws IOException {
+		bufData.writeInt(entries.size());
+		for (byte[] entry : entries) {
+			bufData.writeShort(entry.length);
+			bufData.write(entry);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		super.close();
+		bufArray = null;
+		bufData = null;
+		rowCodes = null;
+		runs = null;
+		packed = null;
+	}
+
+	@Override
+	public void writeBytes(byte[] tab) throws IOException {
+		add(tab, 0, tab.length, false);
+	}
+
+	@Override
+	public void writeStrs(byte[] bytes, int[] offsets, int[] lengths, int from, int nb) throws IOException {
+		for (int n = from; n < from + nb; n++) {
+			add(bytes, offsets[n], lengths[n], true);
+		}
+	}
+
+	/**
+	 * Adds a row, its value being copied only if it is a new entry of the page.
+	 *
+	 * @param buf
+	 * @param start
+	 * @param len
+	 * @param copy is buf reused by the caller
+	 */
+	private void add(byte[] buf, int start, int len, boolean copy) {
+		Integer code = codes.get(probe.set(buf, start, len));
+		if (code == null) {
+			byte[] entry = (copy || start != 0 || len != buf.length) ? Arrays.copyOfRange(buf, start, start + len) : buf;
+			code = entries.size();
+			codes.put(new Entry().set(entry, 0, len), code);
+			entries.add(entry);
+			sizeEntries += 2 + len;
+		}
+		if (nbRows == rowCodes.length) {
+			rowCodes = Arrays.copyOf(rowCodes, nbRows * 2);
+		}
+		rowCodes[nbRows++] = code;
+		sizePlain += 2 + len;
+	}
+
+	@Override
+	public void writeStr(String s) throws IOException {
+		writeBytes(s.getBytes("UTF-8"));
+	}
+
+	@Override
+	public void writeRow(byte[] buf, int lg) throws IOException {
+		// The row holds the length of the string followed by its bytes
+		add(buf, 2, Convert.readShort(buf, 0), true);
+	}
+
+	/**
+	 * A value of the dictionary, as a range of bytes.
+	 */
+	private static final class Entry {
+
+		private byte[] buf;
+		private int start;
+		private int len;
+		private int hash;
+
+		Entry set(byte[] buf, int start, int len) {
+			this.buf = buf;
+			this.start = start;
+			this.len = len;
+			int h = 1;
+			for (int n = start; n < start + len; n++) {
+				h = 31 * h + buf[n];
+			}
+			this.hash = h;
+			return this;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Entry)) {
+				return false;
+			}
+			Entry entry = (Entry) other;
+			if (len != entry.len || hash != entry.hash) {
+				return false;
+			}
+			for (int n = 0; n < len; n++) {
+				if (buf[start + n] != entry.buf[entry.start + n]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.columns;
+
+import java.io.IOException;
+import org.kstore.utils.ArrayInt;
+import org.kstore.utils.BitWriter;
+import org.kstore.utils.Convert;
+import org.kstore.columns.io.ColumnPageBytesOutput;
+
+/**
+ * A column output that writes floating point values with the XOR encoding of Gorilla.
+ * <p>
+ * Each value is XORed with the previous one. A value equal to the previous one takes 1 bit, otherwise only the
+ * meaningful bits of the XOR are written, reusing the leading and trailing zero counts of the previous value when
+ * they fit. Floats are written as doubles, which are exactly converted back.
+ */
+public class ColumnOutputDouble extends ColumnOutput {
+
+	private long[] values;
+	private int irow;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private int nulls;
+	private final BitWriter writer;
+
+	public ColumnOutputDouble(ColumnPageBytesOutput out, ArrayInt pos, ZoneMap zoneMap, int nbRows) {
+		super(out, pos, zoneMap);
+		values = new long[nbRows];
+		writer = new BitWriter(nbRows * 2);
+	}
+
+	@Override
+	public int newPage() throws IOException {
+		writer.reset();
+		writer.write(irow, 32);
+		encode(values, irow, writer);
+		int len = writer.finish();
+		int size = writePage(writer.getBuffer(), len);
+		if (zoneMap != null) {
+			zoneMap.add(Double.doubleToLongBits(min), Double.doubleToLongBits(max), nulls);
+		}
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+		nulls = 0;
+		irow = 0;
+		return size;
+	}
+
+	static void encode(long[] values, int nb, BitWriter writer) {
+		if (nb == 0) {
+			return;
+		}
+		long prev = values[0];
+		writer.write(prev, 64);
+		int prevLeading = -1;
+		int prevTrailing = 0;
+		for (int n = 1; n < nb; n++) {
+			long xor = values[n] ^ prev;
+			prev = values[n];
+			if (xor == 0) {
+				writer.writeBit(false);
+				continue;
+			}
+			writer.writeBit(true);
+			int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+			int trailing = Long.numberOfTrailingZeros(xor);
+			if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+				// The meaningful bits fit in the window of the previous value
+				writer.writeBit(false);
+				writer.write(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+			} else {
+				int meaningful = 64 - leading - trailing;
+				writer.writeBit(true);
+				writer.write(leading, 5);
+				writer.write(meaningful - 1, 6);
+				writer.write(xor >>> trailing, meaningful);
+				prevLeading = leading;
+				prevTrailing = trailing;
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		super.close();
+		values = null;
+	}
+
+	@Override
+	public void writeBytes(byte[] tab) throws IOException {
+		throw new IOException("bytes[] cannot be written in a DOUBLE column");
+	}
+
+	@Override
+	public void writeStr(String s) throws IOException {
+		throw new IOException("String cannot be written in a DOUBLE column");
+	}
+
+	@Override
+	public void writeFloat(float v) throws IOException {
+		writeDouble(v);
+	}
+
+	@Override
+	public void writeDouble(double v) throws IOException {
+		values[irow++] = Double.doubleToRawLongBits(v);
+		if (Double.isNaN(v)) {
+			nulls++;
+			return;
+		}
+		if (v < min) {
+			min = v;
+		}
+		if (v > max) {
+			max = v;
+		}
+	}
+
+	@Override
+	public void writeRow(byte[] buf, int lg) throws IOException {
+		writeDouble((lg == 4) ? Float.intBitsToFloat(Convert.readInt(buf, 0)) : Double.longBitsToDouble(Convert.readLong(buf, 0)));
+	}
+}
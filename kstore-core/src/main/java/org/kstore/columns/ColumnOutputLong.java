@@ -17,52 +17,220 @@ package org.kstore.columns;
 
 import java.io.IOException;
 import org.kstore.utils.ArrayInt;
+import org.kstore.utils.BitPacking;
 import org.kstore.utils.Convert;
 import org.kstore.utils.IO;
 import org.kstore.columns.io.ColumnPageBytesOutput;
 
 /**
  * A column output that allow to write long values.
+ * <p>
+ * Values of a page are bit-packed on the smallest width holding their distance to the page minimum (frame of
+ * reference). Pages of near-sorted values, like the ids, pack the distance between consecutive values instead when it
+ * is smaller, and pages made of long runs of equal values pack each run once with its length. Pages whose values and
+ * nulls do not fit in 64 bits are written with 8 bytes per value.
  */
 public class ColumnOutputLong extends ColumnOutput {
 
+	/** Header of pages packing the distance of values to the minimum, page headers up to 8 being byte sizes. */
+	static final int FOR = 16;
+	/** Header of pages packing the distance between consecutive values and the minimum one. */
+	static final int DELTA = 17;
+	/** Header of FOR pages holding nulls, the highest packed value being kept for them. */
+	static final int FOR_NULLS = 18;
+	/** Header of pages packing runs of equal values, as their FOR value and their length. */
+	static final int RLE = 19;
+	/** Header of RLE pages holding nulls. */
+	static final int RLE_NULLS = 20;
+
 	private long[] bufInt;
 	private int irow;
 	private long max = Long.MIN_VALUE;
 	private long min = Long.MAX_VALUE;
-	private byte[] rows;
+	private int nulls;
+	/** Buffers kept from one page to the next. */
+	private byte[] rows = new byte[0];
+	private long[] runs = new long[0];
+	/** The step between values of each page, kept for the id column only. */
+	private final ArrayInt steps;
+
+	public ColumnOutputLong(ColumnPageBytesOutput out, ArrayInt pos, ZoneMap zoneMap, int nbRows) {
+		this(out, pos, zoneMap, nbRows, null);
+	}
 
-	public ColumnOutputLong(ColumnPageBytesOutput out, ArrayInt pos, int nbRows) {
-		super(out, pos);
+	/**
+	 * Constructor.
+	 * @param out
+	 * @param pos
+	 * @param zoneMap
+	 * @param nbRows
+	 * @param steps receives the step between the values of each page, 0 if they are not an arithmetic sequence
+	 */
+	public ColumnOutputLong(ColumnPageBytesOutput out, ArrayInt pos, ZoneMap zoneMap, int nbRows, ArrayInt steps) {
+		super(out, pos, zoneMap);
 		bufInt = new long[nbRows];
+		this.steps = steps;
 	}
 
 	@Override
 	public int newPage() throws IOException {
-		int size = sizePage(min, max);
-		int lg = 9 + size * irow;
-		if (rows == null || rows.length != lg) {
-			rows = new byte[lg];
+		int nonNulls = irow - nulls;
+		long base = (nonNulls == 0) ? 0 : min;
+		long range = (nonNulls == 0) ? 0 : max - min;
+		// The highest packed value is kept for nulls
+		int width = (nulls == 0) ? BitPacking.bitWidth(range) : ((range == -1) ? 65 : BitPacking.bitWidth(range + 1));
+		if (width > 64 || (width == 64 && nulls > 0)) {
+			if (steps != null) {
+				steps.add(0);
+			}
+			return newBytePage();
+		}
+		int lg = 14 + BitPacking.packedSize(irow, width);
+
+		long minDelta = Long.MAX_VALUE;
+		int deltaWidth = 64;
+		if (nulls == 0 && irow > 1) {
+			long maxDelta = Long.MIN_VALUE;
+			for (int n = 1; n < irow; n++) {
+				long delta = bufInt[n] - bufInt[n - 1];
+				minDelta = Math.min(minDelta, delta);
+				maxDelta = Math.max(maxDelta, delta);
+			}
+			deltaWidth = BitPacking.bitWidth(maxDelta - minDelta);
+		}
+		int deltaLg = 22 + BitPacking.packedSize(irow, deltaWidth);
+		if (steps != null) {
+			steps.add(arithmeticStep(minDelta, deltaWidth));
 		}
+
+		int nbRuns = 0;
+		int maxRun = 0;
+		for (int n = 0, start = 0; n < irow; n++) {
+			if (n == irow - 1 || bufInt[n + 1] != bufInt[n]) {
+				nbRuns++;
+				maxRun = Math.max(maxRun, n + 1 - start);
+				start = n + 1;
+			}
+		}
+		int runWidth = BitPacking.bitWidth(Math.max(0, maxRun - 1));
+		int rleLg = 15 + BitPacking.packedSize(nbRuns, width) + BitPacking.packedSize(nbRuns, runWidth);
+
 		int p = 0;
-		rows[p++] = (byte) size;
-		IO.writeLong(min, rows, p);
+		if (rleLg < lg && (deltaWidth == 64 || rleLg < deltaLg)) {
+			ensureRows(rleLg);
+			rows[p++] = (byte) ((nulls == 0) ? RLE : RLE_NULLS);
+			IO.writeInt(nbRuns, rows, p);
+			IO.writeLong(base, rows, p + 4);
+			p += 12;
+			rows[p++] = (byte) width;
+			rows[p++] = (byte) runWidth;
+			long nullValue = (1L << width) - 1;
+			if (runs.length < nbRuns) {
+				runs = new long[nbRuns];
+			}
+			int irun = 0;
+			for (int n = 0, start = 0; n < irow; n++) {
+				if (n == irow - 1 || bufInt[n + 1] != bufInt[n]) {
+					runs[irun] = n - start;
+					bufInt[irun++] = (bufInt[n] == Long.MIN_VALUE) ? nullValue : bufInt[n] - base;
+					start = n + 1;
+				}
+			}
+			p = BitPacking.pack(bufInt, nbRuns, width, rows, p);
+			BitPacking.pack(runs, nbRuns, runWidth, rows, p);
+			return endPage(rleLg);
+		} else if (deltaWidth < 64 && deltaLg < lg) {
+			ensureRows(deltaLg);
+			rows[p++] = (byte) DELTA;
+			IO.writeInt(irow, rows, p);
+			IO.writeLong(bufInt[0], rows, p + 4);
+			IO.writeLong(minDelta, rows, p + 12);
+			p += 20;
+			rows[p++] = (byte) deltaWidth;
+			for (int n = irow - 1; n > 0; n--) {
+				bufInt[n] = bufInt[n] - bufInt[n - 1] - minDelta;
+			}
+			bufInt[0] = 0;
+			BitPacking.pack(bufInt, irow, deltaWidth, rows, p);
+			return endPage(deltaLg);
+		} else {
+			ensureRows(lg);
+			rows[p++] = (byte) ((nulls == 0) ? FOR : FOR_NULLS);
+			IO.writeInt(irow, rows, p);
+			IO.writeLong(base, rows, p + 4);
+			p += 12;
+			rows[p++] = (byte) width;
+			long nullValue = (1L << width) - 1;
+			for (int n = 0; n < irow; n++) {
+				bufInt[n] = (bufInt[n] == Long.MIN_VALUE) ? nullValue : bufInt[n] - base;
+			}
+			BitPacking.pack(bufInt, irow, width, rows, p);
+			return endPage(lg);
+		}
+	}
+
+	private void ensureRows(int len) {
+		if (rows.length < len) {
+			rows = new byte[len];
+		}
+	}
+
+	/**
+	 * Gets the step between the values of the page.
+	 *
+	 * @param minDelta
+	 * @param deltaWidth
+	 * @return the step, 0 if values are not an arithmetic sequence of ints
+	 */
+	private int arithmeticStep(long minDelta, int deltaWidth) {
+		if (nulls > 0) {
+			return 0;
+		}
+		if (irow <= 1) {
+			return 1;
+		}
+		// All deltas are equal when they are packed on 0 bits
+		if (deltaWidth != 0 || minDelta == 0 || minDelta != (int) minDelta) {
+			return 0;
+		}
+		return (int) minDelta;
+	}
+
+	/**
+	 * Writes the page with 8 bytes per value, when values and nulls need more than 64 bits once packed. Values are
+	 * written as is, so only nulls are written as Long.MIN_VALUE.
+	 *
+	 * @return
+	 */
+	private int newBytePage() throws IOException {
+		ensureRows(9 + 8 * irow);
+		int p = 0;
+		rows[p++] = (byte) 8;
+		IO.writeLong(0, rows, p);
 		p += 8;
 		for (int n = 0; n < irow; n++) {
-			p = writeVal(size, rows, p, bufInt[n], min);
+			p = writeVal(8, rows, p, bufInt[n], 0);
+		}
+		return endPage(p);
+	}
+
+	private int endPage(int len) throws IOException {
+		int size = writePage(rows, len);
+		if (zoneMap != null) {
+			zoneMap.add(min, max, nulls);
 		}
-		out.writeNextPageBytes(rows);
-		pos.add(rows.length);
 		max = Long.MIN_VALUE;
 		min = Long.MAX_VALUE;
+		nulls = 0;
 		irow = 0;
-		return rows.length;
+		return size;
 	}
 
 	@Override
 	public void close() throws IOException {
 		super.close();
 		rows = null;
+		runs = null;
 		bufInt = null;
 	}
 
@@ -99,6 +267,7 @@ public class ColumnOutputLong extends ColumnOutput {
 	public void writeLong(long id) {
 		bufInt[irow++] = id;
 		if (id == Long.MIN_VALUE) {
+			nulls++;
 			return;
 		}
 		if (id > max) {
@@ -109,6 +278,52 @@ public class ColumnOutputLong extends ColumnOutput {
 		}
 	}
 
+	@Override
+	public void writeInts(int[] values, int from, int nb) {
+		for (int n = from; n < from + nb; n++) {
+			writeInt(values[n]);
+		}
+	}
+
+	@Override
+	public void writeLongs(long[] values, int from, int nb, int sizeType) {
+		// Values are truncated to the type size as by writeByte, writeShort and writeInt
+		switch (sizeType) {
+			case 1:
+				for (int n = 0; n < nb; n++) {
+					bufInt[irow + n] = Convert.longToByte(values[from + n]);
+				}
+				break;
+			case 2:
+				for (int n = 0; n < nb; n++) {
+					bufInt[irow + n] = Convert.longToShort(values[from + n]);
+				}
+				break;
+			case 4:
+				for (int n = 0; n < nb; n++) {
+					bufInt[irow + n] = Convert.intToLong(Convert.longToInt(values[from + n]));
+				}
+				break;
+			default:
+				System.arraycopy(values, from, bufInt, irow, nb);
+				break;
+		}
+		for (int n = irow; n < irow + nb; n++) {
+			long v = bufInt[n];
+			if (v == Long.MIN_VALUE) {
+				nulls++;
+				continue;
+			}
+			if (v > max) {
+				max = v;
+			}
+			if (v < min) {
+				min = v;
+			}
+		}
+		irow += nb;
+	}
+
 	@Override
 	public void writeFloat(float v) throws IOException {
 		writeLong(Float.floatToRawIntBits(v));
@@ -124,27 +339,6 @@ public class ColumnOutputLong extends ColumnOutput {
 		writeLong(Convert.readLong(buf, 0));
 	}
 
-	static final int sizePage(long min, long max) {
-		long dec = max - min;
-		int size = 8;
-		if (dec < 0xFFL) {
-			size = 1;
-		} else if (dec < 0xFFFFL) {
-			size = 2;
-		} else if (dec < 0xFFFFFFL) {
-			size = 3;
-		} else if (dec < 0xFFFFFFFFL) {
-			size = 4;
-		} else if (dec < 0xFFFFFFFFFFL) {
-			size = 5;
-		} else if (dec < 0xFFFFFFFFFFFFL) {
-			size = 6;
-		} else if (dec < 0xFFFFFFFFFFFFFFL) {
-			size = 7;
-		}
-		return size;
-	}
-
 	static final int writeVal(int size, byte[] rows, int p, long val, long min) {
 		long value = (val == Long.MIN_VALUE) ? 0xFFFFFFFFFFFFFFFFL : val - min;
 		switch (size) {
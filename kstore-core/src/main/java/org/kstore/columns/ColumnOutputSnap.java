@@ -15,9 +15,10 @@
  */
 package org.kstore.columns;
 
+import org.kstore.PageCodec;
 import org.kstore.utils.ArrayInt;
-import org.iq80.snappy.Snappy;
-import java.io.ByteArrayOutputStream;
+import org.kstore.utils.Convert;
+import org.kstore.utils.PageOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import org.kstore.columns.io.ColumnPageBytesOutput;
@@ -28,7 +29,11 @@ import org.kstore.columns.io.ColumnPageBytesOutput;
 public class ColumnOutputSnap extends ColumnOutput {
 
 	private DataOutputStream bufData;
-	private ByteArrayOutputStream bufArray;
+	private PageOutputStream bufArray;
+	/** Statistics of floating point values of the page. */
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private int nulls;
 
 	/**
 	 * Constructor.
@@ -37,20 +42,34 @@ public class ColumnOutputSnap extends ColumnOutput {
 	 * @throws IOException 
 	 */
 	public ColumnOutputSnap(ColumnPageBytesOutput out, ArrayInt pos) throws IOException {
-		super(out, pos);
-		bufData = new DataOutputStream(bufArray = new ByteArrayOutputStream(1024));
+		this(out, pos, null);
+	}
+
+	/**
+	 * Constructor.
+	 * @param out
+	 * @param pos
+	 * @param zoneMap the statistics of floating point values, null for other types
+	 * @throws IOException 
+	 */
+	public ColumnOutputSnap(ColumnPageBytesOutput out, ArrayInt pos, ZoneMap zoneMap) throws IOException {
+		super(out, pos, zoneMap);
+		bufData = new DataOutputStream(bufArray = new PageOutputStream(1024));
+		codec = PageCodec.SNAPPY;
 	}
 
 	@Override
 	public int newPage() throws IOException {
-		bufData.close();
-		byte[] buf = bufArray.toByteArray();
-		buf = Snappy.compress(buf);
-		out.writeNextPageBytes(buf);
-		pos.add(buf.length);
+		bufData.flush();
+		int size = writePage(bufArray.getBuffer(), bufArray.size());
+		if (zoneMap != null) {
+			zoneMap.add(Double.doubleToLongBits(min), Double.doubleToLongBits(max), nulls);
+			min = Double.POSITIVE_INFINITY;
+			max = Double.NEGATIVE_INFINITY;
+			nulls = 0;
+		}
 		bufArray.reset();
-		bufData = new DataOutputStream(bufArray);
-		return buf.length;
+		return size;
 	}
 
 	@Override
@@ -66,6 +85,14 @@ public class ColumnOutputSnap extends ColumnOutput {
 		bufData.write(tab);
 	}
 
+	@Override
+	public void writeStrs(byte[] bytes, int[] offsets, int[] lengths, int from, int nb) throws IOException {
+		for (int n = from; n < from + nb; n++) {
+			bufData.writeShort(lengths[n]);
+			bufData.write(bytes, offsets[n], lengths[n]);
+		}
+	}
+
 	@Override
 	public void writeStr(String s) throws IOException {
 		byte[] str = s.getBytes("UTF-8");
@@ -95,16 +122,34 @@ public class ColumnOutputSnap extends ColumnOutput {
 	@Override
 	public void writeFloat(float v) throws IOException {
 		bufData.writeFloat(v);
+		addStat(v);
 	}
 
 	@Override
 	public void writeDouble(double v) throws IOException {
 		bufData.writeDouble(v);
+		addStat(v);
+	}
+
+	private void addStat(double v) {
+		if (Double.isNaN(v)) {
+			nulls++;
+			return;
+		}
+		if (v < min) {
+			min = v;
+		}
+		if (v > max) {
+			max = v;
+		}
 	}
 
 	@Override
 	public void writeRow(byte[] buf, int lg) throws IOException {
 		bufData.write(buf, 0, lg);
+		if (zoneMap != null) {
+			addStat((lg == 4) ? Float.intBitsToFloat(Convert.readInt(buf, 0)) : Double.longBitsToDouble(Convert.readLong(buf, 0)));
+		}
 	}
 
 }
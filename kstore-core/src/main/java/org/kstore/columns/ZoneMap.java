@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.columns;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.kstore.utils.ArrayInt;
+import org.kstore.utils.ArrayLong;
+
+/**
+ * The minimum, maximum and number of nulls of each page of a column.
+ * <p>
+ * Integer columns store their values as is. Floating point columns store the raw bits of their doubles. A column
+ * without statistics (e.g. a string column) has an empty zone map.
+ */
+public class ZoneMap {
+
+	private final ArrayLong mins = new ArrayLong();
+	private final ArrayLong maxs = new ArrayLong();
+	private final ArrayInt nulls = new ArrayInt();
+
+	public void add(long min, long max, int nbNulls) {
+		mins.add(min);
+		maxs.add(max);
+		nulls.add(nbNulls);
+	}
+
+	/**
+	 * Gets the number of pages described by this zone map.
+	 * @return
+	 */
+	public int getSize() {
+		return mins.getSize();
+	}
+
+	public long getMin(int page) {
+		return mins.getLong(page);
+	}
+
+	public long getMax(int page) {
+		return maxs.getLong(page);
+	}
+
+	public int getNulls(int page) {
+		return nulls.getInt(page);
+	}
+
+	public void compact() {
+		mins.compact();
+		maxs.compact();
+		nulls.compact();
+	}
+
+	public void save(DataOutputStream out) throws IOException {
+		out.writeInt(getSize());
+		for (int n = 0; n < getSize(); n++) {
+			out.writeLong(mins.getLong(n));
+			out.writeLong(maxs.getLong(n));
+			out.writeInt(nulls.getInt(n));
+		}
+	}
+
+	public ZoneMap load(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		for (int n = 0; n < size; n++) {
+			add(in.readLong(), in.readLong(), in.readInt());
+		}
+		return this;
+	}
+}
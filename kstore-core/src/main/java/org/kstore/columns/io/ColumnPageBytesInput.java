@@ -34,6 +34,14 @@ public interface ColumnPageBytesInput {
 	 */
 	int readNextPage(byte b[], int off, int len) throws IOException;
 
+	/**
+	 * Moves forward of len bytes without reading them. The skipped bytes always end on a page boundary.
+	 *
+	 * @param len
+	 * @throws IOException
+	 */
+	void skipNextPages(long len) throws IOException;
+
 	void closeColumn() throws IOException;
 
 }
@@ -23,7 +23,14 @@ import java.io.IOException;
  */
 public interface ColumnPageBytesOutput {
 
-	void writeNextPageBytes(byte[] rows) throws IOException;
+	/**
+	 * Writes the first len bytes of a page, the buffer being reused once written.
+	 *
+	 * @param rows
+	 * @param len
+	 * @throws IOException
+	 */
+	void writeNextPageBytes(byte[] rows, int len) throws IOException;
 
 	void closeColumn() throws IOException;
 }
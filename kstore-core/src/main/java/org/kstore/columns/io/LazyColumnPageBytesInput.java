@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.columns.io;
+
+import java.io.IOException;
+
+/**
+ * A column opened on its first read or skip, so that columns whose pages are all found in the page cache are never
+ * opened.
+ */
+public class LazyColumnPageBytesInput implements ColumnPageBytesInput {
+
+	/**
+	 * Opens the column.
+	 */
+	public interface Opener {
+
+		ColumnPageBytesInput open() throws IOException;
+	}
+
+	private final Opener opener;
+	private ColumnPageBytesInput in;
+
+	public LazyColumnPageBytesInput(Opener opener) {
+		this.opener = opener;
+	}
+
+	private ColumnPageBytesInput in() throws IOException {
+		if (in == null) {
+			in = opener.open();
+		}
+		return in;
+	}
+
+	@Override
+	public int readNextPage(byte[] b, int off, int len) throws IOException {
+		return in().readNextPage(b, off, len);
+	}
+
+	@Override
+	public void skipNextPages(long len) throws IOException {
+		in().skipNextPages(len);
+	}
+
+	@Override
+	public void closeColumn() throws IOException {
+		if (in != null) {
+			in.closeColumn();
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.columns.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.kstore.utils.ArrayInt;
+import org.kstore.utils.MappedFile;
+
+/**
+ * Reads the pages of a column stored in its own file from the memory mapping of the file. Each page is copied straight
+ * from the mapping into the page buffer, without read calls, and skipping pages only moves the position in the mapping.
+ *
+ * @see SingleColumnPageBytesInput
+ */
+public class MappedColumnPageBytesInput implements ColumnPageBytesInput {
+
+	private final MappedFile file;
+	/** View of the mapping, null once closed. */
+	private ByteBuffer buffer;
+	/** Size of each page. */
+	private final ArrayInt pos;
+	/** Next page to read. */
+	private int ipage;
+
+	public MappedColumnPageBytesInput(MappedFile file, ArrayInt pos) {
+		this.file = file;
+		this.buffer = file.getBuffer();
+		this.pos = pos;
+	}
+
+	@Override
+	public int readNextPage(byte[] b, int off, int len) throws IOException {
+		if (ipage >= pos.getSize()) {
+			return -1;
+		}
+		int size = pos.getInt(ipage);
+		if (len < size) {
+			throw new IllegalArgumentException("We should request at least the next page");
+		}
+		buffer.get(b, off, size);
+		ipage++;
+		return size;
+	}
+
+	@Override
+	public void skipNextPages(long len) throws IOException {
+		buffer.position((int) (buffer.position() + len));
+		while (len > 0 && ipage < pos.getSize()) {
+			len -= pos.getInt(ipage++);
+		}
+	}
+
+	@Override
+	public void closeColumn() throws IOException {
+		// The mapping is released once, it may be unmapped then
+		if (buffer != null) {
+			buffer = null;
+			file.release();
+		}
+	}
+}
@@ -17,103 +17,119 @@ package org.kstore.columns.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.IntStream;
+import org.kstore.Device;
 import org.kstore.utils.ArrayInt;
+import org.kstore.utils.IO;
+import org.kstore.utils.MappedFile;
 
 /**
+ * Reads the columns of a single file. Each column reader knows the page it is on, so pages are located by their offset
+ * in the file: skipping pages only moves this page, and the file is opened on the first page actually read.
  *
  * @see MultipleColumnPageBytesOutput
  */
 public class MultipleColumnPageBytesInput {
 
 	private final AtomicInteger nbColumns = new AtomicInteger();
-	private final InputStream inputStream;
+	private final Device device;
+	private final String path;
+	/** The stream, opened on first read. */
+	private InputStream inputStream;
+	/** The mapping of the file and its view, used instead of the stream by devices mapping files. */
+	private MappedFile mappedFile;
+	private ByteBuffer mapping;
+	/** The position of the stream in the file. */
+	private long position;
 	private final ArrayInt[] columnIndexToPageIndexes;
+	/** Offset of the first page of each row of pages in the file. */
+	private final long[] rowOffsets;
 
 	private final Set<Integer> openedColumns = new TreeSet<>();
 
-	// Initially, we are on first row and about to read the first column
-	final AtomicInteger currentRow = new AtomicInteger();
-	final AtomicInteger nextColumn = new AtomicInteger();
-
-	public MultipleColumnPageBytesInput(ArrayInt[] columnIndexToPageIndexes, InputStream inputStream) {
+	public MultipleColumnPageBytesInput(ArrayInt[] columnIndexToPageIndexes, Device device, String path) {
 		this.columnIndexToPageIndexes = columnIndexToPageIndexes;
-		this.inputStream = inputStream;
-	}
-
-	public int readBytes(byte[] b, int off, int len) throws IOException {
-		return inputStream.read(b, off, len);
-	}
-
-	public void closeColumn() throws IOException {
-		if (nbColumns.decrementAndGet() == 0) {
-			// All columns are closed: we can close the single file holding all columns
-			inputStream.close();
+		this.device = device;
+		this.path = path;
+		// Pages of a row are stored column after column, the id column being in its own file
+		int nbRows = columnIndexToPageIndexes[0].getSize();
+		rowOffsets = new long[nbRows + 1];
+		for (int row = 0; row < nbRows; row++) {
+			rowOffsets[row + 1] = rowOffsets[row] + bytesBeforeColumn(columnIndexToPageIndexes.length - 1, row);
 		}
 	}
 
-	private void incrementNbColumns() {
-		nbColumns.incrementAndGet();
-	}
-
 	/**
-	 * Skip between to position the cursor on give column, moving to next row if
-	 * necessary
+	 * Reads a page fully, the pages being read in the order of the file.
 	 *
-	 * @param columnIndex
-	 * the column to which we want to move
-	 * @throws IOException
+	 * @param offset the offset of the page in the file
 	 */
-	protected void skipToColumn(int columnIndex) throws IOException {
-		int localNextColumn = nextColumn.get();
-		if (columnIndex != localNextColumn) {
-			// We have some pages to skip
-			long nbToSKip = 0L;
-			if (columnIndex > localNextColumn) {
-				int currentrow = currentRow.get();
-				// We look for a next column of current row
-				nbToSKip += bytesBetweenColumns(localNextColumn, columnIndex, currentrow);
+	private void readPage(long offset, byte[] b, int off, int len) throws IOException {
+		if (offset < position) {
+			throw new IllegalStateException("The pages of a single file have to be read in order: " + offset + "<" + position);
+		}
+		if (inputStream == null && mapping == null) {
+			mappedFile = device.map(path);
+			if (mappedFile != null) {
+				mapping = mappedFile.getBuffer();
 			} else {
-				// The next page for given column is on next row
-				int nextRow = currentRow.incrementAndGet();
-				int previousRow = nextRow - 1;
+				inputStream = device.getInputStream(path);
+			}
+		}
+		if (mapping != null) {
+			// The page is copied from the mapping, skipped pages are never touched
+			mapping.position((int) offset);
+			mapping.get(b, off, len);
+			position = offset + len;
+			return;
+		}
+		IO.skipFully(inputStream, offset - position);
+		position = offset;
 
-				// Move until end of this row
-				// -1 to exclude idColumn
-				nbToSKip += bytesBetweenColumns(localNextColumn, columnIndexToPageIndexes.length - 1, previousRow);
+		int totalNbRead = 0;
+		while (totalNbRead < len) {
+			int nbRead = inputStream.read(b, off + totalNbRead, len - totalNbRead);
 
-				if (previousRow < columnIndexToPageIndexes[0].getInts().length) {
-					// Move to requested column: From 1 to skip idColumnPositions
-					nbToSKip += bytesBetweenColumns(0, columnIndex, nextRow);
-				}
+			if (nbRead < 0) {
+				throw new IllegalStateException("The IS has not the number of bytes for given page: " + totalNbRead + "/" + len);
 			}
 
-			inputStream.skip(nbToSKip);
+			totalNbRead += nbRead;
+		}
+		position += len;
+	}
 
-			nextColumn.set(columnIndex);
+	public void closeColumn() throws IOException {
+		if (nbColumns.decrementAndGet() == 0) {
+			// All columns are closed: we can close the single file holding all columns
+			if (inputStream != null) {
+				inputStream.close();
+			}
+			if (mappedFile != null) {
+				mapping = null;
+				mappedFile.release();
+				mappedFile = null;
+			}
 		}
 	}
 
-	private long bytesBetweenColumns(int fromColumn, int toColumn, int row) {
-		// +1 to skip idColumn
-		return IntStream.range(fromColumn + 1, toColumn + 1).mapToLong(c -> columnIndexToPageIndexes[c].getInt(row)).sum();
+	private void incrementNbColumns() {
+		nbColumns.incrementAndGet();
 	}
 
-	// Current read moves us to next page
-	private void adjustNewPosition() {
-		// +1: we check if next column does exist
-		// -1: we skip the idColumn
-		if (nextColumn.get() + 1 == columnIndexToPageIndexes.length - 1) {
-			// We are on last column: move to next row
-			nextColumn.set(0);
-			currentRow.incrementAndGet();
-		} else {
-			// Move to next column of current row
-			nextColumn.incrementAndGet();
+	/**
+	 * Gets the bytes of the pages of a row preceding the page of a column.
+	 */
+	private long bytesBeforeColumn(int columnIndex, int row) {
+		long bytes = 0;
+		for (int c = 0; c < columnIndex; c++) {
+			// +1 to skip idColumn
+			bytes += columnIndexToPageIndexes[c + 1].getInt(row);
 		}
+		return bytes;
 	}
 
 	public ColumnPageBytesInput popColumnReader(int columnIndex) {
@@ -121,48 +137,37 @@ public class MultipleColumnPageBytesInput {
 			throw new IllegalStateException("The column #" + columnIndex + " has already been open");
 		}
 		incrementNbColumns();
+		// +1 to skip idColumn
+		ArrayInt columnPagePositions = columnIndexToPageIndexes[columnIndex + 1];
 
 		return new ColumnPageBytesInput() {
 
+			/** The next page of the column. */
+			private int row;
+
 			@Override
 			public int readNextPage(byte[] b, int off, int len) throws IOException {
-				MultipleColumnPageBytesInput.this.skipToColumn(columnIndex);
-
-				// +1 to skip idColumn
-				ArrayInt currentColumnPagePositions = columnIndexToPageIndexes[nextColumn.get() + 1];
-				int currentPageRow = currentRow.get();
-				if (currentPageRow >= currentColumnPagePositions.getInts().length) {
+				if (row >= columnPagePositions.getSize()) {
 					// There is no next row
 					return -1;
 				}
-				int currentPageLength = currentColumnPagePositions.getInt(currentPageRow);
+				int currentPageLength = columnPagePositions.getInt(row);
 				if (len < currentPageLength) {
-					// TODO It may be legit to ask only the first bytes of given page. Still, next
-					// call for current column should move moving to next page
 					throw new IllegalArgumentException("We should request at least the next page");
-				} else if (len > currentPageLength) {
-					// The caller is certainly trying to fill a buffer: we will return less bytes as
-					// only current page is available
-					len = currentPageLength;
 				}
+				// The caller may try to fill a buffer: only the current page is returned
+				readPage(rowOffsets[row] + bytesBeforeColumn(columnIndex, row), b, off, currentPageLength);
+				row++;
+				return currentPageLength;
+			}
 
-				int totalNbRead = 0;
-
-				// We need to fully read the page, as we will adjust the cursor position after reading bytes
-				while (totalNbRead < len) {
-					int nbRead = MultipleColumnPageBytesInput.this.readBytes(b, off + totalNbRead, len - totalNbRead);
-
-					if (nbRead < 0) {
-						throw new IllegalStateException("The IS has not the number of bytes for given page: " + totalNbRead + "/" + len);
-					}
-
-					totalNbRead += nbRead;
+			@Override
+			public void skipNextPages(long len) throws IOException {
+				// Nothing is read: the next page read is located by its offset
+				while (len > 0) {
+					len -= columnPagePositions.getInt(row);
+					row++;
 				}
-
-				// Adjust internals due to the fact we have read a page
-				MultipleColumnPageBytesInput.this.adjustNewPosition();
-
-				return totalNbRead;
 			}
 
 			@Override
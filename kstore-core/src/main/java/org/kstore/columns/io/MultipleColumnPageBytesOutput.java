@@ -41,8 +41,8 @@ public class MultipleColumnPageBytesOutput implements ColumnPageBytesOutput {
 	}
 
 	@Override
-	public void writeNextPageBytes(byte[] rows) throws IOException {
-		outputStream.write(rows);
+	public void writeNextPageBytes(byte[] rows, int len) throws IOException {
+		outputStream.write(rows, 0, len);
 	}
 
 	@Override
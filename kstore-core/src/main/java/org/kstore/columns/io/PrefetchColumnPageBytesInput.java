@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.columns.io;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import org.kstore.utils.ArrayInt;
+import org.kstore.utils.BucketIOSharedPool;
+import org.kstore.utils.IO;
+import org.kstore.utils.PageBufferPool;
+
+/**
+ * Reads the pages of a column stored in its own file ahead of their decoding. This hides the latency of remote
+ * devices, where each read is a network round trip.
+ * <p>
+ * Pages are fetched by a task of the {@link BucketIOSharedPool}, in arrays of the {@link PageBufferPool} given back
+ * once copied to the reader. At most maxPages pages are kept ahead of the reader, and the arrays holding the fetched
+ * pages of all columns take at most maxBytes bytes. When nothing is fetched, as when the pool runs tasks on the
+ * caller thread, the reader reads the next page itself.
+ *
+ * @see SingleColumnPageBytesInput
+ */
+public class PrefetchColumnPageBytesInput implements ColumnPageBytesInput {
+
+	/** Bytes of the arrays holding the fetched pages of all columns. */
+	private static final AtomicLong PREFETCHED_BYTES = new AtomicLong();
+
+	private final InputStream inputStream;
+	/** Size of each page. */
+	private final ArrayInt pos;
+	private final int maxPages;
+	private final long maxBytes;
+
+	// The fields below are guarded by this
+	/** Fetched pages, the first one being page nextPage - pages.size(). */
+	private final ArrayDeque<byte[]> pages = new ArrayDeque<>();
+	/** Next page to be read from the stream. */
+	private int nextPage;
+	/** Is the stream being read, by a task or by the reader. */
+	private boolean fetching;
+	private boolean closed;
+	private IOException error;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param inputStream
+	 * @param pos
+	 * @param maxPages the maximum number of pages fetched ahead for this column
+	 * @param maxBytes the maximum number of bytes fetched ahead for all columns
+	 */
+	public PrefetchColumnPageBytesInput(InputStream inputStream, ArrayInt pos, int maxPages, long maxBytes) {
+		this.inputStream = inputStream;
+		this.pos = pos;
+		this.maxPages = maxPages;
+		this.maxBytes = maxBytes;
+		fetchMore();
+	}
+
+	/**
+	 * Starts fetching the next pages, unless the pool would run the task on the caller thread.
+	 */
+	private void fetchMore() {
+		if (BucketIOSharedPool.isSequential()) {
+			return;
+		}
+		synchronized (this) {
+			if (fetching || closed || error != null || nextPage >= pos.getSize() || pages.size() >= maxPages) {
+				return;
+			}
+			fetching = true;
+		}
+		BucketIOSharedPool.submit(() -> {
+			fetchPages();
+			return null;
+		});
+	}
+
+	/**
+	 * Fetches pages while the budgets allow it.
+	 */
+	private void fetchPages() {
+		while (true) {
+			int size;
+			synchronized (this) {
+				if (closed || nextPage >= pos.getSize() || pages.size() >= maxPages) {
+					endFetch();
+					return;
+				}
+				size = pos.getInt(nextPage);
+			}
+			byte[] page = reserve(size);
+			if (page == null) {
+				synchronized (this) {
+					endFetch();
+				}
+				return;
+			}
+			IOException readError = null;
+			try {
+				readFully(page, 0, size);
+			} catch (IOException e) {
+				readError = e;
+			}
+			synchronized (this) {
+				if (readError != null || closed) {
+					error = readError;
+					unreserve(page);
+					endFetch();
+					return;
+				}
+				pages.add(page);
+				nextPage++;
+				notifyAll();
+			}
+		}
+	}
+
+	private void endFetch() {
+		fetching = false;
+		notifyAll();
+	}
+
+	/**
+	 * Takes an array for a fetched page, if the arrays of the fetched pages of all columns stay within maxBytes.
+	 *
+	 * @param size
+	 * @return the array, null if the budget is exhausted
+	 */
+	private byte[] reserve(int size) {
+		if (PREFETCHED_BYTES.get() + size > maxBytes) {
+			return null;
+		}
+		byte[] page = PageBufferPool.acquire(size);
+		if (PREFETCHED_BYTES.addAndGet(page.length) > maxBytes) {
+			unreserve(page);
+			return null;
+		}
+		return page;
+	}
+
+	private static void unreserve(byte[] page) {
+		PREFETCHED_BYTES.addAndGet(-page.length);
+		PageBufferPool.release(page);
+	}
+
+	private void readFully(byte[] page, int off, int size) throws IOException {
+		int nb = 0;
+		while (nb < size) {
+			int read = inputStream.read(page, off + nb, size - nb);
+			if (read < 0) {
+				throw new IOException("The stream has not the number of bytes for given page: " + nb + "/" + size);
+			}
+			nb += read;
+		}
+	}
+
+	@Override
+	public int readNextPage(byte[] b, int off, int len) throws IOException {
+		byte[] page = null;
+		int size;
+		synchronized (this) {
+			while (pages.isEmpty() && fetching) {
+				waitFetch();
+			}
+			if (pages.isEmpty()) {
+				if (error != null) {
+					throw error;
+				}
+				if (nextPage >= pos.getSize()) {
+					// There is no next page
+					return -1;
+				}
+			}
+			size = headSize();
+			if (len < size) {
+				throw new IllegalArgumentException("We should request at least the next page");
+			}
+			if (!pages.isEmpty()) {
+				page = pages.poll();
+			} else {
+				// Nothing was fetched: the page is read by the caller
+				fetching = true;
+			}
+		}
+		if (page != null) {
+			System.arraycopy(page, 0, b, off, size);
+			unreserve(page);
+		} else {
+			boolean read = false;
+			try {
+				readFully(b, off, size);
+				read = true;
+			} finally {
+				synchronized (this) {
+					if (read) {
+						nextPage++;
+					}
+					endFetch();
+				}
+			}
+		}
+		fetchMore();
+		return size;
+	}
+
+	@Override
+	public void skipNextPages(long len) throws IOException {
+		synchronized (this) {
+			while (len > 0) {
+				if (!pages.isEmpty()) {
+					// Fetched pages are just dropped
+					len -= headSize();
+					unreserve(pages.poll());
+				} else if (fetching) {
+					waitFetch();
+				} else {
+					if (error != null) {
+						throw error;
+					}
+					// Nothing is read ahead: the remaining pages are skipped in the stream
+					IO.skipFully(inputStream, len);
+					while (len > 0 && nextPage < pos.getSize()) {
+						len -= pos.getInt(nextPage++);
+					}
+				}
+			}
+		}
+		fetchMore();
+	}
+
+	/**
+	 * Gets the size of the next page of the reader.
+	 *
+	 * @return
+	 */
+	private int headSize() {
+		return pos.getInt(nextPage - pages.size());
+	}
+
+	private void waitFetch() throws IOException {
+		try {
+			wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while fetching a page");
+		}
+	}
+
+	@Override
+	public void closeColumn() throws IOException {
+		synchronized (this) {
+			closed = true;
+			// The pending task may still use the stream
+			while (fetching) {
+				waitFetch();
+			}
+			for (byte[] page : pages) {
+				unreserve(page);
+			}
+			pages.clear();
+		}
+		inputStream.close();
+	}
+
+	/**
+	 * Gets the bytes of the arrays holding the fetched pages of all columns.
+	 *
+	 * @return
+	 */
+	@VisibleForTesting
+	public static long getPrefetchedBytes() {
+		return PREFETCHED_BYTES.get();
+	}
+}
@@ -17,6 +17,7 @@ package org.kstore.columns.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import org.kstore.utils.IO;
 
 /**
  * 
@@ -34,6 +35,11 @@ public class SingleColumnPageBytesInput implements ColumnPageBytesInput {
 		return inputStream.read(b, off, len);
 	}
 
+	@Override
+	public void skipNextPages(long len) throws IOException {
+		IO.skipFully(inputStream, len);
+	}
+
 	@Override
 	public void closeColumn() throws IOException {
 		inputStream.close();
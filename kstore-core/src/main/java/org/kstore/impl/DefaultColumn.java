@@ -17,6 +17,7 @@ package org.kstore.impl;
 
 import org.kstore.Column;
 import org.kstore.ColumnType;
+import org.kstore.PageCodec;
 
 /**
  *
@@ -29,6 +30,10 @@ public class DefaultColumn implements Column {
 	private final int size;
 	/** Does this column stores something or not. */
 	private boolean isCalculated;
+	/** The codec of pages, null to use the one of the configuration. */
+	private PageCodec pageCodec;
+	/** Are the pages of the column dictionary encoded. */
+	private boolean dictionaryEncoded;
 
 	public DefaultColumn(ColumnType type) {
 		this.type = type;
@@ -72,4 +77,22 @@ public class DefaultColumn implements Column {
 		this.isCalculated = isCalculated;
 	}
 
+	@Override
+	public PageCodec getPageCodec() {
+		return pageCodec;
+	}
+
+	public void setPageCodec(PageCodec pageCodec) {
+		this.pageCodec = pageCodec;
+	}
+
+	@Override
+	public boolean isDictionaryEncoded() {
+		return dictionaryEncoded;
+	}
+
+	public void setDictionaryEncoded(boolean dictionaryEncoded) {
+		this.dictionaryEncoded = dictionaryEncoded;
+	}
+
 }
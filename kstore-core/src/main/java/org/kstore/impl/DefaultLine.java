@@ -21,7 +21,7 @@ import org.kstore.Line;
 import org.kstore.utils.Str;
 
 /**
- *
+ * A line holding its values as objects, strings being converted to String unless they are kept as views.
  */
 public class DefaultLine implements Line {
 
@@ -29,31 +29,89 @@ public class DefaultLine implements Line {
 	private final Object[] values;
 	/** Columns that we want to read */
 	private final int[] columns;
+	/** Index of the value of each column. */
+	private final int[] positions;
+	/** Views of the string values, null if strings are converted to String. */
+	private final Str[] views;
 
 	public DefaultLine(int... columns) {
+		this(false, columns);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param keepViews are strings kept as {@link Str} views of the page buffers, valid until the next page, instead
+	 * of being converted to String. Use {@link Str#clone()} to keep a value longer.
+	 * @param columns
+	 */
+	public DefaultLine(boolean keepViews, int... columns) {
 		this.columns = columns;
 		this.values = new Object[columns.length];
+		int max = -1;
+		for (int colId : columns) {
+			max = Math.max(max, colId);
+		}
+		// Values of the first columns of the store stay at their column id, other projections are positional
+		boolean firstColumns = max < columns.length;
+		positions = new int[max + 1];
+		for (int i = 0; i < columns.length; i++) {
+			positions[columns[i]] = firstColumns ? columns[i] : i;
+		}
+		if (keepViews) {
+			views = new Str[columns.length];
+			for (int i = 0; i < views.length; i++) {
+				views[i] = new Str();
+			}
+		} else {
+			views = null;
+		}
 	}
 
 	@Override
 	public void addLong(int colId, long value) {
-		values[colId] = value;
+		values[positions[colId]] = value;
 	}
 
 	@Override
 	public void addDouble(int colId, double value) {
-		values[colId] = value;
+		values[positions[colId]] = value;
 	}
 
 	@Override
 	public void addString(int colId, Str value) {
-		values[colId] = value.toString();
+		if (views != null) {
+			// The given view is reused by the reader for the next row
+			int i = positions[colId];
+			values[i] = views[i].set(value.getBuffer(), value.getStart(), value.length());
+		} else {
+			values[positions[colId]] = value.toString();
+		}
+	}
+
+	@Override
+	public boolean acceptsViews() {
+		return true;
+	}
+
+	/**
+	 * Gets a string value.
+	 *
+	 * @param i the index of the value, as in {@link #getValues()}
+	 * @return the value as a view when views are kept, null if the value is a String
+	 */
+	public Str getStr(int i) {
+		return (values[i] instanceof Str) ? (Str) values[i] : null;
 	}
 
 	public int[] getColumns() {
 		return columns;
 	}
 
+	/**
+	 * Gets the values, at the index of their column id when the projection reads the first columns of the store in any
+	 * order, else at the position of their column in the projection.
+	 */
 	public Object[] getValues() {
 		return values;
 	}
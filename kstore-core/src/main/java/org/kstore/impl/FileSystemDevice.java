@@ -31,16 +31,30 @@ import java.util.zip.GZIPOutputStream;
 import org.iq80.snappy.SnappyInputStream;
 import org.iq80.snappy.SnappyOutputStream;
 import org.kstore.Compression;
+import org.kstore.Configuration;
+import org.kstore.utils.MappedFile;
+import org.kstore.utils.MappedFiles;
 
 /**
  *
  */
 public class FileSystemDevice implements Device {
 
+	/** Mappings of the column files, null if they are read as streams. */
+	private final MappedFiles mappedFiles;
+
 	/**
 	 *
 	 */
 	public FileSystemDevice() {
+		this(Configuration.isMmap());
+	}
+
+	/**
+	 * @param mmap are column files read from memory mappings
+	 */
+	public FileSystemDevice(boolean mmap) {
+		mappedFiles = mmap ? new MappedFiles() : null;
 	}
 
 	/**
@@ -104,13 +118,30 @@ public class FileSystemDevice implements Device {
 		return new DataOutputStream(openCompress(out, comp));
 	}
 
+	@Override
+	public MappedFile map(String path) throws IOException {
+		return (mappedFiles != null) ? mappedFiles.acquire(path) : null;
+	}
+
 	@Override
 	public void delete(String path) throws IOException {
+		if (mappedFiles != null) {
+			mappedFiles.remove(path);
+		}
 		new File(path).delete();
 	}
 
+	@Override
+	public boolean exists(String path) throws IOException {
+		return new File(path).exists();
+	}
+
 	@Override
 	public void rename(String src, String dst) throws IOException {
+		if (mappedFiles != null) {
+			mappedFiles.remove(src);
+			mappedFiles.remove(dst);
+		}
 		new File(src).renameTo(new File(dst));
 	}
 }
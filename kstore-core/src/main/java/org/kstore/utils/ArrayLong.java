@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.utils;
+
+public class ArrayLong {
+
+	private long[] get;
+	private int size;
+
+	public int getSize() {
+		return size;
+	}
+
+	public long[] getLongs() {
+		return get;
+	}
+
+	public long getLong(int i) {
+		return get[i];
+	}
+
+	public void setLongs(long[] get) {
+		this.get = get;
+		this.size = get.length;
+	}
+
+	public ArrayLong init(int bufsize) {
+		if (bufsize > 0) {
+			get = new long[bufsize];
+		}
+		return this;
+	}
+
+	public void add(long val) {
+		if (get == null) {
+			get = new long[1];
+		}
+		if (size >= get.length) {
+			long[] ndata = new long[ArrayByte.getCapacity(size, 8)];
+			System.arraycopy(get, 0, ndata, 0, get.length);
+			get = ndata;
+		}
+		get[size++] = val;
+	}
+
+	public long[] compact() {
+		if (get == null) {
+			return new long[0];
+		}
+		if (size == get.length) {
+			return get;
+		}
+		long[] ndata = new long[size];
+		System.arraycopy(get, 0, ndata, 0, size);
+		get = ndata;
+		return get;
+	}
+
+	public int indexOf(long val) {
+		for (int n = 0; n < size; n++) {
+			if (get[n] == val) {
+				return n;
+			}
+		}
+		return -1;
+	}
+
+	public ArrayLong clone() {
+		ArrayLong c = new ArrayLong();
+		if (get != null) {
+			c.get = get.clone();
+		}
+		c.size = size;
+		return c;
+	}
+
+}
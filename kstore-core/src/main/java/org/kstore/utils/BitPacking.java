@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.utils;
+
+/**
+ * Packs small unsigned values on a fixed number of bits. Values are stored least significant bits first.
+ */
+public class BitPacking {
+
+	private BitPacking() {
+	}
+
+	/**
+	 * Gets the number of bits needed to store values between 0 and max.
+	 * @param max
+	 * @return
+	 */
+	public static int bitWidth(long max) {
+		return 64 - Long.numberOfLeadingZeros(max);
+	}
+
+	/**
+	 * Gets the number of bytes used by nb packed values.
+	 * @param nb
+	 * @param bitWidth
+	 * @return
+	 */
+	public static int packedSize(int nb, int bitWidth) {
+		return (int) (((long) nb * bitWidth + 7) / 8);
+	}
+
+	/**
+	 * Packs nb values in dst from position p.
+	 * @param values
+	 * @param nb
+	 * @param bitWidth
+	 * @param dst
+	 * @param p
+	 * @return the position following the packed values
+	 */
+	public static int pack(int[] values, int nb, int bitWidth, byte[] dst, int p) {
+		long acc = 0;
+		int bits = 0;
+		for (int n = 0; n < nb; n++) {
+			acc |= (values[n] & 0xFFFFFFFFL) << bits;
+			bits += bitWidth;
+			while (bits >= 8) {
+				dst[p++] = (byte) acc;
+				acc >>>= 8;
+				bits -= 8;
+			}
+		}
+		if (bits > 0) {
+			dst[p++] = (byte) acc;
+		}
+		return p;
+	}
+
+	/**
+	 * Unpacks nb values from src at position p.
+	 * @param src
+	 * @param p
+	 * @param bitWidth
+	 * @param values
+	 * @param nb
+	 * @return the position following the packed values
+	 */
+	public static int unpack(byte[] src, int p, int bitWidth, int[] values, int nb) {
+		long mask = (1L << bitWidth) - 1;
+		long acc = 0;
+		int bits = 0;
+		for (int n = 0; n < nb; n++) {
+			while (bits < bitWidth) {
+				acc |= (src[p++] & 0xFFL) << bits;
+				bits += 8;
+			}
+			values[n] = (int) (acc & mask);
+			acc >>>= bitWidth;
+			bits -= bitWidth;
+		}
+		return p;
+	}
+
+	/**
+	 * Packs nb long values in dst from position p.
+	 * @param values
+	 * @param nb
+	 * @param bitWidth between 0 and 64
+	 * @param dst
+	 * @param p
+	 * @return the position following the packed values
+	 */
+	public static int pack(long[] values, int nb, int bitWidth, byte[] dst, int p) {
+		long acc = 0;
+		int bits = 0;
+		for (int n = 0; n < nb; n++) {
+			long value = values[n];
+			// Values are split in chunks of 32 bits at most, so they always fit in the accumulator
+			for (int remaining = bitWidth; remaining > 0;) {
+				int chunk = Math.min(remaining, 32);
+				acc |= (value & ((1L << chunk) - 1)) << bits;
+				bits += chunk;
+				value >>>= chunk;
+				remaining -= chunk;
+				while (bits >= 8) {
+					dst[p++] = (byte) acc;
+					acc >>>= 8;
+					bits -= 8;
+				}
+			}
+		}
+		if (bits > 0) {
+			dst[p++] = (byte) acc;
+		}
+		return p;
+	}
+
+	/**
+	 * Unpacks nb long values from src at position p.
+	 * @param src
+	 * @param p
+	 * @param bitWidth between 0 and 64
+	 * @param values
+	 * @param nb
+	 * @return the position following the packed values
+	 */
+	public static int unpack(byte[] src, int p, int bitWidth, long[] values, int nb) {
+		long acc = 0;
+		int bits = 0;
+		for (int n = 0; n < nb; n++) {
+			long value = 0;
+			for (int done = 0; done < bitWidth;) {
+				int chunk = Math.min(bitWidth - done, 32);
+				while (bits < chunk) {
+					acc |= (src[p++] & 0xFFL) << bits;
+					bits += 8;
+				}
+				value |= (acc & ((1L << chunk) - 1)) << done;
+				acc >>>= chunk;
+				bits -= chunk;
+				done += chunk;
+			}
+			values[n] = value;
+		}
+		return p;
+	}
+}
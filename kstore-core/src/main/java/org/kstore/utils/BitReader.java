@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.utils;
+
+/**
+ * Reads values written by a {@link BitWriter}.
+ */
+public class BitReader {
+
+	private byte[] buf;
+	private int p;
+	private long acc;
+	private int bits;
+
+	/**
+	 * Starts reading a buffer.
+	 * @param buf
+	 * @param p the position of the first byte
+	 */
+	public void init(byte[] buf, int p) {
+		this.buf = buf;
+		this.p = p;
+		acc = 0;
+		bits = 0;
+	}
+
+	/**
+	 * Reads a value of nbBits bits.
+	 * @param nbBits between 0 and 64
+	 * @return
+	 */
+	public long read(int nbBits) {
+		if (nbBits > 32) {
+			long high = read32(nbBits - 32);
+			return (high << 32) | read32(32);
+		}
+		return read32(nbBits);
+	}
+
+	public boolean readBit() {
+		return read32(1) != 0;
+	}
+
+	private long read32(int nbBits) {
+		while (bits < nbBits) {
+			acc = (acc << 8) | (buf[p++] & 0xFFL);
+			bits += 8;
+		}
+		bits -= nbBits;
+		return (acc >>> bits) & ((1L << nbBits) - 1);
+	}
+}
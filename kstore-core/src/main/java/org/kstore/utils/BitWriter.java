@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.utils;
+
+import java.util.Arrays;
+
+/**
+ * Writes values on a variable number of bits, most significant bits first.
+ */
+public class BitWriter {
+
+	private byte[] buf;
+	private int p;
+	private long acc;
+	private int bits;
+
+	public BitWriter(int size) {
+		buf = new byte[Math.max(size, 16)];
+	}
+
+	/**
+	 * Writes the nbBits lowest bits of value.
+	 * @param value
+	 * @param nbBits between 0 and 64
+	 */
+	public void write(long value, int nbBits) {
+		if (nbBits > 32) {
+			write32(value >>> 32, nbBits - 32);
+			write32(value, 32);
+		} else {
+			write32(value, nbBits);
+		}
+	}
+
+	public void writeBit(boolean bit) {
+		write32(bit ? 1 : 0, 1);
+	}
+
+	private void write32(long value, int nbBits) {
+		acc = (acc << nbBits) | (value & ((1L << nbBits) - 1));
+		bits += nbBits;
+		while (bits >= 8) {
+			if (p == buf.length) {
+				buf = Arrays.copyOf(buf, buf.length * 2);
+			}
+			buf[p++] = (byte) (acc >>> (bits - 8));
+			bits -= 8;
+		}
+	}
+
+	/**
+	 * Writes the pending bits, the last byte being padded with zeros, so that the buffer can be read without being
+	 * copied. Nothing can be written until the writer is reset.
+	 * @return the number of written bytes
+	 */
+	public int finish() {
+		if (bits > 0) {
+			write32(0, 8 - bits);
+		}
+		return p;
+	}
+
+	/**
+	 * Gets the buffer, holding the bytes counted by {@link #finish()}.
+	 * @return
+	 */
+	public byte[] getBuffer() {
+		return buf;
+	}
+
+	public void reset() {
+		p = 0;
+		acc = 0;
+		bits = 0;
+	}
+}
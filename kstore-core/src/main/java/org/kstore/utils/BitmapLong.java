@@ -15,32 +15,170 @@
  */
 package org.kstore.utils;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import org.roaringbitmap.IntIterator;
 import org.roaringbitmap.RoaringBitmap;
 
 /**
- * 
+ * A bitmap of longs, holding one RoaringBitmap of the low 32 bits of the values per value of their high 32 bits. High
+ * values are kept sorted in an array, so that values are iterated in order.
  */
 public class BitmapLong {
 
-	private Map<Integer, RoaringBitmap> hbits = new HashMap<>();
+	private int[] highs = new int[4];
+	private RoaringBitmap[] bitmaps = new RoaringBitmap[4];
+	/** Number of high values. */
+	private int size;
+	/** Index of the last high value found, as following values usually share it. */
+	private int last;
 
 	public void add(long val) {
 		int high = getHigh(val);
-		RoaringBitmap bits = hbits.get(high);
-		if (bits == null) {
-			hbits.put(high, bits = new RoaringBitmap());
+		int index = indexOf(high);
+		if (index < 0) {
+			index = -index - 1;
+			if (size == highs.length) {
+				highs = Arrays.copyOf(highs, size * 2);
+				bitmaps = Arrays.copyOf(bitmaps, size * 2);
+			}
+			System.arraycopy(highs, index, highs, index + 1, size - index);
+			System.arraycopy(bitmaps, index, bitmaps, index + 1, size - index);
+			highs[index] = high;
+			bitmaps[index] = new RoaringBitmap();
+			size++;
+			last = index;
 		}
-		bits.add(getLow(val));
+		bitmaps[index].add(getLow(val));
 	}
 
 	public boolean contains(long val) {
-		RoaringBitmap bits = hbits.get(getHigh(val));
-		if (bits == null) {
-			return false;
+		int index = indexOf(getHigh(val));
+		return index >= 0 && bitmaps[index].contains(getLow(val));
+	}
+
+	/**
+	 * Finds a high value.
+	 *
+	 * @param high
+	 * @return its index, or -(insertion point) - 1 if it is not found
+	 */
+	private int indexOf(int high) {
+		int index = last;
+		if (index < size && highs[index] == high) {
+			return index;
+		}
+		index = Arrays.binarySearch(highs, 0, size, high);
+		if (index >= 0) {
+			last = index;
+		}
+		return index;
+	}
+
+	public boolean isEmpty() {
+		for (int n = 0; n < size; n++) {
+			if (!bitmaps[n].isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public long getCardinality() {
+		long cardinality = 0;
+		for (int n = 0; n < size; n++) {
+			cardinality += bitmaps[n].getCardinality();
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Gives each value to the consumer, in order.
+	 *
+	 * @param consumer
+	 */
+	public void forEach(LongConsumer consumer) {
+		for (int n = 0; n < size; n++) {
+			long high = (long) highs[n] << 32;
+			IntIterator it = bitmaps[n].getIntIterator();
+			while (it.hasNext()) {
+				consumer.accept(high | (it.next() & 0xFFFFFFFFL));
+			}
+		}
+	}
+
+	/**
+	 * Gets the values which are ints.
+	 *
+	 * @return
+	 */
+	public RoaringBitmap getInts() {
+		RoaringBitmap ints = new RoaringBitmap();
+		int index = indexOf(0);
+		if (index >= 0) {
+			// Low values from 2^31 are the ones of longs above Integer.MAX_VALUE
+			RoaringBitmap bits = bitmaps[index];
+			ints.or(bits.limit(bits.rank(Integer.MAX_VALUE)));
+		}
+		index = indexOf(-1);
+		if (index >= 0) {
+			// Low values up to Integer.MAX_VALUE are the ones of longs below Integer.MIN_VALUE
+			RoaringBitmap bits = bitmaps[index];
+			ints.or(RoaringBitmap.andNot(bits, bits.limit(bits.rank(Integer.MAX_VALUE))));
+		}
+		return ints;
+	}
+
+	/**
+	 * Gets the ints of the given bitmap which are in this bitmap.
+	 *
+	 * @param ints
+	 * @return
+	 */
+	public RoaringBitmap and(RoaringBitmap ints) {
+		return RoaringBitmap.and(ints, getInts());
+	}
+
+	/**
+	 * Gets the ints of the given bitmap which are not in this bitmap.
+	 *
+	 * @param ints
+	 * @return
+	 */
+	public RoaringBitmap andNot(RoaringBitmap ints) {
+		return RoaringBitmap.andNot(ints, getInts());
+	}
+
+	public void serialize(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for (int n = 0; n < size; n++) {
+			out.writeInt(highs[n]);
+			bitmaps[n].serialize(out);
+		}
+	}
+
+	public BitmapLong deserialize(DataInput in) throws IOException {
+		size = in.readInt();
+		highs = new int[Math.max(4, size)];
+		bitmaps = new RoaringBitmap[highs.length];
+		for (int n = 0; n < size; n++) {
+			highs[n] = in.readInt();
+			bitmaps[n] = new RoaringBitmap();
+			bitmaps[n].deserialize(in);
+		}
+		last = 0;
+		return this;
+	}
+
+	public int serializedSizeInBytes() {
+		int bytes = 4;
+		for (int n = 0; n < size; n++) {
+			bytes += 4 + bitmaps[n].serializedSizeInBytes();
 		}
-		return bits.contains(getLow(val));
+		return bytes;
 	}
 
 	static int getHigh(long val) {
@@ -48,6 +186,6 @@ public class BitmapLong {
 	}
 
 	static int getLow(long val) {
-		return (int) (val & 0xFFFFFFFF);
+		return (int) val;
 	}
 }
@@ -129,6 +129,16 @@ public class BucketIOSharedPool {
 		}
 	}
 
+	/**
+	 * Tells if submitted tasks are run by the caller, the pool having no thread.
+	 *
+	 * @return
+	 */
+	public static boolean isSequential() {
+		initPoolIfNecessary();
+		return INPUTSTREAM_OPS_ARE_SEQUENTIAL;
+	}
+
 	// Initialize the pool if not already initialized
 	// synchronized to prevent race-conditions on SHARED_EXECUTORSERVICE==null
 	private synchronized static void initPoolIfNecessary() {
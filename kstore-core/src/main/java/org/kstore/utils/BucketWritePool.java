@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.utils;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+import org.kstore.Configuration;
+
+/**
+ * Encoding and compressing pages is CPU bound: the pages of the columns of a bucket can be encoded at the same time.
+ * This class provides the fork/join pool shared by all buckets written on current node.
+ *
+ */
+public class BucketWritePool {
+
+	private static final AtomicReference<ForkJoinPool> SHARED_POOL = new AtomicReference<>();
+
+	/**
+	 * This will force the initialization of the pool, shutting down the previous pool (if it exists)
+	 */
+	@VisibleForTesting
+	public static void resetWritePool() {
+		resetWritePool(Configuration.getWriteParallelism());
+	}
+
+	/**
+	 * Replaces the pool by a pool of the given parallelism.
+	 *
+	 * @param parallelism
+	 */
+	@VisibleForTesting
+	public static void resetWritePool(int parallelism) {
+		closePool(SHARED_POOL.getAndSet(new ForkJoinPool(Math.max(1, parallelism))));
+	}
+
+	/**
+	 *
+	 * @param <T>
+	 * @param callable
+	 * @return
+	 */
+	public static <T> ForkJoinTask<T> submit(Callable<T> callable) {
+		initPoolIfNecessary();
+		return SHARED_POOL.get().submit(callable);
+	}
+
+	/**
+	 * Gets the number of tasks that may run at the same time.
+	 *
+	 * @return
+	 */
+	public static int getParallelism() {
+		initPoolIfNecessary();
+		return SHARED_POOL.get().getParallelism();
+	}
+
+	// synchronized to prevent race-conditions on SHARED_POOL==null
+	private synchronized static void initPoolIfNecessary() {
+		if (SHARED_POOL.get() == null) {
+			resetWritePool();
+		}
+	}
+
+	public static void closeCurrentPool() {
+		closePool(SHARED_POOL.getAndSet(null));
+	}
+
+	private static void closePool(ForkJoinPool poolToClose) {
+		if (poolToClose != null) {
+			poolToClose.shutdown();
+		}
+	}
+}
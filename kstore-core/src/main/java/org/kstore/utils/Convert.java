@@ -59,11 +59,54 @@ public class Convert {
 		return val;
 	}
 
+	/**
+	 * Converts a long value to a byte, Long.MIN_VALUE being the null byte.
+	 *
+	 * @param val
+	 * @return
+	 */
+	public static byte longToByte(long val) {
+		if (val == Long.MIN_VALUE) {
+			return Byte.MIN_VALUE;
+		}
+		return (byte) val;
+	}
+
+	/**
+	 * Converts a long value to a short, Long.MIN_VALUE being the null short.
+	 *
+	 * @param val
+	 * @return
+	 */
+	public static short longToShort(long val) {
+		if (val == Long.MIN_VALUE) {
+			return Short.MIN_VALUE;
+		}
+		return (short) val;
+	}
+
+	/**
+	 * Converts a long value to an integer, Long.MIN_VALUE being the null integer.
+	 *
+	 * @param val
+	 * @return
+	 */
+	public static int longToInt(long val) {
+		if (val == Long.MIN_VALUE) {
+			return Integer.MIN_VALUE;
+		}
+		return (int) val;
+	}
+
 	public static long readLong(byte[] buf, int p) {
 		return ((buf[p++] & 255L) << 56) | ((buf[p++] & 255L) << 48) | ((buf[p++] & 255L) << 40) | ((buf[p++] & 255L) << 32)
 				| ((buf[p++] & 255L) << 24) | ((buf[p++] & 255L) << 16) | ((buf[p++] & 255L) << 8) | (buf[p++] & 255L);
 	}
 
+	public static int readInt(byte[] buf, int p) {
+		return ((buf[p++] & 255) << 24) | ((buf[p++] & 255) << 16) | ((buf[p++] & 255) << 8) | (buf[p] & 255);
+	}
+
 	public static int readShort(byte[] buf, int p) {
 		return ((buf[p++] & 255) << 8) | (buf[p] & 255);
 	}
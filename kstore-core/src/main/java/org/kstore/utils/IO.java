@@ -18,7 +18,9 @@ package org.kstore.utils;
 import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 /**
@@ -108,6 +110,27 @@ public class IO {
 		buf[p++] = (byte) ((val >>> 0) & 0xFF);
 	}
 
+	/**
+	 * Skips exactly len bytes, as InputStream.skip may skip less bytes than requested.
+	 *
+	 * @param in
+	 * @param len
+	 * @throws IOException
+	 */
+	public static void skipFully(InputStream in, long len) throws IOException {
+		while (len > 0) {
+			long nb = in.skip(len);
+			if (nb <= 0) {
+				// skip may return 0 before the end of the stream: check by reading one byte
+				if (in.read() == -1) {
+					throw new EOFException("Unable to skip " + len + " bytes");
+				}
+				nb = 1;
+			}
+			len -= nb;
+		}
+	}
+
 	public static void close(Closeable stream) {
 		try {
 			if (stream != null) {
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.utils;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * A file mapped in memory, shared by the readers of the file. The mapping is released by the last reader, once done.
+ *
+ * @see MappedFiles
+ */
+public class MappedFile {
+
+	private final MappedFiles files;
+	private final String path;
+	private final MappedByteBuffer buffer;
+	/** Number of readers holding the mapping, guarded by the files. */
+	int readers;
+
+	MappedFile(MappedFiles files, String path, MappedByteBuffer buffer) {
+		this.files = files;
+		this.path = path;
+		this.buffer = buffer;
+	}
+
+	String getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets a view of the whole file, with its own position, valid until this reader releases the mapping.
+	 *
+	 * @return
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer.duplicate();
+	}
+
+	/**
+	 * Ends a reader of the file.
+	 */
+	public void release() {
+		files.release(this);
+	}
+
+	/**
+	 * Unmaps the file without waiting for the garbage collector, so that deleted files free their space at once.
+	 */
+	void unmap() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field unsafe = unsafeClass.getDeclaredField("theUnsafe");
+			unsafe.setAccessible(true);
+			unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe.get(null), buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Before Java 9 the mapping is released when garbage collected
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.utils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The memory mappings of the local files being read. Readers of a file share its mapping, which is released when its
+ * last reader is done, and no longer shared once the file is deleted or renamed.
+ */
+public class MappedFiles {
+
+	private final Map<String, MappedFile> files = new HashMap<>();
+
+	/**
+	 * Gets the mapping of a file, mapping it unless other readers hold it.
+	 *
+	 * @param path
+	 * @return the mapping, to release once read, or null if the file can not be mapped
+	 * @throws IOException
+	 */
+	public synchronized MappedFile acquire(String path) throws IOException {
+		MappedFile file = files.get(path);
+		if (file == null) {
+			try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+				if (channel.size() > Integer.MAX_VALUE) {
+					// A mapping is limited to 2GB
+					return null;
+				}
+				// The mapping stays valid once the channel is closed
+				file = new MappedFile(this, path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			}
+			files.put(path, file);
+		}
+		file.readers++;
+		return file;
+	}
+
+	synchronized void release(MappedFile file) {
+		if (--file.readers == 0) {
+			files.remove(file.getPath(), file);
+			file.unmap();
+		}
+	}
+
+	/**
+	 * Stops sharing the mapping of a file whose content changes, its current readers keeping it until they are done.
+	 *
+	 * @param path
+	 */
+	public synchronized void remove(String path) {
+		files.remove(path);
+	}
+}
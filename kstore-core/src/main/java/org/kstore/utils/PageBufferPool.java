@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.utils;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.kstore.Configuration;
+
+/**
+ * A pool of the byte arrays used to read, decode and encode pages, shared by all columns of current node.
+ * <p>
+ * Arrays have a power of two size, from 64KB. Columns take their arrays when they need them and give them back when
+ * they are closed, so scans and appends do not allocate arrays for each page once the pool is warm. Values read from
+ * a page, like strings, are only valid until the column is closed. The free arrays take at most bucket.buffer.pool.bytes
+ * bytes, arrays given back beyond being left to the garbage collector.
+ */
+public class PageBufferPool {
+
+	/** The size of the smallest arrays. */
+	private static final int MIN_SHIFT = 16;
+	/** The size of the largest pooled arrays, larger arrays being allocated on demand. */
+	private static final int MAX_SHIFT = 26;
+	/** Maximum number of free arrays of each size. */
+	private static final int MAX_FREE = 64;
+
+	private static final ConcurrentLinkedQueue<byte[]>[] FREE = newQueues();
+	private static final AtomicInteger[] NB_FREE = new AtomicInteger[MAX_SHIFT - MIN_SHIFT + 1];
+	private static final AtomicLong ALLOCATIONS = new AtomicLong();
+	/** Bytes of the free arrays. */
+	private static final AtomicLong FREE_BYTES = new AtomicLong();
+	private static volatile long maxBytes = -1;
+
+	static {
+		for (int n = 0; n < NB_FREE.length; n++) {
+			NB_FREE[n] = new AtomicInteger();
+		}
+	}
+
+	private PageBufferPool() {
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ConcurrentLinkedQueue<byte[]>[] newQueues() {
+		ConcurrentLinkedQueue<byte[]>[] queues = new ConcurrentLinkedQueue[MAX_SHIFT - MIN_SHIFT + 1];
+		for (int n = 0; n < queues.length; n++) {
+			queues[n] = new ConcurrentLinkedQueue<>();
+		}
+		return queues;
+	}
+
+	private static int sizeClass(int size) {
+		return Math.max(0, 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT);
+	}
+
+	/**
+	 * Takes an array of at least the given size.
+	 *
+	 * @param size
+	 * @return
+	 */
+	public static byte[] acquire(int size) {
+		int sizeClass = sizeClass(size);
+		if (sizeClass < FREE.length) {
+			byte[] buf = FREE[sizeClass].poll();
+			if (buf != null) {
+				NB_FREE[sizeClass].decrementAndGet();
+				FREE_BYTES.addAndGet(-buf.length);
+				return buf;
+			}
+		}
+		ALLOCATIONS.incrementAndGet();
+		return new byte[1 << (MIN_SHIFT + sizeClass)];
+	}
+
+	/**
+	 * Gives an array back to the pool. The array must not be used anymore.
+	 *
+	 * @param buf the array, may be null
+	 */
+	public static void release(byte[] buf) {
+		if (buf == null || Integer.bitCount(buf.length) != 1 || buf.length < (1 << MIN_SHIFT)) {
+			// Not an array of the pool
+			return;
+		}
+		int sizeClass = sizeClass(buf.length);
+		if (sizeClass >= FREE.length) {
+			return;
+		}
+		if (NB_FREE[sizeClass].incrementAndGet() > MAX_FREE) {
+			NB_FREE[sizeClass].decrementAndGet();
+		} else if (FREE_BYTES.addAndGet(buf.length) > getMaxBytes()) {
+			NB_FREE[sizeClass].decrementAndGet();
+			FREE_BYTES.addAndGet(-buf.length);
+		} else {
+			FREE[sizeClass].add(buf);
+		}
+	}
+
+	private static long getMaxBytes() {
+		long max = maxBytes;
+		if (max < 0) {
+			max = maxBytes = Configuration.getBufferPoolBytes();
+		}
+		return max;
+	}
+
+	/**
+	 * Gets an array of at least the given size, the given array being given back to the pool if it is too small.
+	 *
+	 * @param buf the current array, may be null
+	 * @param size
+	 * @return
+	 */
+	public static byte[] ensure(byte[] buf, int size) {
+		if (buf != null && buf.length >= size) {
+			return buf;
+		}
+		release(buf);
+		return acquire(size);
+	}
+
+	/**
+	 * Empties the pool and sets the maximum number of bytes of its free arrays.
+	 *
+	 * @param budget
+	 */
+	@VisibleForTesting
+	public static void resetPageBufferPool(long budget) {
+		maxBytes = budget;
+		for (int n = 0; n < FREE.length; n++) {
+			while (FREE[n].poll() != null) {
+				NB_FREE[n].decrementAndGet();
+			}
+		}
+		FREE_BYTES.set(0);
+	}
+
+	/**
+	 * Gets the bytes of the free arrays of the pool.
+	 *
+	 * @return
+	 */
+	@VisibleForTesting
+	public static long getFreeBytes() {
+		return FREE_BYTES.get();
+	}
+
+	/**
+	 * Gets the number of arrays allocated by the pool.
+	 *
+	 * @return
+	 */
+	@VisibleForTesting
+	public static long getAllocations() {
+		return ALLOCATIONS.get();
+	}
+}
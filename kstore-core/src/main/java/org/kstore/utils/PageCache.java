@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.utils;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.kstore.Configuration;
+
+/**
+ * A cache of decoded pages shared by all buckets of current node. Pages are kept off-heap, and the least recently used
+ * pages are evicted once the byte budget of the cache is reached.
+ * <p>
+ * Pages are identified by the path of their column file and their index in the file. Buckets invalidate the pages of
+ * their directory whenever their files change.
+ */
+public class PageCache {
+
+	private static final Object LOCK = new Object();
+	// The fields below are guarded by LOCK
+	private static final LinkedHashMap<PageKey, ByteBuffer> PAGES = new LinkedHashMap<>(1024, 0.75f, true);
+	private static volatile long maxBytes = -1;
+	private static long bytes;
+
+	private static final AtomicLong HITS = new AtomicLong();
+	private static final AtomicLong MISSES = new AtomicLong();
+	private static final AtomicLong EVICTIONS = new AtomicLong();
+
+	/**
+	 * Empties the cache and sets its byte budget, 0 disabling the cache.
+	 *
+	 * @param budget
+	 */
+	@VisibleForTesting
+	public static void resetPageCache(long budget) {
+		synchronized (LOCK) {
+			PAGES.clear();
+			bytes = 0;
+			maxBytes = budget;
+		}
+		HITS.set(0);
+		MISSES.set(0);
+		EVICTIONS.set(0);
+	}
+
+	public static boolean isEnabled() {
+		synchronized (LOCK) {
+			if (maxBytes < 0) {
+				maxBytes = Configuration.getCacheBytes();
+			}
+			return maxBytes > 0;
+		}
+	}
+
+	/**
+	 * Gets a cached page.
+	 *
+	 * @param path the column file
+	 * @param page
+	 * @param reuse an array to copy the page into, if big enough
+	 * @return the page, or null if it is not in the cache
+	 */
+	public static byte[] get(String path, int page, byte[] reuse) {
+		ByteBuffer buffer;
+		synchronized (LOCK) {
+			buffer = PAGES.get(new PageKey(path, page));
+		}
+		if (buffer == null) {
+			MISSES.incrementAndGet();
+			return null;
+		}
+		HITS.incrementAndGet();
+		// Cached buffers are never written: they can be read out of the lock
+		buffer = buffer.duplicate();
+		byte[] res = (reuse != null && reuse.length >= buffer.remaining()) ? reuse : new byte[buffer.remaining()];
+		buffer.get(res, 0, buffer.remaining());
+		return res;
+	}
+
+	/**
+	 * Adds a page to the cache, evicting the least recently used pages if needed.
+	 *
+	 * @param path the column file
+	 * @param page
+	 * @param src
+	 * @param off
+	 * @param len
+	 */
+	public static void put(String path, int page, byte[] src, int off, int len) {
+		if (len > maxBytes) {
+			return;
+		}
+		ByteBuffer buffer = ByteBuffer.allocateDirect(len);
+		buffer.put(src, off, len);
+		buffer.flip();
+		synchronized (LOCK) {
+			ByteBuffer previous = PAGES.put(new PageKey(path, page), buffer);
+			if (previous != null) {
+				bytes -= previous.capacity();
+			}
+			bytes += len;
+			Iterator<ByteBuffer> it = PAGES.values().iterator();
+			while (bytes > maxBytes && it.hasNext()) {
+				bytes -= it.next().capacity();
+				it.remove();
+				EVICTIONS.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Removes the pages of all column files starting with the given path.
+	 *
+	 * @param prefix
+	 */
+	public static void invalidate(String prefix) {
+		synchronized (LOCK) {
+			Iterator<Map.Entry<PageKey, ByteBuffer>> it = PAGES.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<PageKey, ByteBuffer> entry = it.next();
+				if (entry.getKey().path.startsWith(prefix)) {
+					bytes -= entry.getValue().capacity();
+					it.remove();
+				}
+			}
+		}
+	}
+
+	public static long getHits() {
+		return HITS.get();
+	}
+
+	public static long getMisses() {
+		return MISSES.get();
+	}
+
+	public static long getEvictions() {
+		return EVICTIONS.get();
+	}
+
+	/**
+	 * Gets the number of bytes of the cached pages.
+	 *
+	 * @return
+	 */
+	public static long getBytes() {
+		synchronized (LOCK) {
+			return bytes;
+		}
+	}
+
+	private static class PageKey {
+
+		private final String path;
+		private final int page;
+
+		PageKey(String path, int page) {
+			this.path = path;
+			this.page = page;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof PageKey)) {
+				return false;
+			}
+			PageKey key = (PageKey) other;
+			return page == key.page && path.equals(key.path);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * path.hashCode() + page;
+		}
+	}
+}
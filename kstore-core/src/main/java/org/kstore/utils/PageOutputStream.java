@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore.utils;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A byte array output stream whose buffer is read without being copied, to write the page being built. The buffer is
+ * kept from one page to the next when the stream is reset.
+ */
+public class PageOutputStream extends ByteArrayOutputStream {
+
+	public PageOutputStream(int size) {
+		super(size);
+	}
+
+	/**
+	 * Gets the buffer, holding {@link #size()} written bytes.
+	 *
+	 * @return
+	 */
+	public byte[] getBuffer() {
+		return buf;
+	}
+}
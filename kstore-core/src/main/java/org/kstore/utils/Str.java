@@ -21,11 +21,17 @@ public class Str implements Comparable<Str> {
 
 	public static final Str NULL = new Str("NULL");
 
+	private static final byte[] EMPTY = new byte[0];
+
 	private byte[] buf;
 	private int start;
 	private int len;
 
-	private Str() {
+	/**
+	 * An empty string, to be set as a view with {@link #set(byte[], int, int)}.
+	 */
+	public Str() {
+		this(EMPTY, 0, 0);
 	}
 
 	public Str(byte[] buf) {
@@ -59,6 +65,21 @@ public class Str implements Comparable<Str> {
 		this(tab.compact());
 	}
 
+	/**
+	 * Makes this string a view of the given bytes, which are not copied.
+	 *
+	 * @param buf
+	 * @param start
+	 * @param len
+	 * @return this string
+	 */
+	public Str set(byte[] buf, int start, int len) {
+		this.buf = buf;
+		this.start = start;
+		this.len = len;
+		return this;
+	}
+
 	public byte[] getBuffer() {
 		return buf;
 	}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultColumn;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.kstore.utils.Convert;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ *
+ * @author eric
+ */
+public class AddBatchTest extends StoreTest {
+
+	private final static int NB_ROWS = 2500;
+
+	private final static String DIRECTORY = "./target/buckets/batch/";
+
+	private final static ColumnType[] TYPES = {ColumnType.STRING, ColumnType.INT, ColumnType.BIGINT, ColumnType.DOUBLE, ColumnType.FLOAT, ColumnType.TINYINT};
+
+	private static Object[] row(int i) {
+		return new Object[]{"Country" + (i % 50), (i % 5 == 0) ? Integer.MIN_VALUE : i, i * 1000L, i / 4.D, i / 2.F, (byte) (i % 100)};
+	}
+
+	/**
+	 * Builds the vectors of a range of rows.
+	 */
+	private static ColumnVector[] vectors(int from, int nb) {
+		ColumnVector[] vectors = new ColumnVector[TYPES.length];
+		for (int n = 0; n < TYPES.length; n++) {
+			vectors[n] = new ColumnVector(TYPES[n], nb);
+		}
+		ByteArrayOutputStream strs = new ByteArrayOutputStream();
+		for (int i = 0; i < nb; i++) {
+			Object[] row = row(from + i);
+			byte[] str = ((String) row[0]).getBytes(StandardCharsets.UTF_8);
+			vectors[0].getOffsets()[i] = strs.size();
+			vectors[0].getLengths()[i] = str.length;
+			strs.write(str, 0, str.length);
+			int value = (Integer) row[1];
+			vectors[1].getLongs()[i] = (value == Integer.MIN_VALUE) ? Long.MIN_VALUE : value;
+			vectors[2].getLongs()[i] = (Long) row[2];
+			vectors[3].getDoubles()[i] = (Double) row[3];
+			vectors[4].getDoubles()[i] = (Float) row[4];
+			vectors[5].getLongs()[i] = (Byte) row[5];
+		}
+		vectors[0].setBytes(strs.toByteArray());
+		return vectors;
+	}
+
+	@Test
+	public void testAddBatch() throws IOException {
+		List<Column> schema = new ArrayList<>();
+		for (ColumnType type : TYPES) {
+			schema.add(new DefaultColumn(type));
+		}
+		kstore = new DefaultKStore("Batch", schema, DIRECTORY);
+		Bucket bucket = kstore.newBucket();
+		// Batches end in the middle of pages
+		bucket.add(0, row(0));
+		for (int from = 1; from < NB_ROWS; from += 700) {
+			int nb = Math.min(700, NB_ROWS - from);
+			int[] keyIds = new int[nb];
+			for (int i = 0; i < nb; i++) {
+				keyIds[i] = from + i;
+			}
+			bucket.addBatch(keyIds, vectors(from, nb));
+		}
+		bucket.commit();
+
+		int[] count = new int[1];
+		bucket.readLines(new DefaultLine(0, 1, 2, 3, 5), (RoaringBitmap) null, (int rowId, Line l) -> {
+			Object[] row = row(rowId);
+			Object[] values = l.getValues();
+			Assert.assertEquals(row[0], values[0]);
+			Assert.assertEquals((rowId % 5 == 0) ? Long.MIN_VALUE : (long) rowId, values[1]);
+			Assert.assertEquals(row[2], values[2]);
+			Assert.assertEquals(row[3], values[3]);
+			Assert.assertEquals((long) (rowId % 100), values[4]);
+			count[0]++;
+			return true;
+		});
+		Assert.assertEquals(NB_ROWS, count[0]);
+	}
+
+	@Test
+	public void testSmallIntegers() throws IOException {
+		List<Column> schema = new ArrayList<>();
+		schema.add(new DefaultColumn(ColumnType.TINYINT));
+		schema.add(new DefaultColumn(ColumnType.SMALLINT));
+		kstore = new DefaultKStore("Batch", schema, DIRECTORY);
+		// Nulls and values overflowing the type are written as by add
+		long[] values = {Long.MIN_VALUE, 300, -129, 70000, 5};
+		Bucket rows = kstore.newBucket();
+		Bucket batch = kstore.newBucket();
+		int[] keyIds = new int[values.length];
+		ColumnVector tiny = new ColumnVector(ColumnType.TINYINT, values.length);
+		ColumnVector small = new ColumnVector(ColumnType.SMALLINT, values.length);
+		for (int i = 0; i < values.length; i++) {
+			keyIds[i] = i;
+			tiny.getLongs()[i] = values[i];
+			small.getLongs()[i] = values[i];
+			rows.add(i, new Object[]{Convert.longToByte(values[i]), Convert.longToShort(values[i])});
+		}
+		batch.addBatch(keyIds, tiny, small);
+		rows.commit();
+		batch.commit();
+
+		List<Object[]> expected = new ArrayList<>();
+		rows.readLines(new DefaultLine(0, 1), (RoaringBitmap) null, (int rowId, Line l) -> {
+			expected.add(l.getValues().clone());
+			return true;
+		});
+		Assert.assertEquals(Long.MIN_VALUE, expected.get(0)[0]);
+		Assert.assertEquals(Long.MIN_VALUE, expected.get(0)[1]);
+		Assert.assertEquals((long) (byte) 300, expected.get(1)[0]);
+		Assert.assertEquals((long) (short) 70000, expected.get(3)[1]);
+		int[] count = new int[1];
+		batch.readLines(new DefaultLine(0, 1), (RoaringBitmap) null, (int rowId, Line l) -> {
+			Assert.assertArrayEquals(expected.get(rowId), l.getValues());
+			count[0]++;
+			return true;
+		});
+		Assert.assertEquals(values.length, count[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongTypes() throws IOException {
+		List<Column> schema = new ArrayList<>();
+		schema.add(new DefaultColumn(ColumnType.BIGINT));
+		kstore = new DefaultKStore("Batch", schema, DIRECTORY);
+		kstore.newBucket().addBatch(new int[]{0}, new ColumnVector(ColumnType.DOUBLE, 1));
+	}
+}
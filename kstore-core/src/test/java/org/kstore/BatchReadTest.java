@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ *
+ * @author eric
+ */
+public class BatchReadTest extends StoreTest {
+
+	private final static Object[][] DATA = {
+		{"Europe", "France", 67795000L, 100.8D},
+		{"Europe", "Italy", 60589445L, 201.D},
+		{"Oceania", "New Zealand", 4725487L, 18.D},
+		{"America", "USA", 324811000L, 33.D},
+		{"America", "Colombia", 49100000L, 43.D},
+		{"Asia", "Japan", 126451398L, 334.6D}
+	};
+
+	@Test
+	public void testReadBatches() throws IOException {
+
+		createBasicStore();
+
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < 3; i++) {
+			bucket.add(i, DATA[i]);
+		}
+		bucket.commit();
+		for (int i = 3; i < DATA.length; i++) {
+			bucket.add(i, DATA[i]);
+		}
+		bucket.commit();
+
+		int[] count = new int[1];
+		bucket.readBatches(new int[]{3, 1, 2}, (RoaringBitmap) null, (Batch batch) -> {
+			for (int n = 0; n < batch.getSize(); n++) {
+				Object[] expected = DATA[batch.getRowIds()[n]];
+				Assert.assertEquals(expected[3], batch.getVector(0).getDouble(n));
+				Assert.assertEquals(expected[1], batch.getVector(1).getStr(n).toString());
+				Assert.assertEquals(expected[2], batch.getVector(2).getLong(n));
+				count[0]++;
+			}
+			return true;
+		});
+		Assert.assertEquals(DATA.length, count[0]);
+	}
+
+	@Test
+	public void testReadSelectedRows() throws IOException {
+
+		createBasicStore();
+
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < DATA.length; i++) {
+			bucket.add(i, DATA[i]);
+		}
+		bucket.commit();
+
+		RoaringBitmap bitRowIds = RoaringBitmap.bitmapOf(1, 4);
+		int[] count = new int[1];
+		bucket.readBatches(new int[]{0, 2}, bitRowIds, (Batch batch) -> {
+			for (int n = 0; n < batch.getSize(); n++) {
+				int rowId = batch.getRowIds()[n];
+				Assert.assertTrue(bitRowIds.contains(rowId));
+				Assert.assertEquals(DATA[rowId][0], batch.getVector(0).getStr(n).toString());
+				Assert.assertEquals(DATA[rowId][2], batch.getVector(1).getLong(n));
+				count[0]++;
+			}
+			return true;
+		});
+		Assert.assertEquals(2, count[0]);
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.utils.BitmapLong;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Checks bitmaps of longs, used to keep deleted rows.
+ *
+ * @author eric
+ */
+public class BitmapLongTest {
+
+	private final static long[] VALUES = {Long.MIN_VALUE, -(1L << 40), Integer.MIN_VALUE - 1L, Integer.MIN_VALUE, -1, 0, 3, 1000,
+		Integer.MAX_VALUE, Integer.MAX_VALUE + 1L, 1L << 32, 5L << 32, Long.MAX_VALUE};
+
+	private static BitmapLong bitmap() {
+		BitmapLong bitmap = new BitmapLong();
+		// Values are added in any order
+		for (int n = VALUES.length - 1; n >= 0; n -= 2) {
+			bitmap.add(VALUES[n]);
+		}
+		for (int n = VALUES.length - 2; n >= 0; n -= 2) {
+			bitmap.add(VALUES[n]);
+		}
+		return bitmap;
+	}
+
+	private static List<Long> values(BitmapLong bitmap) {
+		List<Long> values = new ArrayList<>();
+		bitmap.forEach(values::add);
+		return values;
+	}
+
+	@Test
+	public void testValues() {
+		BitmapLong bitmap = bitmap();
+		for (long value : VALUES) {
+			Assert.assertTrue(bitmap.contains(value));
+			Assert.assertFalse(bitmap.contains(value ^ 2));
+		}
+		Assert.assertEquals(VALUES.length, bitmap.getCardinality());
+		Assert.assertFalse(bitmap.isEmpty());
+		Assert.assertTrue(new BitmapLong().isEmpty());
+		List<Long> values = values(bitmap);
+		for (int n = 0; n < VALUES.length; n++) {
+			Assert.assertEquals(VALUES[n], (long) values.get(n));
+		}
+	}
+
+	@Test
+	public void testInts() {
+		BitmapLong bitmap = bitmap();
+		Assert.assertEquals(RoaringBitmap.bitmapOf(Integer.MIN_VALUE, -1, 0, 3, 1000, Integer.MAX_VALUE), bitmap.getInts());
+		RoaringBitmap rowIds = RoaringBitmap.bitmapOf(-2, -1, 3, 4, 1000, Integer.MAX_VALUE);
+		Assert.assertEquals(RoaringBitmap.bitmapOf(-1, 3, 1000, Integer.MAX_VALUE), bitmap.and(rowIds));
+		Assert.assertEquals(RoaringBitmap.bitmapOf(-2, 4), bitmap.andNot(rowIds));
+	}
+
+	@Test
+	public void testSerialize() throws IOException {
+		BitmapLong bitmap = bitmap();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			bitmap.serialize(out);
+		}
+		Assert.assertEquals(bitmap.serializedSizeInBytes(), bytes.size());
+		BitmapLong loaded = new BitmapLong().deserialize(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		Assert.assertEquals(values(bitmap), values(loaded));
+		loaded.add(7L << 32);
+		Assert.assertTrue(loaded.contains(7L << 32));
+		Assert.assertEquals(VALUES.length + 1, loaded.getCardinality());
+	}
+}
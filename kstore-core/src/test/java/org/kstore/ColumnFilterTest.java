@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultLine;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ *
+ * @author eric
+ */
+public class ColumnFilterTest extends StoreTest {
+
+	private final static Object[][] DATA = {
+		{"Europe", "France", 67795000L, 100.8D},
+		{"Europe", "Italy", 60589445L, 201.D},
+		{"Oceania", "New Zealand", 4725487L, 18.D},
+		{"America", "USA", 324811000L, 33.D},
+		{"America", "Colombia", 49100000L, 43.D},
+		{"Asia", "Japan", 126451398L, 334.6D}
+	};
+
+	private Bucket createBucket() throws IOException {
+		createBasicStore();
+
+		// Two commits, so rows are split in two row files with their own statistics
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < 3; i++) {
+			bucket.add(i, DATA[i]);
+		}
+		bucket.commit();
+		for (int i = 3; i < DATA.length; i++) {
+			bucket.add(i, DATA[i]);
+		}
+		bucket.commit();
+		return bucket;
+	}
+
+	private List<Integer> read(Bucket bucket, int[] columns, ColumnFilter filter) throws IOException {
+		List<Integer> rowIds = new ArrayList<>();
+		Dumper dumper = new Dumper(Arrays.asList(DATA));
+		bucket.readLines(new DefaultLine(columns), (RoaringBitmap) null, filter, (int rowId, Line l) -> {
+			rowIds.add(rowId);
+			return columns.length < DATA[0].length || dumper.dumpRow(rowId, l);
+		});
+		return rowIds;
+	}
+
+	@Test
+	public void testLongRange() throws IOException {
+		Bucket bucket = createBucket();
+
+		int[] columns = new int[]{0, 1, 2, 3};
+		Assert.assertEquals(Arrays.asList(0, 1, 4), read(bucket, columns, ColumnFilter.range(2, 40000000L, 70000000L)));
+		Assert.assertEquals(Arrays.asList(3), read(bucket, columns, ColumnFilter.equal(2, 324811000L)));
+		Assert.assertEquals(Arrays.asList(), read(bucket, columns, ColumnFilter.range(2, 0L, 1000L)));
+	}
+
+	@Test
+	public void testDoubleRange() throws IOException {
+		Bucket bucket = createBucket();
+
+		int[] columns = new int[]{0, 1, 2, 3};
+		Assert.assertEquals(Arrays.asList(0, 1), read(bucket, columns, ColumnFilter.range(3, 100.D, 250.D)));
+		Assert.assertEquals(Arrays.asList(5), read(bucket, columns, ColumnFilter.range(3, 300.D, Double.MAX_VALUE)));
+	}
+
+	@Test
+	public void testFilterOnNotProjectedColumn() throws IOException {
+		Bucket bucket = createBucket();
+
+		Assert.assertEquals(Arrays.asList(3, 5), read(bucket, new int[]{0, 1}, ColumnFilter.range(2, 100000000L, Long.MAX_VALUE)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFilterOnWrongType() throws IOException {
+		Bucket bucket = createBucket();
+
+		read(bucket, new int[]{0, 1}, ColumnFilter.range(1, 0L, 1L));
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Deletes rows, skipped by scans until their row file is compacted in the background.
+ *
+ * @author eric
+ */
+public class CompactionTest extends StoreTest {
+
+	private final static int NB_COMMITS = 4;
+
+	private final static int COMMIT_ROWS = 3000;
+
+	private final static String DIRECTORY = "./target/buckets/compaction/";
+
+	@Test
+	public void testCompaction() throws IOException {
+		compact(true);
+	}
+
+	@Test
+	public void testSingleFileCompaction() throws IOException {
+		compact(false);
+	}
+
+	@Test
+	public void testLongRowIds() throws IOException {
+		deleteDirectory(new File(DIRECTORY));
+		kstore = createCountryStore("Compaction", DIRECTORY, true);
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < COMMIT_ROWS; i++) {
+			bucket.add(i, countryRow(i));
+		}
+		bucket.commit();
+
+		// Ids outside the int range match no row id
+		bucket.deleteRowId((1L << 32) + 7);
+		bucket.deleteRowId(Integer.MAX_VALUE + 9L);
+		bucket.deleteRowId(8);
+		bucket.commit();
+		Assert.assertEquals(COMMIT_ROWS - 1, readCountryRows(bucket, RoaringBitmap.bitmapOf(8)));
+	}
+
+	@Test
+	public void testDeleteWhileScanning() throws IOException {
+		deleteDirectory(new File(DIRECTORY));
+		kstore = createCountryStore("Compaction", DIRECTORY, true);
+		Bucket bucket = kstore.newBucket();
+		for (int commit = 0; commit < NB_COMMITS; commit++) {
+			for (int i = commit * COMMIT_ROWS; i < (commit + 1) * COMMIT_ROWS; i++) {
+				bucket.add(i, countryRow(i));
+			}
+			bucket.commit();
+		}
+		((PageBucket) bucket).awaitMerge();
+
+		// Scans read the row files as they were when they started
+		int[] count = new int[1];
+		bucket.readLines(new DefaultLine(0, 1, 2), (RoaringBitmap) null, (int rowId, Line l) -> {
+			if (count[0] == 0) {
+				try {
+					bucket.deleteRowId(7000);
+					bucket.commit();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			Assert.assertEquals(count[0], rowId);
+			count[0]++;
+			return true;
+		});
+		Assert.assertEquals(NB_COMMITS * COMMIT_ROWS, count[0]);
+		Assert.assertEquals(NB_COMMITS * COMMIT_ROWS - 1, readCountryRows(bucket, RoaringBitmap.bitmapOf(7000)));
+	}
+
+	private void compact(boolean oneFilePerColumn) throws IOException {
+		deleteDirectory(new File(DIRECTORY));
+		kstore = createCountryStore("Compaction", DIRECTORY, oneFilePerColumn);
+		Bucket bucket = kstore.newBucket();
+		for (int commit = 0; commit < NB_COMMITS; commit++) {
+			for (int i = commit * COMMIT_ROWS; i < (commit + 1) * COMMIT_ROWS; i++) {
+				bucket.add(i, countryRow(i));
+			}
+			bucket.commit();
+		}
+
+		// Deleted rows are skipped by scans, row files being kept
+		bucket.deleteRowNum(10);
+		bucket.deleteRowId(7000);
+		bucket.commit();
+		((PageBucket) bucket).awaitMerge();
+		for (int n = 0; n < NB_COMMITS; n++) {
+			Assert.assertTrue(bucketFileExists(DIRECTORY, "id_" + n));
+		}
+		Assert.assertFalse(bucketFileExists(DIRECTORY, "id_" + NB_COMMITS));
+		RoaringBitmap deleted = RoaringBitmap.bitmapOf(10, 7000);
+		Assert.assertEquals(NB_COMMITS * COMMIT_ROWS - 2, readCountryRows(bucket, deleted));
+		kstore.save();
+
+		DefaultKStore loaded = createCountryStore("Compaction", DIRECTORY, oneFilePerColumn);
+		loaded.load();
+		Bucket reloaded = loaded.getBuckets().get(0);
+		Assert.assertEquals(NB_COMMITS * COMMIT_ROWS - 2, readCountryRows(reloaded, deleted));
+
+		// Only the second row file holds enough deleted rows to be compacted
+		for (int i = 3000; i < 4000; i++) {
+			reloaded.deleteRowNum(i);
+			deleted.add(i);
+		}
+		reloaded.commit();
+		((PageBucket) reloaded).awaitMerge();
+		loaded.save();
+		loaded.save();
+		Assert.assertFalse(bucketFileExists(DIRECTORY, "id_1"));
+		Assert.assertTrue(bucketFileExists(DIRECTORY, "id_0"));
+		Assert.assertTrue(bucketFileExists(DIRECTORY, "id_" + NB_COMMITS));
+		Assert.assertEquals(NB_COMMITS * COMMIT_ROWS - 1002, readCountryRows(reloaded, deleted));
+
+		// Rows keep their number once compacted
+		reloaded.deleteRowNum(3500);
+		reloaded.deleteRowNum(4000);
+		reloaded.commit();
+		deleted.add(4000);
+		Assert.assertEquals(NB_COMMITS * COMMIT_ROWS - 1003, readCountryRows(reloaded, deleted));
+
+		// Row files whose rows are all deleted are dropped
+		for (int i = 9000; i < 12000; i++) {
+			reloaded.deleteRowId(i);
+			deleted.add(i);
+		}
+		reloaded.commit();
+		((PageBucket) reloaded).awaitMerge();
+		loaded.save();
+		loaded.save();
+		Assert.assertFalse(bucketFileExists(DIRECTORY, "id_3"));
+		Assert.assertEquals(3 * COMMIT_ROWS - 1003, readCountryRows(reloaded, deleted));
+
+		loaded = createCountryStore("Compaction", DIRECTORY, oneFilePerColumn);
+		loaded.load();
+		reloaded = loaded.getBuckets().get(0);
+		reloaded.deleteRowNum(4001);
+		reloaded.commit();
+		deleted.add(4001);
+		Assert.assertEquals(3 * COMMIT_ROWS - 1004, readCountryRows(reloaded, deleted));
+	}
+}
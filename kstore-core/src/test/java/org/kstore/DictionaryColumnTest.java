@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultColumn;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ *
+ * @author eric
+ */
+public class DictionaryColumnTest extends StoreTest {
+
+	private final static int NB_ROWS = 5000;
+
+	private final static String[] CONTINENTS = {"Europe", "America", "Asia", "Africa", "Oceania"};
+
+	private static Object[] row(int i) {
+		// Few distinct continents are dictionary encoded, unique countries are not
+		return new Object[]{CONTINENTS[i % CONTINENTS.length], "Country" + i, i * 10L, i / 8.D};
+	}
+
+	private Bucket createBucket() throws IOException {
+		List<Column> schema = basicSchema();
+		((DefaultColumn) schema.get(0)).setDictionaryEncoded(true);
+		((DefaultColumn) schema.get(1)).setDictionaryEncoded(true);
+		kstore = new DefaultKStore("TheWorld", schema, BASIC_DIRECTORY);
+
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < NB_ROWS; i++) {
+			bucket.add(i, row(i));
+		}
+		bucket.commit();
+		return bucket;
+	}
+
+	private static List<Integer> read(Bucket bucket, int[] columns, ColumnFilter filter) throws IOException {
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLines(new DefaultLine(columns), (RoaringBitmap) null, filter, (int rowId, Line l) -> {
+			for (int colId : columns) {
+				Assert.assertEquals(row(rowId)[colId], l.getValues()[colId]);
+			}
+			rowIds.add(rowId);
+			return true;
+		});
+		return rowIds;
+	}
+
+	@Test
+	public void testReadLines() throws IOException {
+		Bucket bucket = createBucket();
+
+		Assert.assertEquals(NB_ROWS, read(bucket, new int[]{0, 1, 2, 3}, null).size());
+	}
+
+	@Test
+	public void testStringFilter() throws IOException {
+		Bucket bucket = createBucket();
+
+		List<Integer> rowIds = read(bucket, new int[]{0, 1, 2, 3}, ColumnFilter.equal(0, "Asia"));
+		Assert.assertEquals(NB_ROWS / CONTINENTS.length, rowIds.size());
+		for (int rowId : rowIds) {
+			Assert.assertEquals(2, rowId % CONTINENTS.length);
+		}
+		Assert.assertEquals(rowIds, read(bucket, new int[]{0, 1}, ColumnFilter.equal(0, "Asia")));
+		// On plain pages, with the filtered column not projected
+		Assert.assertEquals(1, read(bucket, new int[]{0}, ColumnFilter.equal(1, "Country42")).size());
+		Assert.assertTrue(read(bucket, new int[]{0, 1}, ColumnFilter.equal(0, "Antarctica")).isEmpty());
+	}
+
+	@Test
+	public void testReadBatches() throws IOException {
+		Bucket bucket = createBucket();
+
+		int[] count = new int[1];
+		bucket.readBatches(new int[]{0, 1}, (RoaringBitmap) null, (Batch batch) -> {
+			for (int n = 0; n < batch.getSize(); n++) {
+				Object[] expected = row(batch.getRowIds()[n]);
+				Assert.assertEquals(expected[0], batch.getVector(0).getStr(n).toString());
+				Assert.assertEquals(expected[1], batch.getVector(1).getStr(n).toString());
+				count[0]++;
+			}
+			return true;
+		});
+		Assert.assertEquals(NB_ROWS, count[0]);
+	}
+
+	@Test
+	public void testDeleteRows() throws IOException {
+		Bucket bucket = createBucket();
+
+		// Remaining rows are copied in a new row file
+		for (int i = 0; i < NB_ROWS; i += 3) {
+			bucket.deleteRowId(i);
+		}
+		bucket.commit();
+
+		List<Integer> rowIds = read(bucket, new int[]{0, 1, 2, 3}, null);
+		Assert.assertEquals(NB_ROWS - (NB_ROWS + 2) / 3, rowIds.size());
+		Assert.assertFalse(rowIds.contains(3));
+	}
+}
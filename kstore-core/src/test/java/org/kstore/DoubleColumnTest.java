@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultColumn;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ *
+ * @author eric
+ */
+public class DoubleColumnTest extends StoreTest {
+
+	private final static int NB_ROWS = 5000;
+
+	private final static double[] SPECIAL = {Double.NaN, 0.D, -0.D, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+		Double.MIN_VALUE, Double.MAX_VALUE, -1234.5678D};
+
+	private static Object[] row(int i) {
+		// Slowly changing measures, with repeated values and a few special ones
+		double measure = (i % 100 == 0) ? SPECIAL[(i / 100) % SPECIAL.length] : 20.D + (i / 10) * 0.25D;
+		return new Object[]{(float) (i % 50) / 4, measure};
+	}
+
+	private Bucket createBucket() throws IOException {
+		List<Column> schema = new ArrayList<>();
+		schema.add(new DefaultColumn(ColumnType.FLOAT));
+		schema.add(new DefaultColumn(ColumnType.DOUBLE));
+		kstore = new DefaultKStore("Sensors", schema, "./target/buckets/");
+
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < NB_ROWS; i++) {
+			bucket.add(i, row(i));
+		}
+		bucket.commit();
+		return bucket;
+	}
+
+	private static List<Integer> read(Bucket bucket, ColumnFilter filter) throws IOException {
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLines(new DefaultLine(0, 1), (RoaringBitmap) null, filter, (int rowId, Line l) -> {
+			Assert.assertEquals(((Float) row(rowId)[0]).doubleValue(), l.getValues()[0]);
+			Assert.assertEquals(row(rowId)[1], l.getValues()[1]);
+			rowIds.add(rowId);
+			return true;
+		});
+		return rowIds;
+	}
+
+	@Test
+	public void testReadLines() throws IOException {
+		Bucket bucket = createBucket();
+
+		Assert.assertEquals(NB_ROWS, read(bucket, null).size());
+		// Row 0 holds a null value
+		Assert.assertEquals(39, read(bucket, ColumnFilter.range(1, 20.D, 20.75D)).size());
+	}
+
+	@Test
+	public void testReadBatches() throws IOException {
+		Bucket bucket = createBucket();
+
+		int[] count = new int[1];
+		bucket.readBatches(new int[]{0, 1}, (RoaringBitmap) null, (Batch batch) -> {
+			for (int n = 0; n < batch.getSize(); n++) {
+				Object[] expected = row(batch.getRowIds()[n]);
+				Assert.assertEquals((Float) expected[0], batch.getVector(0).getDouble(n), 0.D);
+				Assert.assertEquals(Double.doubleToRawLongBits((Double) expected[1]), Double.doubleToRawLongBits(batch.getVector(1).getDouble(n)));
+				count[0]++;
+			}
+			return true;
+		});
+		Assert.assertEquals(NB_ROWS, count[0]);
+	}
+
+	@Test
+	public void testDeleteRows() throws IOException {
+		Bucket bucket = createBucket();
+
+		for (int i = 0; i < NB_ROWS; i += 7) {
+			bucket.deleteRowId(i);
+		}
+		bucket.commit();
+
+		Assert.assertEquals(NB_ROWS - (NB_ROWS + 6) / 7, read(bucket, null).size());
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultColumn;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ *
+ * @author eric
+ */
+public class LongColumnTest extends StoreTest {
+
+	private final static int NB_ROWS = 5000;
+
+	private static Object[] row(int i) {
+		// A small range with nulls, near-sorted timestamps, values needing 64 bits and ints using all their packed bits
+		long small = (i % 11 == 0) ? Long.MIN_VALUE : i % 300;
+		long time = 1546300800000L + i * 1000L + (i % 3);
+		long wide = (i % 2 == 0) ? Long.MAX_VALUE - i : Long.MIN_VALUE + 1 + i;
+		return new Object[]{small, time, wide, (i % 256) - 255};
+	}
+
+	private Bucket createBucket() throws IOException {
+		List<Column> schema = new ArrayList<>();
+		schema.add(new DefaultColumn(ColumnType.BIGINT));
+		schema.add(new DefaultColumn(ColumnType.BIGINT));
+		schema.add(new DefaultColumn(ColumnType.BIGINT));
+		schema.add(new DefaultColumn(ColumnType.INT));
+		kstore = new DefaultKStore("Events", schema, "./target/buckets/");
+
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < NB_ROWS; i++) {
+			bucket.add(i, row(i));
+		}
+		bucket.commit();
+		return bucket;
+	}
+
+	private static List<Integer> read(Bucket bucket, ColumnFilter filter) throws IOException {
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLines(new DefaultLine(0, 1, 2, 3), (RoaringBitmap) null, filter, (int rowId, Line l) -> {
+			Object[] expected = row(rowId);
+			Assert.assertEquals(expected[0], l.getValues()[0]);
+			Assert.assertEquals(expected[1], l.getValues()[1]);
+			Assert.assertEquals(expected[2], l.getValues()[2]);
+			Assert.assertEquals(((Integer) expected[3]).longValue(), l.getValues()[3]);
+			rowIds.add(rowId);
+			return true;
+		});
+		return rowIds;
+	}
+
+	@Test
+	public void testReadLines() throws IOException {
+		Bucket bucket = createBucket();
+
+		Assert.assertEquals(NB_ROWS, read(bucket, null).size());
+		Assert.assertEquals(16, read(bucket, ColumnFilter.equal(0, 42L)).size());
+	}
+
+	@Test
+	public void testReadBatches() throws IOException {
+		Bucket bucket = createBucket();
+
+		int[] count = new int[1];
+		bucket.readBatches(new int[]{0, 1, 2, 3}, (RoaringBitmap) null, (Batch batch) -> {
+			for (int n = 0; n < batch.getSize(); n++) {
+				Object[] expected = row(batch.getRowIds()[n]);
+				for (int colId = 0; colId < 3; colId++) {
+					Assert.assertEquals(expected[colId], batch.getVector(colId).getLong(n));
+				}
+				Assert.assertEquals(((Integer) expected[3]).longValue(), batch.getVector(3).getLong(n));
+				count[0]++;
+			}
+			return true;
+		});
+		Assert.assertEquals(NB_ROWS, count[0]);
+	}
+
+	@Test
+	public void testDeleteRows() throws IOException {
+		Bucket bucket = createBucket();
+
+		for (int i = 0; i < NB_ROWS; i += 5) {
+			bucket.deleteRowId(i);
+		}
+		bucket.commit();
+
+		Assert.assertEquals(NB_ROWS - NB_ROWS / 5, read(bucket, null).size());
+	}
+}
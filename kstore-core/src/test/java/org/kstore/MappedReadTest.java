@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.kstore.impl.FileSystemDevice;
+import org.kstore.utils.MappedFile;
+import org.kstore.utils.MappedFiles;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Reads a bucket from memory mapped column files.
+ *
+ * @author eric
+ */
+public class MappedReadTest extends StoreTest {
+
+	private final static int NB_ROWS = 20000;
+
+	/** Files read from their mapping, and files read as streams. */
+	private final Set<String> mapped = ConcurrentHashMap.newKeySet();
+	private final Set<String> streamed = ConcurrentHashMap.newKeySet();
+
+	private Bucket createBucket(boolean oneFilePerColumn) throws IOException {
+		kstore = new DefaultKStore("TheWorld", basicSchema(), BASIC_DIRECTORY, new FileSystemDevice(true) {
+			@Override
+			public MappedFile map(String path) throws IOException {
+				mapped.add(path);
+				return super.map(path);
+			}
+
+			@Override
+			public InputStream getInputStream(String path) throws IOException {
+				streamed.add(path);
+				return super.getInputStream(path);
+			}
+		}) {
+			@Override
+			public boolean useOneFilePerColumn() {
+				return oneFilePerColumn;
+			}
+		};
+
+		Bucket bucket = kstore.newBucket();
+		addBasicRows(bucket, 0, NB_ROWS);
+		bucket.commit();
+		return bucket;
+	}
+
+	@Test
+	public void testReadAll() throws IOException {
+		Bucket bucket = createBucket(true);
+
+		Assert.assertEquals(NB_ROWS, readBasicRows(bucket));
+		// Columns are only read from their mapping, ids being computed
+		Assert.assertEquals(4, mapped.size());
+		Assert.assertTrue(streamed.isEmpty());
+	}
+
+	@Test
+	public void testReadSparse() throws IOException {
+		Bucket bucket = createBucket(true);
+
+		RoaringBitmap bitRowIds = RoaringBitmap.bitmapOf(5, 9000, 9001, 19999);
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLines(new DefaultLine(0, 1, 2, 3), bitRowIds, (int rowId, Line l) -> {
+			Assert.assertArrayEquals(basicRow(rowId), l.getValues());
+			return rowIds.add(rowId);
+		});
+		Assert.assertEquals(Arrays.asList(5, 9000, 9001, 19999), rowIds);
+	}
+
+	@Test
+	public void testSingleFile() throws IOException {
+		Bucket bucket = createBucket(false);
+
+		RoaringBitmap bitRowIds = RoaringBitmap.bitmapOf(5, 9000, 9001, 19999);
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLines(new DefaultLine(0, 1, 2, 3), bitRowIds, (int rowId, Line l) -> {
+			Assert.assertArrayEquals(basicRow(rowId), l.getValues());
+			return rowIds.add(rowId);
+		});
+		Assert.assertEquals(Arrays.asList(5, 9000, 9001, 19999), rowIds);
+		Assert.assertEquals(NB_ROWS, readBasicRows(bucket));
+		Assert.assertTrue(streamed.isEmpty());
+	}
+
+	@Test
+	public void testReadParallel() throws IOException {
+		Bucket bucket = createBucket(true);
+
+		// Tasks reading parts of the same files share their mappings
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLinesParallel(() -> new DefaultLine(0, 1, 2, 3), null, null, (int rowId, Line l) -> {
+			Assert.assertArrayEquals(basicRow(rowId), l.getValues());
+			return rowIds.add(rowId);
+		}, true);
+		Assert.assertEquals(NB_ROWS, rowIds.size());
+		Assert.assertEquals(NB_ROWS, readBasicRows(bucket));
+	}
+
+	@Test
+	public void testSharedMappings() throws IOException {
+		File file = new File(BASIC_DIRECTORY, "mapped");
+		file.getParentFile().mkdirs();
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(new byte[]{1, 2, 3});
+		}
+		MappedFiles files = new MappedFiles();
+		MappedFile first = files.acquire(file.getPath());
+		Assert.assertSame(first, files.acquire(file.getPath()));
+
+		// A removed file is mapped again, its former readers keeping their mapping
+		files.remove(file.getPath());
+		MappedFile second = files.acquire(file.getPath());
+		Assert.assertNotSame(first, second);
+		ByteBuffer buffer = first.getBuffer();
+		first.release();
+		Assert.assertEquals(3, buffer.get(2));
+		first.release();
+
+		// The mapping is released by its last reader
+		second.release();
+		MappedFile third = files.acquire(file.getPath());
+		Assert.assertNotSame(second, third);
+		Assert.assertEquals(2, third.getBuffer().get(1));
+		third.release();
+		file.delete();
+	}
+}
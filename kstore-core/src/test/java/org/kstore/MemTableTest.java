@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultColumn;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.kstore.impl.FileSystemDevice;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Adds rows to buckets keeping them in a memtable until enough rows are committed.
+ *
+ * @author eric
+ */
+public class MemTableTest extends StoreTest {
+
+	private final static int MEMTABLE_ROWS = 3000;
+
+	private final static String DIRECTORY = "./target/buckets/memtable/";
+
+	private static Object[] row(int i) {
+		return new Object[]{"Country" + (i % 50), i * 1000L, i / 4.D, i % 7};
+	}
+
+	private DefaultKStore createStore() {
+		return createStore(new FileSystemDevice());
+	}
+
+	private DefaultKStore createStore(Device device) {
+		List<Column> schema = new ArrayList<>();
+		schema.add(new DefaultColumn(ColumnType.STRING));
+		schema.add(new DefaultColumn(ColumnType.BIGINT));
+		schema.add(new DefaultColumn(ColumnType.DOUBLE));
+		schema.add(new DefaultColumn(ColumnType.INT));
+		return new DefaultKStore("MemTable", schema, DIRECTORY, device) {
+			@Override
+			public int getMemTableRows() {
+				return MEMTABLE_ROWS;
+			}
+		};
+	}
+
+	/**
+	 * Reads all rows of the bucket, checking their values.
+	 *
+	 * @return the read row ids
+	 */
+	private static RoaringBitmap read(Bucket bucket) throws IOException {
+		RoaringBitmap rowIds = new RoaringBitmap();
+		bucket.readLines(new DefaultLine(0, 1, 2, 3), (RoaringBitmap) null, (int rowId, Line l) -> {
+			Object[] expected = row(rowId);
+			expected[3] = (long) (Integer) expected[3];
+			Assert.assertArrayEquals(expected, l.getValues());
+			Assert.assertFalse("Row read twice", rowIds.contains(rowId));
+			rowIds.add(rowId);
+			return true;
+		});
+		return rowIds;
+	}
+
+	private static RoaringBitmap range(int from, int to) {
+		RoaringBitmap rowIds = new RoaringBitmap();
+		for (int i = from; i < to; i++) {
+			rowIds.add(i);
+		}
+		return rowIds;
+	}
+
+	private static void add(Bucket bucket, int from, int to) throws IOException {
+		for (int i = from; i < to; i++) {
+			bucket.add(i, row(i));
+		}
+	}
+
+	@Test
+	public void testUncommittedRows() throws IOException {
+		deleteDirectory(new File(DIRECTORY));
+		kstore = createStore();
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < 1500; i++) {
+			bucket.add(i, row(i));
+		}
+		// Rows are read before being committed
+		Assert.assertEquals(range(0, 1500), read(bucket));
+		bucket.commit();
+		for (int i = 1500; i < 2000; i++) {
+			bucket.add(i, row(i));
+		}
+		Assert.assertEquals(2000, read(bucket).getCardinality());
+		bucket.rollback();
+		Assert.assertEquals(range(0, 1500), read(bucket));
+	}
+
+	@Test
+	public void testSmallCommits() throws IOException {
+		deleteDirectory(new File(DIRECTORY));
+		kstore = createStore();
+		Bucket bucket = kstore.newBucket();
+		int nbRows = 0;
+		// Commits below the memtable size do not write row files
+		for (int commit = 0; commit < 10; commit++, nbRows += 250) {
+			for (int i = nbRows; i < nbRows + 250; i++) {
+				bucket.add(i, row(i));
+			}
+			bucket.commit();
+		}
+		Assert.assertEquals(0, countRowFiles(DIRECTORY));
+		Assert.assertEquals(range(0, nbRows), read(bucket));
+
+		// Rows are written in a row file once enough rows are committed, and read while being written
+		for (int i = nbRows; i < 3200; i++) {
+			bucket.add(i, row(i));
+		}
+		bucket.commit();
+		Assert.assertEquals(range(0, 3200), read(bucket));
+		int[] count = new int[1];
+		bucket.readBatches(new int[]{1}, (RoaringBitmap) null, (Batch batch) -> {
+			for (int n = 0; n < batch.getSize(); n++) {
+				Assert.assertEquals(batch.getRowIds()[n] * 1000L, batch.getVector(0).getLong(n));
+			}
+			count[0] += batch.getSize();
+			return true;
+		});
+		Assert.assertEquals(3200, count[0]);
+		count[0] = 0;
+		bucket.readLinesParallel(() -> new DefaultLine(0, 1), range(3000, 3300), ColumnFilter.equal(0, "Country0"), (int rowId, Line l) -> {
+			Assert.assertEquals("Country0", l.getValues()[0].toString());
+			count[0]++;
+			return true;
+		}, true);
+		Assert.assertEquals(4, count[0]);
+	}
+
+	@Test
+	public void testReplay() throws IOException {
+		deleteDirectory(new File(DIRECTORY));
+		kstore = createStore();
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < 3500; i++) {
+			bucket.add(i, row(i));
+		}
+		bucket.commit();
+		for (int i = 3500; i < 4000; i++) {
+			bucket.add(i, row(i));
+		}
+		bucket.commit();
+		// The index is saved once the first memtable is written in a row file
+		((PageBucket) bucket).awaitFlush();
+		kstore.save();
+		// Rows committed after the index was saved are kept by the log, uncommitted ones are dropped
+		for (int i = 4000; i < 4200; i++) {
+			bucket.add(i, row(i));
+		}
+		bucket.commit();
+		for (int i = 4200; i < 4300; i++) {
+			bucket.add(i, row(i));
+		}
+
+		DefaultKStore loaded = createStore();
+		loaded.load();
+		Bucket reloaded = loaded.getBuckets().get(0);
+		Assert.assertEquals(range(0, 4200), read(reloaded));
+		for (int i = 4200; i < 4300; i++) {
+			reloaded.add(i, row(i));
+		}
+		reloaded.commit();
+		Assert.assertEquals(range(0, 4300), read(reloaded));
+	}
+
+	@Test
+	public void testDurableCommits() throws IOException {
+		deleteDirectory(new File(DIRECTORY));
+		kstore = createStore(new CloseDevice());
+		Bucket bucket = kstore.newBucket();
+		add(bucket, 0, 1000);
+		bucket.commit();
+		kstore.save();
+		add(bucket, 1000, 1500);
+		bucket.commit();
+		// Rows committed in a memtable created after the index was saved are found from its log
+		add(bucket, 1500, 3200);
+		bucket.commit();
+		((PageBucket) bucket).awaitFlush();
+		add(bucket, 3200, 3300);
+		bucket.commit();
+		// Uncommitted rows are in a segment of the log which the device did not write yet
+		add(bucket, 3300, 3400);
+
+		DefaultKStore loaded = createStore(new CloseDevice());
+		loaded.load();
+		Assert.assertEquals(range(0, 3300), read(loaded.getBuckets().get(0)));
+	}
+
+	@Test
+	public void testRollbackKeepsLog() throws IOException {
+		deleteDirectory(new File(DIRECTORY));
+		kstore = createStore();
+		Bucket bucket = kstore.newBucket();
+		add(bucket, 0, 1000);
+		bucket.commit();
+		kstore.save();
+		add(bucket, 1000, 1200);
+		bucket.rollback();
+		add(bucket, 1200, 1300);
+		bucket.commit();
+		add(bucket, 1300, 1400);
+
+		// Replaying the log does not rewrite it, so that it can be replayed again
+		RoaringBitmap expected = range(0, 1000);
+		expected.or(range(1200, 1300));
+		for (int n = 0; n < 2; n++) {
+			DefaultKStore loaded = createStore();
+			loaded.load();
+			Assert.assertEquals(expected, read(loaded.getBuckets().get(0)));
+		}
+	}
+
+	/**
+	 * A device writing files once closed, as object stores do.
+	 */
+	private static class CloseDevice extends FileSystemDevice {
+
+		@Override
+		public OutputStream getOutputStream(String path, boolean append) throws IOException {
+			String tmp = path + ".tmp";
+			return new FilterOutputStream(super.getOutputStream(tmp, append)) {
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					out.write(b, off, len);
+				}
+
+				@Override
+				public void close() throws IOException {
+					super.close();
+					rename(tmp, path);
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Commits small row files, merged in the background.
+ *
+ * @author eric
+ */
+public class MergeTest extends StoreTest {
+
+	private final static int NB_COMMITS = 24;
+
+	private final static int COMMIT_ROWS = 250;
+
+	private final static String DIRECTORY = "./target/buckets/merge/";
+
+	private static void commit(Bucket bucket, int commit) throws IOException {
+		for (int i = commit * COMMIT_ROWS; i < (commit + 1) * COMMIT_ROWS; i++) {
+			bucket.add(i, countryRow(i));
+		}
+		bucket.commit();
+	}
+
+	@Test
+	public void testMerge() throws IOException {
+		deleteDirectory(new File(DIRECTORY));
+		kstore = createCountryStore("Merge", DIRECTORY);
+		Bucket bucket = kstore.newBucket();
+		for (int commit = 0; commit < NB_COMMITS; commit++) {
+			commit(bucket, commit);
+			// Rows are read while files are merged
+			Assert.assertEquals((commit + 1) * COMMIT_ROWS, readCountryRows(bucket, new RoaringBitmap()));
+		}
+		((PageBucket) bucket).awaitMerge();
+		// Replaced files are deleted once no saved index references them
+		kstore.save();
+		kstore.save();
+		Assert.assertTrue("Row files were not merged", countRowFiles(DIRECTORY) < NB_COMMITS);
+		Assert.assertEquals(NB_COMMITS * COMMIT_ROWS, readCountryRows(bucket, new RoaringBitmap()));
+
+		DefaultKStore loaded = createCountryStore("Merge", DIRECTORY);
+		loaded.load();
+		Bucket reloaded = loaded.getBuckets().get(0);
+		Assert.assertEquals(NB_COMMITS * COMMIT_ROWS, readCountryRows(reloaded, new RoaringBitmap()));
+
+		// Merged files keep the numbers of their rows
+		reloaded.deleteRowNum(10);
+		reloaded.deleteRowNum(3000);
+		reloaded.commit();
+		Assert.assertEquals(NB_COMMITS * COMMIT_ROWS - 2, readCountryRows(reloaded, RoaringBitmap.bitmapOf(10, 3000)));
+	}
+
+	@Test
+	public void testDeleteAfterLoad() throws IOException {
+		deleteDirectory(new File(DIRECTORY));
+		kstore = createCountryStore("Merge", DIRECTORY);
+		Bucket bucket = kstore.newBucket();
+		int nbFiles = Configuration.getMergeFiles();
+		for (int commit = 0; commit < nbFiles; commit++) {
+			commit(bucket, commit);
+		}
+		((PageBucket) bucket).awaitMerge();
+		kstore.save();
+		Assert.assertTrue(bucketFileExists(DIRECTORY, "id_0"));
+
+		// Replaced files are saved in the index, to be deleted at the next save of the loaded store
+		DefaultKStore loaded = createCountryStore("Merge", DIRECTORY);
+		loaded.load();
+		loaded.save();
+		Assert.assertFalse(bucketFileExists(DIRECTORY, "id_0"));
+		Assert.assertEquals(nbFiles * COMMIT_ROWS, readCountryRows(loaded.getBuckets().get(0), new RoaringBitmap()));
+	}
+
+	@Test
+	public void testDeleteAfterScans() throws IOException {
+		deleteDirectory(new File(DIRECTORY));
+		kstore = createCountryStore("Merge", DIRECTORY);
+		Bucket bucket = kstore.newBucket();
+		int nbFiles = Configuration.getMergeFiles();
+		for (int commit = 0; commit < nbFiles - 1; commit++) {
+			commit(bucket, commit);
+		}
+		int[] count = new int[1];
+		bucket.readLines(new DefaultLine(0, 1, 2), (RoaringBitmap) null, (int rowId, Line l) -> {
+			if (count[0] == 0) {
+				try {
+					// The scan reads the files it started with, while they are merged
+					commit(bucket, nbFiles - 1);
+					((PageBucket) bucket).awaitMerge();
+					kstore.save();
+					kstore.save();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				Assert.assertTrue(bucketFileExists(DIRECTORY, "id_" + (nbFiles - 2)));
+			}
+			Assert.assertArrayEquals(countryRow(rowId), l.getValues());
+			count[0]++;
+			return true;
+		});
+		Assert.assertEquals((nbFiles - 1) * COMMIT_ROWS, count[0]);
+
+		// Files are deleted once the scans that may read them have ended
+		kstore.save();
+		kstore.save();
+		Assert.assertFalse(bucketFileExists(DIRECTORY, "id_" + (nbFiles - 2)));
+		Assert.assertEquals(nbFiles * COMMIT_ROWS, readCountryRows(bucket, new RoaringBitmap()));
+	}
+}
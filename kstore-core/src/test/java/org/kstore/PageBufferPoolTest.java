@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.kstore.utils.PageBufferPool;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ *
+ * @author eric
+ */
+public class PageBufferPoolTest extends StoreTest {
+
+	private final static int NB_ROWS = 20000;
+
+	private final static String DIRECTORY = "./target/buckets/pool/";
+
+	private static int scan(Bucket bucket) throws IOException {
+		int[] count = new int[1];
+		bucket.readLines(new DefaultLine(0, 1, 2, 3), (RoaringBitmap) null, (int rowId, Line l) -> {
+			count[0]++;
+			return true;
+		});
+		return count[0];
+	}
+
+	@Test
+	public void testReuse() {
+		byte[] buf = PageBufferPool.acquire(1000);
+		Assert.assertEquals(65536, buf.length);
+		PageBufferPool.release(buf);
+		long allocations = PageBufferPool.getAllocations();
+		Assert.assertEquals(65536, PageBufferPool.acquire(65536).length);
+		Assert.assertEquals(allocations, PageBufferPool.getAllocations());
+		Assert.assertEquals(131072, PageBufferPool.acquire(65537).length);
+		// Arrays not taken from the pool are ignored
+		byte[] other = new byte[70000];
+		PageBufferPool.release(other);
+		Assert.assertNotSame(other, PageBufferPool.acquire(70000));
+	}
+
+	@Test
+	public void testMaxBytes() {
+		PageBufferPool.resetPageBufferPool(200000);
+		try {
+			byte[] first = PageBufferPool.acquire(65536);
+			byte[] second = PageBufferPool.acquire(65536);
+			byte[] large = PageBufferPool.acquire(131072);
+			PageBufferPool.release(first);
+			PageBufferPool.release(large);
+			Assert.assertEquals(196608, PageBufferPool.getFreeBytes());
+			// The pool is full: the array is dropped
+			PageBufferPool.release(second);
+			Assert.assertEquals(196608, PageBufferPool.getFreeBytes());
+			Assert.assertSame(first, PageBufferPool.acquire(65536));
+			Assert.assertEquals(131072, PageBufferPool.getFreeBytes());
+		} finally {
+			PageBufferPool.resetPageBufferPool(Configuration.getBufferPoolBytes());
+		}
+	}
+
+	@Test
+	public void testScanWithoutAllocation() throws IOException {
+		kstore = new DefaultKStore("Pool", basicSchema(), DIRECTORY);
+		Bucket bucket = kstore.newBucket();
+		addBasicRows(bucket, 0, NB_ROWS);
+		bucket.commit();
+
+		// The first scan fills the pool
+		Assert.assertEquals(NB_ROWS, scan(bucket));
+		long allocations = PageBufferPool.getAllocations();
+		for (int n = 0; n < 5; n++) {
+			Assert.assertEquals(NB_ROWS, scan(bucket));
+		}
+		Assert.assertEquals(allocations, PageBufferPool.getAllocations());
+	}
+}
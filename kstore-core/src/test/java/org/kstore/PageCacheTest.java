@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.FileSystemDevice;
+import org.kstore.utils.PageCache;
+
+/**
+ *
+ * @author eric
+ */
+public class PageCacheTest extends StoreTest {
+
+	private final static int NB_ROWS = 10000;
+
+	private Bucket createBucket() throws IOException {
+		createBasicStore();
+
+		Bucket bucket = kstore.newBucket();
+		addBasicRows(bucket, 0, NB_ROWS);
+		bucket.commit();
+		return bucket;
+	}
+
+	@After
+	public void disableCache() {
+		PageCache.resetPageCache(0);
+	}
+
+	@Test
+	public void testHits() throws IOException {
+		Bucket bucket = createBucket();
+		PageCache.resetPageCache(64 * 1024 * 1024);
+
+		Assert.assertEquals(NB_ROWS, readBasicRows(bucket));
+		long misses = PageCache.getMisses();
+		Assert.assertTrue(misses > 0);
+		Assert.assertEquals(0, PageCache.getHits());
+
+		Assert.assertEquals(NB_ROWS, readBasicRows(bucket));
+		Assert.assertEquals(misses, PageCache.getHits());
+		Assert.assertEquals(misses, PageCache.getMisses());
+		Assert.assertEquals(0, PageCache.getEvictions());
+
+		// New rows invalidate the pages of the bucket
+		addBasicRows(bucket, NB_ROWS, NB_ROWS + 1);
+		bucket.commit();
+		Assert.assertEquals(0, PageCache.getBytes());
+		Assert.assertEquals(NB_ROWS + 1, readBasicRows(bucket));
+	}
+
+	@Test
+	public void testNoReadOnHits() throws IOException {
+		noReadOnHits(true);
+		noReadOnHits(false);
+	}
+
+	private void noReadOnHits(boolean oneFilePerColumn) throws IOException {
+		AtomicInteger opened = new AtomicInteger();
+		kstore = new DefaultKStore("TheWorld", basicSchema(), BASIC_DIRECTORY, new FileSystemDevice() {
+			@Override
+			public InputStream getInputStream(String path) throws IOException {
+				opened.incrementAndGet();
+				return super.getInputStream(path);
+			}
+		}) {
+			@Override
+			public boolean useOneFilePerColumn() {
+				return oneFilePerColumn;
+			}
+		};
+		Bucket bucket = kstore.newBucket();
+		addBasicRows(bucket, 0, NB_ROWS);
+		bucket.commit();
+		PageCache.resetPageCache(64 * 1024 * 1024);
+
+		Assert.assertEquals(NB_ROWS, readBasicRows(bucket));
+		Assert.assertTrue(opened.get() > 0);
+		// Columns whose pages are all cached are not opened
+		opened.set(0);
+		Assert.assertEquals(NB_ROWS, readBasicRows(bucket));
+		Assert.assertEquals(0, opened.get());
+	}
+
+	@Test
+	public void testEvictions() throws IOException {
+		Bucket bucket = createBucket();
+		PageCache.resetPageCache(10000);
+
+		Assert.assertEquals(NB_ROWS, readBasicRows(bucket));
+		Assert.assertEquals(NB_ROWS, readBasicRows(bucket));
+		Assert.assertTrue(PageCache.getEvictions() > 0);
+		Assert.assertTrue(PageCache.getBytes() <= 10000);
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultColumn;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.utils.IO;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ *
+ * @author eric
+ */
+public class PageCodecTest extends StoreTest {
+
+	private final static int NB_ROWS = 5000;
+
+	private final static String DIRECTORY = "./target/buckets/codecs/";
+
+	private static List<Column> schema(PageCodec... codecs) {
+		List<Column> schema = basicSchema();
+		for (int n = 0; n < codecs.length; n++) {
+			((DefaultColumn) schema.get(n)).setPageCodec(codecs[n]);
+		}
+		return schema;
+	}
+
+	private static void checkRead(Bucket bucket) throws IOException {
+		Assert.assertEquals(NB_ROWS, readBasicRows(bucket));
+	}
+
+	@Test
+	public void testColumnCodecs() throws IOException {
+		kstore = new DefaultKStore("Codecs", schema(PageCodec.LZ4, PageCodec.ZSTD, PageCodec.ZSTD, PageCodec.NONE), DIRECTORY);
+		Bucket bucket = kstore.newBucket();
+		addBasicRows(bucket, 0, NB_ROWS);
+		bucket.commit();
+		checkRead(bucket);
+
+		// Deleted rows are rewritten with the same codecs
+		bucket.deleteRowId(10);
+		bucket.commit();
+		addBasicRows(bucket, 10, 11);
+		bucket.commit();
+		checkRead(bucket);
+		kstore.save();
+
+		// Codecs are read from the index, whatever the configuration of the columns
+		DefaultKStore loaded = new DefaultKStore("Codecs", schema(), DIRECTORY);
+		loaded.load();
+		checkRead(loaded.getBuckets().get(0));
+	}
+
+	@Test
+	public void testOldIndex() throws IOException {
+		kstore = new DefaultKStore("Codecs", schema(), DIRECTORY);
+		Bucket bucket = kstore.newBucket();
+		addBasicRows(bucket, 0, NB_ROWS);
+		bucket.commit();
+		kstore.save();
+		downgradeIndex(Paths.get(DIRECTORY, "index"));
+
+		// Indexes written before codecs use the default codec of each column format, whatever the configuration
+		DefaultKStore loaded = new DefaultKStore("Codecs", schema(PageCodec.ZSTD, PageCodec.ZSTD, PageCodec.ZSTD, PageCodec.ZSTD), DIRECTORY);
+		loaded.load();
+		Bucket reloaded = loaded.getBuckets().get(0);
+		checkRead(reloaded);
+
+		// Updates are written with the same codecs
+		reloaded.deleteRowId(10);
+		reloaded.commit();
+		addBasicRows(reloaded, 10, 11);
+		reloaded.commit();
+		checkRead(reloaded);
+	}
+
+	/**
+	 * Rewrites the index of a store holding one bucket of one row file, as saved before the codecs were kept in the
+	 * index (version 2).
+	 */
+	private static void downgradeIndex(Path index) throws IOException {
+		byte[] bytes = Files.readAllBytes(index);
+		ByteArrayInputStream bytesIn = new ByteArrayInputStream(bytes);
+		DataInputStream in = new DataInputStream(bytesIn);
+		Assert.assertEquals(1, in.readInt());
+		IO.loadString(in);
+		IO.load(in, (byte[]) null);
+		in.readLong();
+		in.readLong();
+		IO.load(in, (byte[]) null);
+		int versionOffset = bytes.length - bytesIn.available();
+		Assert.assertTrue(in.readInt() < 0);
+		IO.load(in, (byte[]) null);
+		int rowFilesOffset = bytes.length - bytesIn.available();
+		Assert.assertEquals(1, in.readInt());
+
+		// The deleted and removed rows of the row file, then the logs and the files to delete, were added after
+		// version 2
+		RoaringBitmap empty = new RoaringBitmap();
+		int end = bytes.length - 2 * empty.serializedSizeInBytes() - 12;
+		ByteArrayOutputStream old = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(old);
+		out.write(bytes, 0, versionOffset);
+		out.writeInt(-2);
+		out.write(bytes, rowFilesOffset, end - rowFilesOffset);
+		out.close();
+		Files.write(index, old.toByteArray());
+	}
+}
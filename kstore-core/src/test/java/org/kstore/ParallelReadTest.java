@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.kstore.utils.Str;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ *
+ * @author eric
+ */
+public class ParallelReadTest extends StoreTest {
+
+	private final static int NB_ROWS = 40000;
+
+	private Bucket createBucket() throws IOException {
+		createBasicStore();
+		return fillBucket();
+	}
+
+	private Bucket fillBucket() throws IOException {
+		Bucket bucket = kstore.newBucket();
+		addBasicRows(bucket, 0, NB_ROWS / 2);
+		bucket.commit();
+		addBasicRows(bucket, NB_ROWS / 2, NB_ROWS);
+		bucket.commit();
+		return bucket;
+	}
+
+	private static List<Integer> readSequential(Bucket bucket, RoaringBitmap bitRowIds, ColumnFilter filter) throws IOException {
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLines(new DefaultLine(0, 1, 2, 3), bitRowIds, filter, (int rowId, Line l) -> rowIds.add(rowId));
+		return rowIds;
+	}
+
+	@Test
+	public void testOrdered() throws IOException {
+		Bucket bucket = createBucket();
+
+		RoaringBitmap bitRowIds = new RoaringBitmap();
+		bitRowIds.add(100, 30000);
+		ColumnFilter filter = ColumnFilter.range(3, 10.D, 5000.D);
+
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLinesParallel(() -> new DefaultLine(0, 1, 2, 3), bitRowIds, filter, (int rowId, Line l) -> {
+			Assert.assertArrayEquals(basicRow(rowId), l.getValues());
+			return rowIds.add(rowId);
+		}, true);
+		Assert.assertEquals(readSequential(bucket, bitRowIds, filter), rowIds);
+	}
+
+	@Test
+	public void testUnordered() throws IOException {
+		Bucket bucket = createBucket();
+
+		ConcurrentLinkedQueue<Integer> rowIds = new ConcurrentLinkedQueue<>();
+		bucket.readLinesParallel(() -> new DefaultLine(0, 1, 2, 3), null, null, (int rowId, Line l) -> {
+			Assert.assertArrayEquals(basicRow(rowId), l.getValues());
+			return rowIds.add(rowId);
+		}, false);
+		List<Integer> sorted = new ArrayList<>(rowIds);
+		Collections.sort(sorted);
+		Assert.assertEquals(readSequential(bucket, null, null), sorted);
+	}
+
+	@Test
+	public void testOrderedStop() throws IOException {
+		Bucket bucket = createBucket();
+
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLinesParallel(() -> new DefaultLine(0, 1, 2, 3), null, null, (int rowId, Line l) -> {
+			rowIds.add(rowId);
+			return rowIds.size() < 25000;
+		}, true);
+		Assert.assertEquals(readSequential(bucket, null, null).subList(0, 25000), rowIds);
+	}
+
+	@Test
+	public void testSingleFile() throws IOException {
+		kstore = new DefaultKStore("TheWorld", basicSchema(), BASIC_DIRECTORY) {
+			@Override
+			public boolean useOneFilePerColumn() {
+				return false;
+			}
+		};
+		Bucket bucket = fillBucket();
+
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLinesParallel(() -> new DefaultLine(1, 3), null, null, (int rowId, Line l) -> {
+			Assert.assertArrayEquals(new Object[]{basicRow(rowId)[1], basicRow(rowId)[3]}, l.getValues());
+			return rowIds.add(rowId);
+		}, true);
+		Assert.assertEquals(readSequential(bucket, null, null), rowIds);
+	}
+
+	@Test
+	public void testBufferedValues() {
+		BufferedLines lines = new BufferedLines(new int[]{2, 0, 3});
+		lines.addString(0, new Str("Europe"));
+		lines.addLong(2, 1000L);
+		lines.addDouble(3, 0.5D);
+		Assert.assertArrayEquals(new Object[]{1000L, "Europe", 0.5D}, lines.getValues());
+		lines.endRow(1);
+		// The last row is kept once ended
+		Assert.assertArrayEquals(new Object[]{1000L, "Europe", 0.5D}, lines.getValues());
+		lines.addLong(2, 2000L);
+		Assert.assertArrayEquals(new Object[]{2000L, null, null}, lines.getValues());
+	}
+
+	@Test
+	public void testPermutedColumns() throws IOException {
+		Bucket bucket = createBucket();
+
+		// Values of the first columns are at their column id, whatever the order of the projection
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLinesParallel(() -> new DefaultLine(1, 0), null, null, (int rowId, Line l) -> {
+			Assert.assertArrayEquals(new Object[]{basicRow(rowId)[0], basicRow(rowId)[1]}, l.getValues());
+			return rowIds.add(rowId);
+		}, true);
+		Assert.assertEquals(readSequential(bucket, null, null), rowIds);
+
+		BufferedLines lines = new BufferedLines(new int[]{1, 0});
+		lines.addString(1, new Str("France"));
+		lines.addString(0, new Str("Europe"));
+		Assert.assertArrayEquals(new Object[]{"Europe", "France"}, lines.getValues());
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.kstore.impl.DefaultColumn;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.kstore.utils.BucketWritePool;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Writes buckets of many columns whose pages are encoded by several threads.
+ *
+ * @author eric
+ */
+public class ParallelWriteTest extends StoreTest {
+
+	private final static int NB_ROWS = 5000;
+
+	private final static int NB_COLUMNS = 16;
+
+	private final static String DIRECTORY = "./target/buckets/parallel/";
+
+	private static ColumnType type(int n) {
+		ColumnType[] types = {ColumnType.STRING, ColumnType.BIGINT, ColumnType.DOUBLE, ColumnType.INT};
+		return types[n % types.length];
+	}
+
+	private static Object[] row(int i) {
+		Object[] row = new Object[NB_COLUMNS];
+		for (int n = 0; n < NB_COLUMNS; n++) {
+			switch (type(n)) {
+				case STRING:
+					row[n] = "Value" + (i % (n + 3));
+					break;
+				case BIGINT:
+					row[n] = (long) i * n;
+					break;
+				case DOUBLE:
+					row[n] = i / (double) (n + 1);
+					break;
+				default:
+					row[n] = i % (n + 100);
+					break;
+			}
+		}
+		return row;
+	}
+
+	@Before
+	public void setUp() {
+		BucketWritePool.resetWritePool(4);
+	}
+
+	@After
+	public void tearDown() {
+		BucketWritePool.resetWritePool();
+	}
+
+	private void checkWrite(boolean oneFilePerColumn) throws IOException {
+		List<Column> schema = new ArrayList<>();
+		for (int n = 0; n < NB_COLUMNS; n++) {
+			schema.add(new DefaultColumn(type(n)));
+		}
+		kstore = new DefaultKStore("Parallel", schema, DIRECTORY) {
+			@Override
+			public boolean useOneFilePerColumn() {
+				return oneFilePerColumn;
+			}
+		};
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < NB_ROWS; i++) {
+			bucket.add(i, row(i));
+		}
+		bucket.commit();
+
+		int[] columns = new int[NB_COLUMNS];
+		for (int n = 0; n < NB_COLUMNS; n++) {
+			columns[n] = n;
+		}
+		int[] count = new int[1];
+		bucket.readLines(new DefaultLine(columns), (RoaringBitmap) null, (int rowId, Line l) -> {
+			Object[] expected = row(rowId);
+			for (int n = 0; n < NB_COLUMNS; n++) {
+				if (type(n) == ColumnType.INT) {
+					// Integers are read as longs
+					expected[n] = (long) (Integer) expected[n];
+				}
+			}
+			Assert.assertArrayEquals(expected, l.getValues());
+			count[0]++;
+			return true;
+		});
+		Assert.assertEquals(NB_ROWS, count[0]);
+	}
+
+	@Test
+	public void testOneFilePerColumn() throws IOException {
+		checkWrite(true);
+	}
+
+	@Test
+	public void testSingleFile() throws IOException {
+		// Pages of all columns are interleaved in the same file
+		checkWrite(false);
+	}
+}
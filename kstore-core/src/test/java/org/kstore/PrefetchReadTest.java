@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.columns.io.ColumnPageBytesInput;
+import org.kstore.columns.io.PrefetchColumnPageBytesInput;
+import org.kstore.impl.DefaultLine;
+import org.kstore.impl.FileSystemDevice;
+import org.kstore.utils.ArrayInt;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Reads a bucket from a device considered as remote, so that pages are fetched ahead.
+ *
+ * @author eric
+ */
+public class PrefetchReadTest extends StoreTest {
+
+	private final static int NB_ROWS = 20000;
+
+	private Bucket createBucket() throws IOException {
+		createBasicStore(new FileSystemDevice() {
+			@Override
+			public boolean isRemote() {
+				return true;
+			}
+		});
+
+		Bucket bucket = kstore.newBucket();
+		addBasicRows(bucket, 0, NB_ROWS);
+		bucket.commit();
+		return bucket;
+	}
+
+	@Test
+	public void testReadAll() throws IOException {
+		Bucket bucket = createBucket();
+
+		int[] count = new int[1];
+		bucket.readLines(new DefaultLine(0, 1, 2, 3), (RoaringBitmap) null, (int rowId, Line l) -> {
+			Assert.assertEquals(count[0], rowId);
+			Assert.assertArrayEquals(basicRow(rowId), l.getValues());
+			count[0]++;
+			return true;
+		});
+		Assert.assertEquals(NB_ROWS, count[0]);
+	}
+
+	@Test
+	public void testReadSparse() throws IOException {
+		Bucket bucket = createBucket();
+
+		RoaringBitmap bitRowIds = RoaringBitmap.bitmapOf(5, 9000, 9001, 19999);
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLines(new DefaultLine(0, 1, 2, 3), bitRowIds, (int rowId, Line l) -> {
+			Assert.assertArrayEquals(basicRow(rowId), l.getValues());
+			return rowIds.add(rowId);
+		});
+		Assert.assertEquals(Arrays.asList(5, 9000, 9001, 19999), rowIds);
+	}
+
+	@Test
+	public void testBudget() throws IOException {
+		ArrayInt pos = new ArrayInt();
+		byte[] bytes = new byte[10 * 1000];
+		for (int n = 0; n < 10; n++) {
+			pos.add(1000);
+			Arrays.fill(bytes, n * 1000, (n + 1) * 1000, (byte) n);
+		}
+		// No page fits in the budget: the reader reads the pages itself
+		ColumnPageBytesInput in = new PrefetchColumnPageBytesInput(new ByteArrayInputStream(bytes), pos, 4, 100);
+		byte[] page = new byte[1000];
+		in.skipNextPages(2000);
+		for (int n = 2; n < 10; n++) {
+			Assert.assertEquals(1000, in.readNextPage(page, 0, page.length));
+			Assert.assertEquals(n, page[999]);
+		}
+		Assert.assertEquals(-1, in.readNextPage(page, 0, page.length));
+		in.closeColumn();
+		Assert.assertEquals(0, PrefetchColumnPageBytesInput.getPrefetchedBytes());
+	}
+
+	@Test
+	public void testReleased() throws IOException {
+		Bucket bucket = createBucket();
+
+		int[] count = new int[1];
+		bucket.readLines(new DefaultLine(0, 1, 2, 3), (RoaringBitmap) null, (int rowId, Line l) -> {
+			count[0]++;
+			return count[0] < NB_ROWS / 2;
+		});
+		// The fetched pages of all columns are given back once they are closed
+		Assert.assertEquals(0, PrefetchColumnPageBytesInput.getPrefetchedBytes());
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultColumn;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ *
+ * @author eric
+ */
+public class PrimitiveLineTest extends StoreTest {
+
+	private final static int NB_ROWS = 5000;
+
+	private final static String DIRECTORY = "./target/buckets/primitive/";
+
+	private static Object[] row(int i) {
+		return new Object[]{"Continent" + (i % 7), (i % 3 == 0) ? Long.MIN_VALUE : i, i / 4.D, (byte) (i % 100)};
+	}
+
+	private Bucket createBucket() throws IOException {
+		ColumnType[] types = {ColumnType.STRING, ColumnType.BIGINT, ColumnType.DOUBLE, ColumnType.TINYINT};
+		List<Column> schema = new ArrayList<>();
+		for (ColumnType type : types) {
+			schema.add(new DefaultColumn(type));
+		}
+		kstore = new DefaultKStore("Primitive", schema, DIRECTORY);
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < NB_ROWS; i++) {
+			bucket.add(i, row(i));
+		}
+		bucket.commit();
+		return bucket;
+	}
+
+	@Test
+	public void testPrimitiveLine() throws IOException {
+		Bucket bucket = createBucket();
+		int[] count = new int[1];
+		// Values are indexed by their position in the projection
+		bucket.readLines(new PrimitiveLine(2, 0, 1, 3), (RoaringBitmap) null, (int rowId, Line l) -> {
+			PrimitiveLine line = (PrimitiveLine) l;
+			Assert.assertEquals(rowId / 4.D, line.getDouble(0), 0);
+			Assert.assertEquals("Continent" + (rowId % 7), line.getStr(1).toString());
+			Assert.assertEquals((rowId % 3 == 0) ? Long.MIN_VALUE : rowId, line.getLong(2));
+			Assert.assertEquals(rowId % 100, line.getLong(3));
+			count[0]++;
+			return true;
+		});
+		Assert.assertEquals(NB_ROWS, count[0]);
+	}
+
+	@Test
+	public void testProjectionOrder() throws IOException {
+		Bucket bucket = createBucket();
+		int[] count = new int[1];
+		bucket.readLines(new DefaultLine(3, 2), (RoaringBitmap) null, (int rowId, Line l) -> {
+			Assert.assertArrayEquals(new Object[]{(long) (rowId % 100), rowId / 4.D}, l.getValues());
+			count[0]++;
+			return true;
+		});
+		Assert.assertEquals(NB_ROWS, count[0]);
+	}
+
+	@Test
+	public void testFilterAndOrderedScan() throws IOException {
+		Bucket bucket = createBucket();
+		List<Object[]> values = new ArrayList<>();
+		bucket.readLinesParallel(() -> new PrimitiveLine(2, 0), null, ColumnFilter.range(3, 10, 19), (int rowId, Line l) -> {
+			Assert.assertEquals(rowId / 4.D, ((PrimitiveLine) l).getDouble(0), 0);
+			values.add(l.getValues());
+			return true;
+		}, true);
+		Assert.assertEquals(NB_ROWS / 10, values.size());
+		Assert.assertArrayEquals(new Object[]{10 / 4.D, "Continent3"}, values.get(0));
+	}
+}
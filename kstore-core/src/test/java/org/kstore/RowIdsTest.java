@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultLine;
+import org.kstore.impl.FileSystemDevice;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Reads buckets whose ids are computed from the page statistics when they are arithmetic sequences.
+ *
+ * @author eric
+ */
+public class RowIdsTest extends StoreTest {
+
+	private final static int NB_ROWS = 10000;
+
+	/** Number of times the id column was opened. */
+	private final AtomicInteger idReads = new AtomicInteger();
+
+	private Bucket createBucket(int[] rowIds) throws IOException {
+		createBasicStore(new FileSystemDevice() {
+			@Override
+			public InputStream getInputStream(String path) throws IOException {
+				countIdRead(path);
+				return super.getInputStream(path);
+			}
+		});
+
+		Bucket bucket = kstore.newBucket();
+		for (int rowId : rowIds) {
+			bucket.add(rowId, basicRow(rowId));
+		}
+		bucket.commit();
+		return bucket;
+	}
+
+	private void countIdRead(String path) {
+		if (path.substring(path.lastIndexOf('/') + 1).startsWith(Bucket.ID)) {
+			idReads.incrementAndGet();
+		}
+	}
+
+	private static void checkRead(Bucket bucket, int[] rowIds) throws IOException {
+		int[] count = new int[1];
+		bucket.readLines(new DefaultLine(0, 1, 2, 3), (RoaringBitmap) null, (int rowId, Line l) -> {
+			Assert.assertEquals(rowIds[count[0]], rowId);
+			Assert.assertArrayEquals(basicRow(rowId), l.getValues());
+			count[0]++;
+			return true;
+		});
+		Assert.assertEquals(rowIds.length, count[0]);
+	}
+
+	@Test
+	public void testContiguousIds() throws IOException {
+		int[] rowIds = new int[NB_ROWS];
+		for (int i = 0; i < NB_ROWS; i++) {
+			rowIds[i] = i;
+		}
+		Bucket bucket = createBucket(rowIds);
+
+		checkRead(bucket, rowIds);
+		Assert.assertEquals(0, idReads.get());
+	}
+
+	@Test
+	public void testSteppedIds() throws IOException {
+		// Ids in reverse order, every 3 ids
+		int[] rowIds = new int[NB_ROWS];
+		for (int i = 0; i < NB_ROWS; i++) {
+			rowIds[i] = 3 * (NB_ROWS - i);
+		}
+		Bucket bucket = createBucket(rowIds);
+
+		checkRead(bucket, rowIds);
+		Assert.assertEquals(0, idReads.get());
+	}
+
+	@Test
+	public void testUnorderedIds() throws IOException {
+		int[] rowIds = new int[NB_ROWS];
+		for (int i = 0; i < NB_ROWS; i++) {
+			rowIds[i] = (i * 7919) % NB_ROWS;
+		}
+		Bucket bucket = createBucket(rowIds);
+
+		checkRead(bucket, rowIds);
+		Assert.assertTrue(idReads.get() > 0);
+	}
+}
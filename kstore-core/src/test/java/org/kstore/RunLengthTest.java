@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.columns.ColumnInput;
+import org.kstore.columns.ColumnInputDict;
+import org.kstore.columns.ColumnInputLong;
+import org.kstore.columns.ColumnOutput;
+import org.kstore.columns.ColumnOutputDict;
+import org.kstore.columns.ColumnOutputLong;
+import org.kstore.columns.ZoneMap;
+import org.kstore.columns.io.SingleColumnPageBytesInput;
+import org.kstore.columns.io.SingleColumnPageBytesOutput;
+import org.kstore.impl.DefaultColumn;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.kstore.utils.ArrayInt;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ *
+ * @author eric
+ */
+public class RunLengthTest extends StoreTest {
+
+	private final static int NB_ROWS = 5000;
+
+	private static Object[] row(int i) {
+		// Clustered tenants with a run of nulls, and days
+		long tenant = (i >= 2000 && i < 2500) ? Long.MIN_VALUE : i / 700;
+		return new Object[]{tenant, "2019-01-" + (10 + i / 1000), (long) i};
+	}
+
+	@Test
+	public void testReadLines() throws IOException {
+		List<Column> schema = new ArrayList<>();
+		schema.add(new DefaultColumn(ColumnType.BIGINT));
+		DefaultColumn day = new DefaultColumn(ColumnType.DATE);
+		day.setDictionaryEncoded(true);
+		schema.add(day);
+		schema.add(new DefaultColumn(ColumnType.BIGINT));
+		kstore = new DefaultKStore("Tenants", schema, "./target/buckets/");
+
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < NB_ROWS; i++) {
+			bucket.add(i, row(i));
+		}
+		bucket.commit();
+
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLines(new DefaultLine(0, 1, 2), (RoaringBitmap) null, ColumnFilter.equal(1, "2019-01-12"), (int rowId, Line l) -> {
+			Assert.assertArrayEquals(row(rowId), l.getValues());
+			return rowIds.add(rowId);
+		});
+		Assert.assertEquals(1000, rowIds.size());
+	}
+
+	@Test
+	public void testLongRuns() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ArrayInt pos = new ArrayInt().init(16);
+		ColumnOutput out = new ColumnOutputLong(new SingleColumnPageBytesOutput(bytes), pos, new ZoneMap(), 100);
+		writePage(out, 5, 40, 30, 20);
+		ColumnInput in = new ColumnInputLong(new SingleColumnPageBytesInput(new ByteArrayInputStream(bytes.toByteArray())), pos);
+		in.newPage();
+		Assert.assertEquals(40, in.getRunLength());
+		for (int n = 0; n < 39; n++) {
+			Assert.assertEquals(5, in.readLong());
+		}
+		Assert.assertEquals(1, in.getRunLength());
+		Assert.assertEquals(5, in.readLong());
+		Assert.assertEquals(20, in.getRunLength());
+		Assert.assertEquals(30, in.readLong());
+		in.close();
+	}
+
+	@Test
+	public void testStringRuns() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ArrayInt pos = new ArrayInt().init(16);
+		ColumnOutput out = new ColumnOutputDict(new SingleColumnPageBytesOutput(bytes), pos);
+		for (int n = 0; n < 100; n++) {
+			out.writeStr(n < 60 ? "Monday" : "Tuesday");
+		}
+		out.newPage();
+		out.close();
+		ColumnInputDict in = new ColumnInputDict(new SingleColumnPageBytesInput(new ByteArrayInputStream(bytes.toByteArray())), pos);
+		in.newPage();
+		Assert.assertTrue(in.isDictionaryPage());
+		Assert.assertEquals(60, in.getRunLength());
+		in.skipRow(0);
+		Assert.assertEquals(59, in.getRunLength());
+		for (int n = 1; n < 60; n++) {
+			Assert.assertEquals("Monday", in.readStr().toString());
+		}
+		Assert.assertEquals(40, in.getRunLength());
+		Assert.assertEquals("Tuesday", in.readStr().toString());
+		in.close();
+	}
+
+	/**
+	 * Writes a page of runs of values.
+	 *
+	 * @param out
+	 * @param values pairs of value and run length
+	 */
+	private static void writePage(ColumnOutput out, long... values) throws IOException {
+		for (int n = 0; n < values.length; n += 2) {
+			for (int i = 0; i < values[n + 1]; i++) {
+				out.writeLong(values[n]);
+			}
+		}
+		out.newPage();
+		out.close();
+	}
+}
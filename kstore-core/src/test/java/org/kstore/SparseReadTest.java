@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Reads a few rows of buckets holding many pages.
+ *
+ * @author eric
+ */
+public class SparseReadTest extends StoreTest {
+
+	private final static int NB_ROWS = 5000;
+
+	private Bucket createBucket() throws IOException {
+		Bucket bucket = kstore.newBucket();
+		addBasicRows(bucket, 0, NB_ROWS);
+		bucket.commit();
+		addBasicRows(bucket, NB_ROWS, 2 * NB_ROWS);
+		bucket.commit();
+		return bucket;
+	}
+
+	private void checkSparseRead(Bucket bucket) throws IOException {
+		RoaringBitmap bitRowIds = RoaringBitmap.bitmapOf(3, 2500, 4999, 7000);
+
+		List<Integer> rowIds = new ArrayList<>();
+		bucket.readLines(new DefaultLine(new int[]{0, 1, 2, 3}), bitRowIds, (int rowId, Line l) -> {
+			Assert.assertArrayEquals(basicRow(rowId), ((DefaultLine) l).getValues());
+			rowIds.add(rowId);
+			return true;
+		});
+		Assert.assertEquals(Arrays.asList(3, 2500, 4999, 7000), rowIds);
+
+		rowIds.clear();
+		bucket.readBatches(new int[]{2, 1}, bitRowIds, (Batch batch) -> {
+			for (int n = 0; n < batch.getSize(); n++) {
+				int rowId = batch.getRowIds()[n];
+				Assert.assertEquals(basicRow(rowId)[2], batch.getVector(0).getLong(n));
+				Assert.assertEquals(basicRow(rowId)[1], batch.getVector(1).getStr(n).toString());
+				rowIds.add(rowId);
+			}
+			return true;
+		});
+		Assert.assertEquals(Arrays.asList(3, 2500, 4999, 7000), rowIds);
+	}
+
+	@Test
+	public void testOneFilePerColumn() throws IOException {
+		createBasicStore();
+
+		checkSparseRead(createBucket());
+	}
+
+	@Test
+	public void testSingleFile() throws IOException {
+		kstore = new DefaultKStore("TheWorld", basicSchema(), BASIC_DIRECTORY) {
+			@Override
+			public boolean useOneFilePerColumn() {
+				return false;
+			}
+		};
+
+		checkSparseRead(createBucket());
+	}
+}
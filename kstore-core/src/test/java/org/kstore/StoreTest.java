@@ -15,6 +15,8 @@
  */
 package org.kstore;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.logging.log4j.LogManager;
@@ -24,6 +26,7 @@ import org.kstore.impl.DefaultColumn;
 import org.kstore.impl.DefaultKStore;
 import org.kstore.impl.DefaultLine;
 import org.kstore.impl.FileSystemDevice;
+import org.roaringbitmap.RoaringBitmap;
 
 /**
  *
@@ -33,10 +36,15 @@ public abstract class StoreTest {
 
 	/** Logger. */
 	private static final Logger LOGGER = LogManager.getLogger(StoreTest.class);
+	/** Directory of the basic store. */
+	protected static final String BASIC_DIRECTORY = "./target/buckets/";
 	/** The test store. */
 	protected DefaultKStore kstore;
 
-	protected void createBasicStore() {
+	/**
+	 * Gets the columns of the basic store: continent, country, population and density.
+	 */
+	protected static List<Column> basicSchema() {
 		List<Column> schema = new ArrayList<>();
 		DefaultColumn continent = new DefaultColumn(ColumnType.STRING);
 		DefaultColumn country = new DefaultColumn(ColumnType.STRING);
@@ -47,8 +55,119 @@ public abstract class StoreTest {
 		schema.add(country);
 		schema.add(population);
 		schema.add(density);
+		return schema;
+	}
+
+	protected void createBasicStore() {
+		createBasicStore(new FileSystemDevice());
+	}
+
+	protected void createBasicStore(Device device) {
+		kstore = new DefaultKStore("TheWorld", basicSchema(), BASIC_DIRECTORY, device);
+	}
+
+	/**
+	 * Gets the values of a row of the basic store, from its id.
+	 */
+	protected static Object[] basicRow(int i) {
+		return new Object[]{"Continent" + (i % 7), "Country" + i, i * 1000L, i / 4.D};
+	}
+
+	/**
+	 * Adds the rows of ids from, included, to to, excluded, to a bucket of the basic store.
+	 */
+	protected static void addBasicRows(Bucket bucket, int from, int to) throws IOException {
+		for (int i = from; i < to; i++) {
+			bucket.add(i, basicRow(i));
+		}
+	}
+
+	/**
+	 * Reads all the rows of a bucket of the basic store, checking their values.
+	 *
+	 * @return the number of read rows
+	 */
+	protected static int readBasicRows(Bucket bucket) throws IOException {
+		int[] count = new int[1];
+		bucket.readLines(new DefaultLine(0, 1, 2, 3), (RoaringBitmap) null, (int rowId, Line l) -> {
+			Assert.assertArrayEquals(basicRow(rowId), l.getValues());
+			count[0]++;
+			return true;
+		});
+		return count[0];
+	}
+
+	/**
+	 * Gets the columns of the country stores: country, population and density.
+	 */
+	protected static List<Column> countrySchema() {
+		List<Column> schema = new ArrayList<>();
+		schema.add(new DefaultColumn(ColumnType.STRING));
+		schema.add(new DefaultColumn(ColumnType.BIGINT));
+		schema.add(new DefaultColumn(ColumnType.DOUBLE));
+		return schema;
+	}
+
+	protected static DefaultKStore createCountryStore(String name, String directory) {
+		return new DefaultKStore(name, countrySchema(), directory);
+	}
+
+	protected static DefaultKStore createCountryStore(String name, String directory, boolean oneFilePerColumn) {
+		return new DefaultKStore(name, countrySchema(), directory) {
+			@Override
+			public boolean useOneFilePerColumn() {
+				return oneFilePerColumn;
+			}
+		};
+	}
+
+	/**
+	 * Gets the values of a row of the country stores, from its id.
+	 */
+	protected static Object[] countryRow(int i) {
+		return new Object[]{"Country" + (i % 50), i * 1000L, i / 4.D};
+	}
+
+	/**
+	 * Reads all the rows of a bucket of a country store, checking their values and that the deleted rows are skipped.
+	 *
+	 * @return the number of read rows
+	 */
+	protected static int readCountryRows(Bucket bucket, RoaringBitmap deleted) throws IOException {
+		int[] count = new int[1];
+		bucket.readLines(new DefaultLine(0, 1, 2), (RoaringBitmap) null, (int rowId, Line l) -> {
+			Assert.assertFalse(deleted.contains(rowId));
+			Assert.assertArrayEquals(countryRow(rowId), l.getValues());
+			Assert.assertEquals(count[0], rowId - deleted.rank(rowId));
+			count[0]++;
+			return true;
+		});
+		return count[0];
+	}
+
+	/**
+	 * Tells if a file of the first bucket of the store in the given directory exists.
+	 */
+	protected static boolean bucketFileExists(String directory, String file) {
+		return new File(directory + "bucket0/" + file).exists();
+	}
 
-		kstore = new DefaultKStore("TheWorld", schema, "./target/buckets/");
+	/**
+	 * Counts the row files of the first bucket of the store in the given directory.
+	 */
+	protected static int countRowFiles(String directory) {
+		String[] files = new File(directory + "bucket0").list((dir, name) -> name.startsWith("id_"));
+		return (files == null) ? 0 : files.length;
+	}
+
+	protected static void deleteDirectory(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				deleteDirectory(file);
+			}
+		}
+		dir.delete();
 	}
 
 	/**
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 Indexima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kstore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kstore.impl.DefaultColumn;
+import org.kstore.impl.DefaultKStore;
+import org.kstore.impl.DefaultLine;
+import org.kstore.utils.Str;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ *
+ * @author eric
+ */
+public class StrViewTest extends StoreTest {
+
+	private final static int NB_ROWS = 5000;
+
+	private final static String DIRECTORY = "./target/buckets/views/";
+
+	private static Object[] row(int i) {
+		return new Object[]{"Continent" + (i % 7), "Country" + i, (long) i};
+	}
+
+	private Bucket createBucket() throws IOException {
+		ColumnType[] types = {ColumnType.STRING, ColumnType.STRING, ColumnType.BIGINT};
+		List<Column> schema = new ArrayList<>();
+		for (ColumnType type : types) {
+			schema.add(new DefaultColumn(type));
+		}
+		// Views are read from dictionary pages and from plain pages
+		((DefaultColumn) schema.get(0)).setDictionaryEncoded(true);
+		kstore = new DefaultKStore("Views", schema, DIRECTORY);
+		Bucket bucket = kstore.newBucket();
+		for (int i = 0; i < NB_ROWS; i++) {
+			bucket.add(i, row(i));
+		}
+		bucket.commit();
+		return bucket;
+	}
+
+	@Test
+	public void testViews() throws IOException {
+		Bucket bucket = createBucket();
+		DefaultLine line = new DefaultLine(true, 0, 1, 2);
+		Str continent = line.getStr(0);
+		Str[] views = new Str[2];
+		List<Str> copies = new ArrayList<>();
+		int[] count = new int[1];
+		bucket.readLines(line, (RoaringBitmap) null, (int rowId, Line l) -> {
+			Object[] expected = row(rowId);
+			Assert.assertEquals(expected[0], line.getStr(0).toString());
+			Assert.assertEquals(expected[1], line.getStr(1).toString());
+			Assert.assertEquals(expected[2], l.getValues()[2]);
+			// The same views are set for all rows
+			if (count[0] == 0) {
+				views[0] = line.getStr(0);
+				views[1] = line.getStr(1);
+			}
+			Assert.assertSame(views[0], line.getStr(0));
+			Assert.assertSame(views[1], line.getStr(1));
+			if (rowId < 3) {
+				copies.add(line.getStr(1).clone());
+			}
+			count[0]++;
+			return true;
+		});
+		Assert.assertNull(continent);
+		Assert.assertEquals(NB_ROWS, count[0]);
+		// Copied values are kept
+		Assert.assertEquals("Country0", copies.get(0).toString());
+		Assert.assertEquals("Country2", copies.get(2).toString());
+	}
+
+	@Test
+	public void testViewsWithFilter() throws IOException {
+		Bucket bucket = createBucket();
+		int[] count = new int[1];
+		bucket.readLinesParallel(() -> new DefaultLine(true, 0, 1), null, ColumnFilter.equal(0, "Continent3"), (int rowId, Line l) -> {
+			Assert.assertEquals("Continent3", ((DefaultLine) l).getStr(0).toString());
+			Assert.assertEquals("Country" + rowId, ((DefaultLine) l).getStr(1).toString());
+			count[0]++;
+			return true;
+		}, true);
+		Assert.assertEquals(NB_ROWS / 7, count[0]);
+	}
+
+	@Test
+	public void testCopies() throws IOException {
+		Bucket bucket = createBucket();
+		List<Str> values = new ArrayList<>();
+		// A line which does not accept views keeps the strings it is given
+		Line line = new Line() {
+			@Override
+			public void addLong(int colId, long value) {
+			}
+
+			@Override
+			public void addDouble(int colId, double value) {
+			}
+
+			@Override
+			public void addString(int colId, Str value) {
+				values.add(value);
+			}
+
+			@Override
+			public int[] getColumns() {
+				return new int[]{1};
+			}
+
+			@Override
+			public Object[] getValues() {
+				return null;
+			}
+
+			@Override
+			public int getSize() {
+				return 1;
+			}
+
+			@Override
+			public void reset() {
+			}
+		};
+		bucket.readLines(line, (RoaringBitmap) null, (int rowId, Line l) -> true);
+		Assert.assertEquals(NB_ROWS, values.size());
+		for (int i = 0; i < NB_ROWS; i++) {
+			Assert.assertEquals("Country" + i, values.get(i).toString());
+		}
+	}
+}
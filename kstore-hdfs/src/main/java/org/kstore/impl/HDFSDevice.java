@@ -87,6 +87,11 @@ public class HDFSDevice implements Device {
 		return (append) ? hdfs.append(path) : hdfs.create(path);
 	}
 
+	@Override
+	public boolean isRemote() {
+		return true;
+	}
+
 	@Override
 	public DataInputStream open(String path, Compression comp) throws IOException {
 		return new DataInputStream(new BufferedInputStream(openCompress(getInputStream(path), comp)));
@@ -103,6 +108,11 @@ public class HDFSDevice implements Device {
 		HadoopFile.get(this, path).delete(path);
 	}
 
+	@Override
+	public boolean exists(String path) throws IOException {
+		return HadoopFile.get(this, path).exists(path);
+	}
+
 	@Override
 	public void rename(String src, String dst) throws IOException {
 		HadoopFile.get(this, src).rename(src, dst);
@@ -110,6 +110,11 @@ public class HadoopFile {
 		fs.rename(new Path(hdfsSrc), new Path(hdfsDest));
 	}
 
+	public boolean exists(String path) throws IOException {
+		String hdfsPath = noHdfs(path);
+		return fs.exists(new Path(hdfsPath));
+	}
+
 	public void delete(String path) throws IOException {
 		String hdfsPath = noHdfs(path);
 		fs.delete(new Path(hdfsPath), true);
@@ -73,6 +73,11 @@ public class S3Device implements Device {
 		return append ? new S3File(path).append() : new S3File(path).create();
 	}
 
+	@Override
+	public boolean isRemote() {
+		return true;
+	}
+
 	@Override
 	public DataInputStream open(String path, Compression comp) throws IOException {
 		return new DataInputStream(new BufferedInputStream(openCompress(getInputStream(path), comp)));
@@ -89,6 +94,11 @@ public class S3Device implements Device {
 		new S3File(path).delete();
 	}
 
+	@Override
+	public boolean exists(String path) throws IOException {
+		return new S3File(path).exists();
+	}
+
 	@Override
 	public void rename(String src, String dst) throws IOException {
 		new S3File(src).rename(new S3File(dst));
@@ -158,6 +158,10 @@ public class S3File {
 		return new AwsOutputStream(this, local, true);
 	}
 
+	public boolean exists() throws IOException {
+		return CLIENT.doesObjectExist(bucket, key);
+	}
+
 	public void delete() throws IOException {
 		CLIENT.deleteObject(bucket, key);
 	}